@@ -0,0 +1,85 @@
+package com.xored.vertx.typed.rpc;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Bean payload of configurable serialized size used by benchmarks.
+ *
+ * @author Konstantin Zaitsev
+ */
+public class BenchmarkPayload {
+    /** Approximate serialized size of single item in bytes. */
+    private static final int ITEM_SIZE = 32;
+
+    private String name;
+    private long id;
+    private List<Item> items;
+
+    public static class Item {
+        private String key;
+        private int count;
+        private double weight;
+
+        public Item(String key, int count, double weight) {
+            this.key = key;
+            this.count = count;
+            this.weight = weight;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public double getWeight() {
+            return weight;
+        }
+    }
+
+    public BenchmarkPayload(String name, long id, List<Item> items) {
+        this.name = name;
+        this.id = id;
+        this.items = items;
+    }
+
+    /**
+     * Creates payload which serialized form takes approximately specified number of bytes.
+     */
+    public static BenchmarkPayload ofSize(int bytes) {
+        int count = Math.max(1, bytes / ITEM_SIZE);
+        List<Item> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add(new Item("item-" + i, i, i * 0.5));
+        }
+        return new BenchmarkPayload("payload-" + bytes, bytes, items);
+    }
+
+    /**
+     * Creates string map which serialized form takes approximately specified number of bytes.
+     */
+    public static HashMap<String, String> mapOfSize(int bytes) {
+        int count = Math.max(1, bytes / ITEM_SIZE);
+        HashMap<String, String> map = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            map.put("key-" + i, "value-" + i + "-" + bytes);
+        }
+        return map;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+}
@@ -0,0 +1,36 @@
+package com.xored.vertx.typed.rpc;
+
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * RPC service that covers every supported method shape for benchmarks.
+ *
+ * @author Konstantin Zaitsev
+ */
+@EventBusService("benchmark")
+public interface BenchmarkService {
+    void voidMethod();
+
+    void voidMethodBeanParams(BenchmarkPayload param);
+
+    @Publish
+    void publishMethodBeanParams(BenchmarkPayload param);
+
+    CompletableFuture<Long> primitiveMethodParams(int num, long value, double weight);
+
+    CompletableFuture<String> stringMethodParams(String param);
+
+    CompletableFuture<BenchmarkPayload> beanMethod();
+
+    CompletableFuture<BenchmarkPayload> beanMethodBeanParams(BenchmarkPayload param);
+
+    CompletableFuture<HashMap<String, String>> mapMethodMapParams(HashMap<String, String> param);
+
+    CompletableFuture<HashMap<String, String>> mapMethodBeanStringParams(BenchmarkPayload param, String str);
+
+    /**
+     * Round trip that is used to wait until preceding one way calls are processed.
+     */
+    CompletableFuture<Void> barrier();
+}
@@ -0,0 +1,66 @@
+package com.xored.vertx.typed.rpc;
+
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Benchmark service implementation that answers with prepared payloads of the same size as requests.
+ *
+ * @author Konstantin Zaitsev
+ */
+public class BenchmarkServiceImpl implements BenchmarkService {
+    private final BenchmarkPayload payload;
+    private final HashMap<String, String> map;
+
+    public BenchmarkServiceImpl(BenchmarkPayload payload, HashMap<String, String> map) {
+        this.payload = payload;
+        this.map = map;
+    }
+
+    @Override
+    public void voidMethod() {
+    }
+
+    @Override
+    public void voidMethodBeanParams(BenchmarkPayload param) {
+    }
+
+    @Override
+    public void publishMethodBeanParams(BenchmarkPayload param) {
+    }
+
+    @Override
+    public CompletableFuture<Long> primitiveMethodParams(int num, long value, double weight) {
+        return CompletableFuture.completedFuture(num + value + (long) weight);
+    }
+
+    @Override
+    public CompletableFuture<String> stringMethodParams(String param) {
+        return CompletableFuture.completedFuture(param);
+    }
+
+    @Override
+    public CompletableFuture<BenchmarkPayload> beanMethod() {
+        return CompletableFuture.completedFuture(payload);
+    }
+
+    @Override
+    public CompletableFuture<BenchmarkPayload> beanMethodBeanParams(BenchmarkPayload param) {
+        return CompletableFuture.completedFuture(payload);
+    }
+
+    @Override
+    public CompletableFuture<HashMap<String, String>> mapMethodMapParams(HashMap<String, String> param) {
+        return CompletableFuture.completedFuture(map);
+    }
+
+    @Override
+    public CompletableFuture<HashMap<String, String>> mapMethodBeanStringParams(BenchmarkPayload param, String str) {
+        return CompletableFuture.completedFuture(map);
+    }
+
+    @Override
+    public CompletableFuture<Void> barrier() {
+        return CompletableFuture.completedFuture(null);
+    }
+}
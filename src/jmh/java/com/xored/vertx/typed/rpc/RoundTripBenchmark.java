@@ -0,0 +1,125 @@
+package com.xored.vertx.typed.rpc;
+
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.createClient;
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.registerServer;
+
+import io.vertx.core.Vertx;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client/server round trips over local EventBus for every method shape of {@link BenchmarkService}.
+ * <p>
+ * One way methods are measured in batches of {@link #BATCH} calls followed by {@link BenchmarkService#barrier()}
+ * so that the server keeps up with the client and the queue does not grow between iterations.
+ *
+ * @author Konstantin Zaitsev
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoundTripBenchmark {
+    static final int BATCH = 100;
+
+    @Param({ "64", "4096", "65536" })
+    private int payloadSize;
+
+    private Vertx vertx;
+    private BenchmarkService client;
+    private BenchmarkPayload payload;
+    private HashMap<String, String> map;
+    private String str;
+
+    @Setup
+    public void setUp() {
+        payload = BenchmarkPayload.ofSize(payloadSize);
+        map = BenchmarkPayload.mapOfSize(payloadSize);
+        str = new String(new char[payloadSize]).replace('\0', 's');
+
+        vertx = Vertx.vertx();
+        registerServer(vertx.eventBus(), new BenchmarkServiceImpl(payload, map));
+        client = createClient(vertx.eventBus(), BenchmarkService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        CompletableFuture<Void> closed = new CompletableFuture<>();
+        vertx.close(r -> closed.complete(null));
+        closed.join();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void voidMethod() {
+        for (int i = 0; i < BATCH; i++) {
+            client.voidMethod();
+        }
+        client.barrier().join();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void voidMethodBeanParams() {
+        for (int i = 0; i < BATCH; i++) {
+            client.voidMethodBeanParams(payload);
+        }
+        client.barrier().join();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void publishMethodBeanParams() {
+        for (int i = 0; i < BATCH; i++) {
+            client.publishMethodBeanParams(payload);
+        }
+        client.barrier().join();
+    }
+
+    @Benchmark
+    public Long primitiveMethodParams() {
+        return client.primitiveMethodParams(payloadSize, 42L, 0.5).join();
+    }
+
+    @Benchmark
+    public String stringMethodParams() {
+        return client.stringMethodParams(str).join();
+    }
+
+    @Benchmark
+    public BenchmarkPayload beanMethod() {
+        return client.beanMethod().join();
+    }
+
+    @Benchmark
+    public BenchmarkPayload beanMethodBeanParams() {
+        return client.beanMethodBeanParams(payload).join();
+    }
+
+    @Benchmark
+    public HashMap<String, String> mapMethodMapParams() {
+        return client.mapMethodMapParams(map).join();
+    }
+
+    @Benchmark
+    public HashMap<String, String> mapMethodBeanStringParams() {
+        return client.mapMethodBeanStringParams(payload, str).join();
+    }
+}
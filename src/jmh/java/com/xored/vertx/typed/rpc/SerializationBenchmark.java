@@ -0,0 +1,68 @@
+package com.xored.vertx.typed.rpc;
+
+import io.vertx.core.buffer.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializer alone: request arguments and reply values without EventBus.
+ *
+ * @author Konstantin Zaitsev
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+    @Param({ "64", "4096", "65536", "524288" })
+    private int payloadSize;
+
+    private KryoSerializer serializer;
+    private Object[] args;
+    private Object reply;
+    private Buffer argsBuffer;
+    private Buffer replyBuffer;
+
+    @Setup
+    public void setUp() {
+        serializer = new KryoSerializer(new EventBusServiceOptions(), BenchmarkService.class);
+        BenchmarkPayload payload = BenchmarkPayload.ofSize(payloadSize);
+        args = new Object[] { payload, "string", 42, BenchmarkPayload.mapOfSize(payloadSize) };
+        reply = payload;
+        argsBuffer = serializer.writeObjects(args);
+        replyBuffer = serializer.writeObject(reply);
+    }
+
+    @Benchmark
+    public Buffer writeObjects() {
+        return serializer.writeObjects(args);
+    }
+
+    @Benchmark
+    public Object[] readObjects() {
+        return serializer.readObjects(argsBuffer, args.length);
+    }
+
+    @Benchmark
+    public Buffer writeObject() {
+        return serializer.writeObject(reply);
+    }
+
+    @Benchmark
+    public Object readObject() {
+        return serializer.readObject(replyBuffer);
+    }
+}
@@ -0,0 +1,57 @@
+package com.xored.vertx.typed.rpc;
+
+/**
+ * Base class of RPC clients generated by {@link EventBusServiceProcessor}. It is not intended to be used directly.
+ *
+ * @author Konstantin Zaitsev
+ */
+public abstract class AbstractEventBusServiceClient {
+    protected static final Object[] NO_ARGS = new Object[0];
+
+    private final String[] signatures;
+    private ServiceClient client;
+    private ClientMethod[] methods;
+
+    /**
+     * @param signatures signatures of service methods in order of their indexes in {@link #invoke(int, Object[])}
+     */
+    protected AbstractEventBusServiceClient(String[] signatures) {
+        this.signatures = signatures;
+    }
+
+    /**
+     * Binds generated client to EventBus client of service.
+     */
+    final void bind(ServiceClient client) {
+        ClientMethod[] methods = new ClientMethod[signatures.length];
+        for (int i = 0; i < signatures.length; i++) {
+            methods[i] = client.method(signatures[i]);
+        }
+        this.client = client;
+        this.methods = methods;
+    }
+
+    /**
+     * @return EventBus client of service that the generated client is bound to
+     */
+    final ServiceClient serviceClient() {
+        return client;
+    }
+
+    /**
+     * Invokes service method.
+     *
+     * @param method index of method signature
+     * @param args   method arguments
+     * @return method result
+     */
+    @SuppressWarnings("unchecked")
+    protected final <R> R invoke(int method, Object[] args) {
+        return (R) client.invoke(methods[method], args);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + client.getAddress() + "]";
+    }
+}
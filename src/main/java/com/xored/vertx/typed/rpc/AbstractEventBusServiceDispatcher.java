@@ -0,0 +1,34 @@
+package com.xored.vertx.typed.rpc;
+
+/**
+ * Base class of RPC server dispatchers generated by {@link EventBusServiceProcessor}. It is not intended to be used
+ * directly.
+ *
+ * @author Konstantin Zaitsev
+ */
+public abstract class AbstractEventBusServiceDispatcher {
+    private final String[] signatures;
+
+    /**
+     * @param signatures signatures of service methods in order of their indexes in
+     *                   {@link #invoke(int, Object, Object[])}
+     */
+    protected AbstractEventBusServiceDispatcher(String[] signatures) {
+        this.signatures = signatures;
+    }
+
+    final String[] getSignatures() {
+        return signatures;
+    }
+
+    /**
+     * Invokes service method on implementation.
+     *
+     * @param method index of method signature
+     * @param target service implementation
+     * @param args   method arguments
+     * @return method result or <code>null</code> for void methods
+     * @throws Throwable exception thrown by the method as is
+     */
+    public abstract Object invoke(int method, Object target, Object[] args) throws Throwable;
+}
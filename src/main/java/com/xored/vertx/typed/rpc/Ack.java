@@ -0,0 +1,24 @@
+package com.xored.vertx.typed.rpc;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Acknowledged one way call. The method should return <code>CompletableFuture&lt;Void&gt;</code> that is completed
+ * once server completes the call, reply carries no serialized result, only failures are serialized.
+ * <p>
+ * Unlike void methods the caller learns about failures and can send many calls without waiting for each of them
+ * and await all of them at once by {@link CompletableFuture#allOf}. Acknowledged calls are batched as calls with
+ * results.
+ *
+ * @author Konstantin Zaitsev
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Ack {
+}
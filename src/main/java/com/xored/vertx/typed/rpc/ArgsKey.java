@@ -0,0 +1,28 @@
+package com.xored.vertx.typed.rpc;
+
+import java.util.Arrays;
+
+/**
+ * Key of call that is compared by serialized arguments.
+ *
+ * @author Konstantin Zaitsev
+ */
+final class ArgsKey {
+    private final byte[] bytes;
+    private final int hash;
+
+    ArgsKey(byte[] bytes) {
+        this.bytes = bytes;
+        this.hash = Arrays.hashCode(bytes);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof ArgsKey && Arrays.equals(bytes, ((ArgsKey) obj).bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
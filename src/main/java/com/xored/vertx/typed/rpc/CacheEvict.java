@@ -0,0 +1,24 @@
+package com.xored.vertx.typed.rpc;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Call of method evicts {@link Cacheable cached} results of service, e.g. method that notifies about data change.
+ * Results are evicted by the calling client immediately and by other clients of the service when eviction message
+ * that is published by the calling client is delivered to them. The call itself is sent to the service as usual.
+ *
+ * @author Konstantin Zaitsev
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface CacheEvict {
+    /**
+     * Names of methods which results are evicted, all cached results of service are evicted by default.
+     */
+    String[] value() default {};
+}
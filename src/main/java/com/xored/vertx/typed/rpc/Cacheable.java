@@ -0,0 +1,36 @@
+package com.xored.vertx.typed.rpc;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Results of idempotent method are cached by client. Calls with equal serialized arguments share the same
+ * {@link java.util.concurrent.CompletableFuture}, so concurrent identical calls are sent once and completed results
+ * are returned without call until they expire. Failed calls are not cached. The method should return
+ * {@link java.util.concurrent.CompletableFuture}.
+ * <p>
+ * The least recently used results are evicted when cache is full, all results are evicted by call of method with
+ * {@link CacheEvict} annotation.
+ *
+ * @author Konstantin Zaitsev
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Cacheable {
+    /**
+     * Time to live of completed result in {@link #unit() units}.
+     */
+    long ttl();
+
+    TimeUnit unit() default TimeUnit.MILLISECONDS;
+
+    /**
+     * Maximum number of cached results.
+     */
+    int maxEntries() default 1024;
+}
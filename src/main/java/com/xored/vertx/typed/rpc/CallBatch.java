@@ -0,0 +1,146 @@
+package com.xored.vertx.typed.rpc;
+
+import com.esotericsoftware.kryo.io.Output;
+import io.vertx.core.buffer.Buffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Calls of RPC service that are collected by client to be sent as single {@link RpcProtocol#FRAME_BATCH batch}
+ * message. Arguments are serialized when call is added, so later changes of them are not visible to server as for
+ * calls that are sent immediately.
+ * <p>
+ * Calls of {@link Publish} methods are collected to separate batch that is published to all servers.
+ *
+ * @author Konstantin Zaitsev
+ */
+final class CallBatch {
+    private final KryoSerializer serializer;
+    private final Output output;
+    private final List<ClientMethod> methods = new ArrayList<>();
+    private final List<Object[]> args = new ArrayList<>();
+    private final List<CompletableFuture<Object>> results = new ArrayList<>();
+    private final List<ClientMethod> resultMethods = new ArrayList<>();
+    private final boolean publish;
+    private long timeout;
+
+    /**
+     * @param publish whether batch collects calls of {@link Publish} methods
+     */
+    CallBatch(KryoSerializer serializer, boolean publish) {
+        this.serializer = serializer;
+        this.output = serializer.newOutput();
+        this.publish = publish;
+    }
+
+    /**
+     * Adds call to the batch.
+     *
+     * @param call   {@link RpcProtocol#FRAME_CALL call frame} that is already written or <code>null</code>
+     * @param result future of call result or <code>null</code> for one way calls
+     * @return size of serialized call in bytes
+     */
+    int add(ClientMethod method, Object[] args, Buffer call, CompletableFuture<Object> result) {
+        int size = write(method, args, call);
+        if (result != null) {
+            results.add(result);
+            addResultMethod(method);
+        }
+        return size;
+    }
+
+    /**
+     * Adds call of {@link CallPipeline pipeline}, its result is read in the order of calls rather than completed by
+     * future.
+     *
+     * @return size of serialized call in bytes
+     */
+    int add(ClientMethod method, Object[] args) {
+        int size = write(method, args, null);
+        if (method.returnsFuture()) {
+            addResultMethod(method);
+        }
+        return size;
+    }
+
+    private int write(ClientMethod method, Object[] args, Buffer call) {
+        int position = output.position();
+        try {
+            if (call != null) {
+                // calls of batch are written without frame byte
+                output.writeBytes(call.getBytes(1, call.length()));
+            } else {
+                serializer.writeCall(output, method.getId(), args, method.getParameterCodecs());
+            }
+        } catch (RuntimeException e) {
+            // keep previous calls of the batch consistent
+            output.setPosition(position);
+            throw e;
+        }
+        this.methods.add(method);
+        this.args.add(args);
+        return output.position() - position;
+    }
+
+    private void addResultMethod(ClientMethod method) {
+        resultMethods.add(method);
+        timeout = Math.max(timeout, method.getTimeout());
+    }
+
+    int size() {
+        return methods.size();
+    }
+
+    boolean isPublish() {
+        return publish;
+    }
+
+    List<ClientMethod> getMethods() {
+        return methods;
+    }
+
+    List<Object[]> getArgs() {
+        return args;
+    }
+
+    /**
+     * @return futures of calls that expect result in the order of calls
+     */
+    List<CompletableFuture<Object>> getResults() {
+        return results;
+    }
+
+    /**
+     * @return methods of calls that expect result in the order of calls
+     */
+    List<ClientMethod> getResultMethods() {
+        return resultMethods;
+    }
+
+    /**
+     * @return the longest timeout of calls that expect result
+     */
+    long getTimeout() {
+        return timeout;
+    }
+
+    Buffer toBuffer() {
+        int size = output.position();
+        return Buffer.buffer(size + 5).appendByte(RpcProtocol.FRAME_BATCH).appendInt(methods.size())
+                .appendBytes(output.getBuffer(), 0, size);
+    }
+
+    /**
+     * @return batch frame enclosed into {@link RpcProtocol#FRAME_REPLY_TO envelope} with reply address
+     */
+    Buffer toBuffer(long correlationId, String replyAddress) {
+        Output envelope = new Output(replyAddress.length() + 16, -1);
+        KryoSerializer.writeReplyTo(envelope, correlationId, replyAddress);
+        int size = output.position();
+        return Buffer.buffer(envelope.position() + size + 5).appendBytes(envelope.getBuffer(), 0, envelope.position())
+                .appendByte(RpcProtocol.FRAME_BATCH).appendInt(methods.size())
+                .appendBytes(output.getBuffer(), 0, size);
+    }
+}
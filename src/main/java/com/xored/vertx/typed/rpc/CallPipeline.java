@@ -0,0 +1,83 @@
+package com.xored.vertx.typed.rpc;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Calls of RPC service that are queued against typed interface and sent as single
+ * {@link RpcProtocol#FRAME_BATCH batch} message when pipeline is {@link #flush() flushed}. Queued calls have no
+ * futures of their own, results of all calls are completed at once as array indexed in the order of calls.
+ * <p>
+ * Pipeline is not thread safe, calls should be queued and flushed by single thread. Methods that stream or publish
+ * cannot be pipelined, pipelined calls do not use client cache of {@link Cacheable} methods and are not de-duplicated
+ * with {@link SingleFlight} calls in flight.
+ *
+ * @author Konstantin Zaitsev
+ * @param <T> RPC service interface
+ */
+public final class CallPipeline<T> {
+    private final ServiceClient client;
+    private final T calls;
+    private CallBatch batch;
+
+    @SuppressWarnings("unchecked")
+    CallPipeline(ServiceClient client, Class<T> iface) {
+        this.client = client;
+        this.batch = client.newPipeline();
+        DefaultMethods defaultMethods = new DefaultMethods();
+        this.calls = (T) Proxy.newProxyInstance(iface.getClassLoader(), new Class[] { iface },
+                (proxy, method, args) -> {
+                    ClientMethod clientMethod = client.method(method);
+                    if (clientMethod != null) {
+                        client.pipeline(batch, clientMethod, args);
+                        return null;
+                    }
+                    switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return iface.getSimpleName() + "[" + client.getAddress() + "]";
+                    default:
+                        if (method.isDefault()) {
+                            return defaultMethods.invoke(proxy, method, args);
+                        }
+                        throw new UnsupportedOperationException(method.toString());
+                    }
+                });
+    }
+
+    /**
+     * @return proxy of service interface that queues calls, methods of the proxy always return <code>null</code>
+     */
+    public T calls() {
+        return calls;
+    }
+
+    /**
+     * @return number of queued calls
+     */
+    public int size() {
+        return batch.size();
+    }
+
+    /**
+     * Sends queued calls as single message, the following calls are queued to the next batch. Results are completed
+     * once server replied to all calls or at once if all calls are one way.
+     *
+     * @return future of results in the order of calls: values of completed calls, exceptions of failed calls and
+     * <code>null</code> for one way calls. The future fails if the batch is not delivered or is not replied within
+     * the longest timeout of its calls.
+     */
+    public CompletableFuture<Object[]> flush() {
+        CallBatch flushed = batch;
+        batch = client.newPipeline();
+        return client.flushPipeline(flushed);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + client.getAddress() + "]";
+    }
+}
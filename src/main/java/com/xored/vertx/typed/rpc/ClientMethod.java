@@ -0,0 +1,243 @@
+package com.xored.vertx.typed.rpc;
+
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.streams.ReadStream;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Client side metadata of RPC service method that is resolved once at client creation.
+ *
+ * @author Konstantin Zaitsev
+ */
+final class ClientMethod {
+    private final String name;
+    private final int id;
+    private final int parameterCount;
+    private final RpcSerializer.Codec[] parameterCodecs;
+    private final RpcSerializer.Codec resultCodec;
+    private final RpcSerializer.Codec[] resultCodecs;
+    private final RpcSerializer.Codec uploadCodec;
+    private final GraphLimits limits;
+    private final boolean oneWay;
+    private final boolean publish;
+    private final boolean returnsFuture;
+    private final boolean returnsStream;
+    private final int streamParameter;
+    private final Local local;
+    private final long timeout;
+    private final DeliveryOptions deliveryOptions;
+    private final DeliveryOptions methodHeaderDeliveryOptions;
+    private final DeliveryOptions streamDeliveryOptions;
+    private final MethodMetrics metrics;
+    private final ResultCache cache;
+    private final String[] evicts;
+    private final InFlightCalls singleFlight;
+    private final Compressor compressor;
+
+    ClientMethod(Method method, Class<?> serviceInterface, EventBusServiceOptions options,
+            RpcSerializer serializer) {
+        this.name = method.getName();
+        this.id = RpcProtocol.methodId(ServiceMethods.signature(method));
+        this.parameterCount = method.getParameterCount();
+        this.oneWay = method.getReturnType() == void.class;
+        this.publish = oneWay && method.getAnnotation(Publish.class) != null;
+        this.returnsFuture = method.getReturnType().isAssignableFrom(CompletableFuture.class);
+        this.returnsStream = method.getReturnType() == ReadStream.class;
+        this.streamParameter = ServiceMethods.streamParameter(method);
+        this.limits = GraphLimits.create(method, serviceInterface, options);
+        RpcSerializer values = KryoSerializer.limited(serializer, limits);
+        this.parameterCodecs = ServiceMethods.parameterCodecs(method, values);
+        this.resultCodec = ServiceMethods.resultCodec(method, values);
+        this.resultCodecs = new RpcSerializer.Codec[] { resultCodec };
+        this.uploadCodec = streamParameter >= 0 ? values.codec(ServiceMethods.itemType(method, streamParameter))
+                : null;
+        Local local = method.getAnnotation(Local.class);
+        this.local = local != null ? local : serviceInterface.getAnnotation(Local.class);
+        Timeout timeout = method.getAnnotation(Timeout.class);
+        if (timeout == null) {
+            timeout = serviceInterface.getAnnotation(Timeout.class);
+        }
+        this.timeout = timeout != null ? timeout.unit().toMillis(timeout.value()) : options.getTimeout();
+
+        // calls passed by reference are not compressed
+        this.compressor = this.local == null ? Compressor.create(method, serviceInterface, options) : null;
+
+        // options are shared by all calls of the method, EventBus does not modify them
+        this.deliveryOptions = new DeliveryOptions().setSendTimeout(this.timeout);
+        if (this.local != null) {
+            this.deliveryOptions.setCodecName(LocalMessageCodec.NAME);
+        }
+        if (this.compressor != null) {
+            this.deliveryOptions.addHeader(RpcProtocol.HEADER_ACCEPT_ENCODING, Compressor.ACCEPTED);
+        }
+        this.methodHeaderDeliveryOptions = new DeliveryOptions().setSendTimeout(this.timeout)
+                .addHeader(RpcProtocol.HEADER_METHOD_NAME, name);
+        this.streamDeliveryOptions = new DeliveryOptions().setSendTimeout(this.timeout);
+        this.metrics = options.getMetrics() != null ? options.getMetrics()
+                .client(serviceInterface.getAnnotation(EventBusService.class).value(), name) : null;
+
+        Cacheable cacheable = method.getAnnotation(Cacheable.class);
+        if (cacheable != null) {
+            if (!returnsFuture || returnsStream || streamParameter >= 0) {
+                throw new IllegalArgumentException(String.format("Cacheable method %s must return CompletableFuture",
+                        method));
+            }
+            if (cacheable.ttl() <= 0 || cacheable.maxEntries() <= 0) {
+                throw new IllegalArgumentException(String.format("ttl and maxEntries of %s must be > 0", method));
+            }
+            this.cache = new ResultCache(cacheable.unit().toNanos(cacheable.ttl()), cacheable.maxEntries());
+        } else {
+            this.cache = null;
+        }
+        CacheEvict evict = method.getAnnotation(CacheEvict.class);
+        this.evicts = evict != null ? evict.value() : null;
+        this.singleFlight = ServiceMethods.singleFlight(method);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * @return {@link RpcProtocol#methodId(String) id} of the method
+     */
+    int getId() {
+        return id;
+    }
+
+    int getParameterCount() {
+        return parameterCount;
+    }
+
+    /**
+     * @return codecs of parameters
+     */
+    RpcSerializer.Codec[] getParameterCodecs() {
+        return parameterCodecs;
+    }
+
+    /**
+     * @return codec of result or of items of {@link ReadStream} result
+     */
+    RpcSerializer.Codec getResultCodec() {
+        return resultCodec;
+    }
+
+    /**
+     * @return array with the only {@link #getResultCodec() codec of result}
+     */
+    RpcSerializer.Codec[] getResultCodecs() {
+        return resultCodecs;
+    }
+
+    /**
+     * @return codec of items of {@link ReadStream} parameter or <code>null</code> if there is no such parameter
+     */
+    RpcSerializer.Codec getUploadCodec() {
+        return uploadCodec;
+    }
+
+    /**
+     * @return references and limits of object graphs of the method
+     */
+    GraphLimits getLimits() {
+        return limits;
+    }
+
+    boolean isOneWay() {
+        return oneWay;
+    }
+
+    boolean isPublish() {
+        return publish;
+    }
+
+    boolean returnsFuture() {
+        return returnsFuture;
+    }
+
+    boolean returnsStream() {
+        return returnsStream;
+    }
+
+    /**
+     * @return index of {@link ReadStream} parameter that is uploaded in chunks or -1 if there is no such parameter
+     */
+    int getStreamParameter() {
+        return streamParameter;
+    }
+
+    /**
+     * @return local delivery settings or <code>null</code> if arguments should be serialized.
+     */
+    Local getLocal() {
+        return local;
+    }
+
+    /**
+     * @return time of waiting for result in milliseconds
+     */
+    long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * @return options of calls that pass method id in message body
+     */
+    DeliveryOptions getDeliveryOptions() {
+        return deliveryOptions;
+    }
+
+    /**
+     * @return options of legacy calls that pass method name in {@link RpcProtocol#HEADER_METHOD_NAME} header
+     */
+    DeliveryOptions getMethodHeaderDeliveryOptions() {
+        return methodHeaderDeliveryOptions;
+    }
+
+    /**
+     * @return options of stream and upload calls that are acknowledged by server once they are received
+     */
+    DeliveryOptions getStreamDeliveryOptions() {
+        return streamDeliveryOptions;
+    }
+
+    /**
+     * @return metrics of calls or <code>null</code> if they are not recorded
+     */
+    MethodMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return cache of {@link Cacheable} method or <code>null</code>
+     */
+    ResultCache getCache() {
+        return cache;
+    }
+
+    /**
+     * @return names of methods which results are evicted by {@link CacheEvict} method, empty for all methods, or
+     * <code>null</code> if method does not evict results
+     */
+    String[] getEvicts() {
+        return evicts;
+    }
+
+    /**
+     * @return calls in flight of {@link SingleFlight} method or <code>null</code>
+     */
+    InFlightCalls getSingleFlight() {
+        return singleFlight;
+    }
+
+    /**
+     * @return compressor of calls or <code>null</code> if calls are not compressed and compressed replies are not
+     * accepted
+     */
+    Compressor getCompressor() {
+        return compressor;
+    }
+}
@@ -0,0 +1,48 @@
+package com.xored.vertx.typed.rpc;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Compression of calls and replies that are larger than {@link #threshold() threshold}. Can be specified for service
+ * interface or single method, method annotation has priority and both override
+ * {@link EventBusServiceOptions#setCompression options}. Batches of calls and their replies are compressed according
+ * to settings of service interface, calls of {@link Local} methods and stream items are not compressed.
+ * <p>
+ * The annotation of shared service interface enables compression on both sides, so calls are compressed once server
+ * replied that it understands the codec and replies are compressed for clients that accept it.
+ *
+ * @author Konstantin Zaitsev
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface Compression {
+    Codec value();
+
+    /**
+     * Minimum size of serialized call or reply in bytes that is compressed.
+     */
+    int threshold() default EventBusServiceOptions.DEFAULT_COMPRESSION_THRESHOLD;
+
+    enum Codec {
+        /**
+         * Messages are not compressed.
+         */
+        NONE,
+
+        /**
+         * Deflate of {@link java.util.zip.Deflater} with the best speed level, it is always available.
+         */
+        DEFLATE,
+
+        /**
+         * Snappy of pure Java <code>org.iq80.snappy:snappy</code> library, it is faster than {@link #DEFLATE} but
+         * compresses less and it requires the library in class path.
+         */
+        SNAPPY
+    }
+}
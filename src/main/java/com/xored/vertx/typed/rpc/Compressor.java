@@ -0,0 +1,255 @@
+package com.xored.vertx.typed.rpc;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses calls and replies that are larger than threshold with {@link Compression.Codec codec} of service or
+ * method. Compressed data starts with int length of uncompressed data, codec is identified by its ordinal in
+ * messages and by its name in headers.
+ *
+ * @author Konstantin Zaitsev
+ */
+final class Compressor {
+    private static final Compression.Codec[] CODECS = Compression.Codec.values();
+    private static final boolean SNAPPY_AVAILABLE = isSnappyAvailable();
+
+    /**
+     * Names of codecs that can be decompressed separated by comma.
+     */
+    static final String ACCEPTED = Arrays.stream(CODECS)
+            .filter(codec -> codec != Compression.Codec.NONE && isAvailable(codec)).map(Enum::name)
+            .collect(Collectors.joining(","));
+
+    /**
+     * Options of uncompressed replies to clients that accept compression, they tell client which codecs server
+     * accepts.
+     */
+    static final DeliveryOptions ACCEPT_REPLY_OPTIONS = new DeliveryOptions()
+            .addHeader(RpcProtocol.HEADER_ACCEPT_ENCODING, ACCEPTED);
+
+    private static final ThreadLocal<Deflater> deflaters = ThreadLocal.withInitial(
+            () -> new Deflater(Deflater.BEST_SPEED));
+    private static final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(Inflater::new);
+
+    private final Compression.Codec codec;
+    private final int threshold;
+    private final DeliveryOptions replyOptions;
+
+    private Compressor(Compression.Codec codec, int threshold) {
+        this.codec = codec;
+        this.threshold = threshold;
+        this.replyOptions = new DeliveryOptions().addHeader(RpcProtocol.HEADER_ACCEPT_ENCODING, ACCEPTED)
+                .addHeader(RpcProtocol.HEADER_ENCODING, codec.name());
+    }
+
+    /**
+     * Creates compressor of method or service according to {@link Compression} annotation of method, annotation of
+     * service interface or options.
+     *
+     * @param method method or <code>null</code> for compressor of service
+     * @return compressor or <code>null</code> if messages are not compressed
+     */
+    static Compressor create(Method method, Class<?> serviceInterface, EventBusServiceOptions options) {
+        Compression compression = method != null ? method.getAnnotation(Compression.class) : null;
+        if (compression == null) {
+            compression = serviceInterface.getAnnotation(Compression.class);
+        }
+        Compression.Codec codec = compression != null ? compression.value() : options.getCompression();
+        int threshold = compression != null ? compression.threshold() : options.getCompressionThreshold();
+        String name = method != null ? method.toString() : serviceInterface.getName();
+        if (threshold < 0) {
+            throw new IllegalArgumentException(String.format("Compression threshold of %s must be >= 0", name));
+        }
+        if (codec == Compression.Codec.NONE) {
+            return null;
+        }
+        if (!isAvailable(codec)) {
+            throw new IllegalStateException(String.format(
+                    "Compression %s of %s requires org.iq80.snappy:snappy library", codec, name));
+        }
+        return new Compressor(codec, threshold);
+    }
+
+    static boolean isAvailable(Compression.Codec codec) {
+        return codec != Compression.Codec.SNAPPY || SNAPPY_AVAILABLE;
+    }
+
+    private static boolean isSnappyAvailable() {
+        try {
+            Class.forName("org.iq80.snappy.Snappy", false, Compressor.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param accepted names of codecs that peer accepts separated by comma or <code>null</code> if it is unknown
+     * @return whether peer decompresses messages of this compressor
+     */
+    boolean isAcceptedBy(String accepted) {
+        return accepted != null && Arrays.asList(accepted.split(",")).contains(codec.name());
+    }
+
+    /**
+     * @return options of compressed reply to message
+     */
+    DeliveryOptions getReplyOptions() {
+        return replyOptions;
+    }
+
+    /**
+     * Compresses call to {@link RpcProtocol#FRAME_COMPRESSED} frame.
+     *
+     * @return compressed call or <code>null</code> if call is smaller than threshold or it is not compressible
+     */
+    Buffer compressCall(Buffer call) {
+        return compress(Buffer.buffer().appendByte(RpcProtocol.FRAME_COMPRESSED).appendByte((byte) codec.ordinal()),
+                call, 0);
+    }
+
+    /**
+     * Compresses results of reply to reply channel that starts with correlation id and {@link RpcProtocol#REPLY_OK}
+     * status.
+     *
+     * @return compressed reply with {@link RpcProtocol#REPLY_COMPRESSED} status or <code>null</code> if reply is
+     * smaller than threshold or it is not compressible
+     */
+    Buffer compressChannelReply(Buffer reply) {
+        return compress(Buffer.buffer().appendLong(reply.getLong(0)).appendByte(RpcProtocol.REPLY_COMPRESSED)
+                .appendByte((byte) codec.ordinal()), reply, 9);
+    }
+
+    /**
+     * Compresses reply to message, it should be sent with {@link #getReplyOptions() reply options}.
+     *
+     * @return compressed reply or <code>null</code> if reply is smaller than threshold or it is not compressible
+     */
+    Buffer compressReply(Buffer reply) {
+        return compress(Buffer.buffer(), reply, 0);
+    }
+
+    /**
+     * Appends data of source buffer starting from specified offset compressed to the header.
+     *
+     * @return header with compressed data or <code>null</code> if data is not compressed
+     */
+    private Buffer compress(Buffer header, Buffer source, int offset) {
+        if (source.length() < threshold) {
+            return null;
+        }
+        byte[] data = source.getBytes(offset, source.length());
+        byte[] compressed;
+        int length;
+        if (codec == Compression.Codec.SNAPPY) {
+            compressed = new byte[SnappyCodec.maxCompressedLength(data.length)];
+            length = SnappyCodec.compress(data, compressed);
+        } else {
+            Deflater deflater = deflaters.get();
+            try {
+                deflater.setInput(data);
+                deflater.finish();
+                // data that does not shrink is not compressed
+                compressed = new byte[data.length];
+                length = deflater.deflate(compressed);
+                if (!deflater.finished()) {
+                    return null;
+                }
+            } finally {
+                deflater.reset();
+            }
+        }
+        if (header.length() + 4 + length >= source.length()) {
+            return null;
+        }
+        return header.appendInt(data.length).appendBytes(compressed, 0, length);
+    }
+
+    /**
+     * Decompresses {@link RpcProtocol#FRAME_COMPRESSED} frame.
+     *
+     * @param maxLength maximum length of enclosed frame that is checked before it is allocated
+     * @return enclosed frame
+     */
+    static Buffer decompressCall(Buffer frame, int maxLength) {
+        return decompress(CODECS[frame.getByte(1)], frame, 2, maxLength);
+    }
+
+    /**
+     * Decompresses results of reply to reply channel with {@link RpcProtocol#REPLY_COMPRESSED} status.
+     *
+     * @param maxLength maximum length of results that is checked before they are allocated
+     * @return serialized results
+     */
+    static Buffer decompressChannelReply(Buffer reply, int maxLength) {
+        return decompress(CODECS[reply.getByte(9)], reply, 10, maxLength);
+    }
+
+    /**
+     * Decompresses reply to message with {@link RpcProtocol#HEADER_ENCODING} header.
+     *
+     * @param encoding  value of the header
+     * @param maxLength maximum length of results that is checked before they are allocated
+     */
+    static Buffer decompressReply(String encoding, Buffer reply, int maxLength) {
+        return decompress(Compression.Codec.valueOf(encoding), reply, 0, maxLength);
+    }
+
+    private static Buffer decompress(Compression.Codec codec, Buffer buffer, int offset, int maxLength) {
+        int length = buffer.getInt(offset);
+        if (length < 0) {
+            throw new IllegalStateException("Compressed message is corrupted");
+        }
+        if (length > maxLength) {
+            throw new IllegalStateException(String.format("Message of %d bytes exceeds maximum size %d", length,
+                    maxLength));
+        }
+        byte[] compressed = buffer.getBytes(offset + 4, buffer.length());
+        byte[] data = new byte[length];
+        if (codec == Compression.Codec.SNAPPY) {
+            if (SnappyCodec.uncompress(compressed, data) != length) {
+                throw new IllegalStateException("Compressed message is corrupted");
+            }
+        } else if (codec == Compression.Codec.DEFLATE) {
+            Inflater inflater = inflaters.get();
+            try {
+                inflater.setInput(compressed);
+                if (inflater.inflate(data) != length || !inflater.finished()) {
+                    throw new IllegalStateException("Compressed message is corrupted");
+                }
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("Compressed message is corrupted", e);
+            } finally {
+                inflater.reset();
+            }
+        } else {
+            throw new IllegalStateException("Unknown compression " + codec);
+        }
+        return Buffer.buffer(data);
+    }
+
+    /**
+     * Calls of optional Snappy library, the class is loaded only when the library is available.
+     */
+    private static final class SnappyCodec {
+        static int maxCompressedLength(int length) {
+            return org.iq80.snappy.Snappy.maxCompressedLength(length);
+        }
+
+        static int compress(byte[] data, byte[] compressed) {
+            return org.iq80.snappy.Snappy.compress(data, 0, data.length, compressed, 0);
+        }
+
+        static int uncompress(byte[] compressed, byte[] data) {
+            return org.iq80.snappy.Snappy.uncompress(compressed, 0, compressed.length, data, 0);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.xored.vertx.typed.rpc;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.MessageConsumer;
+
+/**
+ * Pauses service consumer while all its servers have maximum number of calls in flight instead of rejecting calls
+ * above the limit. Messages received by paused consumer are buffered by EventBus up to
+ * {@link MessageConsumer#setMaxBufferedMessages(int) limit}.
+ *
+ * @author Konstantin Zaitsev
+ */
+final class ConsumerFlow {
+    private final MessageConsumer<?> consumer;
+    private final ServiceServer[] servers;
+    private volatile boolean paused;
+    private volatile Context context;
+
+    private ConsumerFlow(MessageConsumer<?> consumer, ServiceServer[] servers) {
+        this.consumer = consumer;
+        this.servers = servers;
+    }
+
+    /**
+     * Pauses consumer instead of rejecting calls when all specified servers are overloaded.
+     */
+    static void attach(MessageConsumer<?> consumer, ServiceServer... servers) {
+        ConsumerFlow flow = new ConsumerFlow(consumer, servers);
+        for (ServiceServer server : servers) {
+            server.setFlow(flow);
+        }
+    }
+
+    /**
+     * Pauses consumer if all servers are overloaded, it is called on the context of consumer once message is passed
+     * to server.
+     */
+    void pauseIfOverloaded() {
+        if (paused || !isOverloaded()) {
+            return;
+        }
+        Context current = Vertx.currentContext();
+        if (current == null) {
+            return;
+        }
+        context = current;
+        paused = true;
+        consumer.pause();
+        // call may be completed before consumer is paused
+        resume();
+    }
+
+    /**
+     * Resumes paused consumer once some server is not overloaded, it is called by any thread when call is completed.
+     */
+    void resumeIfAccepting() {
+        if (paused) {
+            context.runOnContext(v -> resume());
+        }
+    }
+
+    private void resume() {
+        if (paused && !isOverloaded()) {
+            paused = false;
+            consumer.resume();
+        }
+    }
+
+    private boolean isOverloaded() {
+        for (ServiceServer server : servers) {
+            if (!server.isOverloaded()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
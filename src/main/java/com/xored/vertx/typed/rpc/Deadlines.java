@@ -0,0 +1,24 @@
+package com.xored.vertx.typed.rpc;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared hashed wheel timer of call deadlines. Scheduling and cancellation take constant time and allocate single
+ * timeout object, so it is cheaper than Vert.x timer per call. Tasks are run on the timer thread.
+ *
+ * @author Konstantin Zaitsev
+ */
+final class Deadlines {
+    private static final HashedWheelTimer timer = new HashedWheelTimer(
+            new DefaultThreadFactory("typed-rpc-deadlines", true), 10, TimeUnit.MILLISECONDS, 1024);
+
+    private Deadlines() {
+    }
+
+    static io.netty.util.Timeout schedule(long timeout, Runnable task) {
+        return timer.newTimeout(t -> task.run(), timeout, TimeUnit.MILLISECONDS);
+    }
+}
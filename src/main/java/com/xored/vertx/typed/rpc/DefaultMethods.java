@@ -0,0 +1,68 @@
+package com.xored.vertx.typed.rpc;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Invokes default methods of service interface on proxy, method handles are created once per method.
+ *
+ * @author Konstantin Zaitsev
+ */
+final class DefaultMethods {
+    // since Java 9 lookup with private access is created by public API
+    private static final Method PRIVATE_LOOKUP_IN = privateLookupIn();
+
+    private final ConcurrentMap<Method, MethodHandle> handles = new ConcurrentHashMap<>();
+
+    /**
+     * Invokes default method on proxy.
+     *
+     * @param method default method of proxy interface
+     * @param args   arguments of the call or <code>null</code> if method has no parameters
+     * @return result of the method
+     */
+    Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        MethodHandle handle = handles.computeIfAbsent(method, DefaultMethods::handle);
+        return handle.bindTo(proxy).invokeWithArguments(args != null ? args : new Object[0]);
+    }
+
+    /**
+     * @return handle of default method that is invoked with arguments as they are passed to proxy
+     */
+    private static MethodHandle handle(Method method) {
+        Class<?> declaringClass = method.getDeclaringClass();
+        try {
+            MethodHandle handle;
+            if (PRIVATE_LOOKUP_IN != null) {
+                MethodHandles.Lookup lookup = (MethodHandles.Lookup) PRIVATE_LOOKUP_IN.invoke(null, declaringClass,
+                        MethodHandles.lookup());
+                handle = lookup.findSpecial(declaringClass, method.getName(),
+                        MethodType.methodType(method.getReturnType(), method.getParameterTypes()), declaringClass);
+            } else {
+                // Java 8 has no public API to create lookup with private access to interface
+                Constructor<MethodHandles.Lookup> constructor = MethodHandles.Lookup.class.getDeclaredConstructor(
+                        Class.class, int.class);
+                constructor.setAccessible(true);
+                handle = constructor.newInstance(declaringClass, MethodHandles.Lookup.PRIVATE).unreflectSpecial(
+                        method, declaringClass);
+            }
+            // proxy passes varargs as array
+            return handle.asFixedArity();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(String.format("Cannot invoke default method %s", method), e);
+        }
+    }
+
+    private static Method privateLookupIn() {
+        try {
+            return MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.xored.vertx.typed.rpc;
+
+/**
+ * Choice of service instance that handles the next message when service is registered with several instances.
+ *
+ * @author Konstantin Zaitsev
+ * @see EventBusServiceFactory#registerServer(io.vertx.core.Vertx, java.util.function.Supplier, int)
+ */
+public enum DispatchPolicy {
+    /**
+     * Messages are passed to instances in turn.
+     */
+    ROUND_ROBIN,
+
+    /**
+     * Message is passed to instance with the least number of in flight calls, instances with equal load are chosen in
+     * turn.
+     */
+    LEAST_IN_FLIGHT
+}
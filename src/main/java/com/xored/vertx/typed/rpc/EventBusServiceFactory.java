@@ -1,27 +1,19 @@
 package com.xored.vertx.typed.rpc;
 
-import com.esotericsoftware.kryo.Kryo;
-import com.esotericsoftware.kryo.Kryo.DefaultInstantiatorStrategy;
-import com.esotericsoftware.kryo.Registration;
-import com.esotericsoftware.kryo.io.Input;
-import com.esotericsoftware.kryo.io.Output;
-import com.esotericsoftware.kryo.serializers.MapSerializer;
+import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
-import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.EventBus;
-import io.vertx.core.eventbus.Message;
 import io.vertx.core.eventbus.MessageConsumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 /**
  * Factory to create client and server service for RPC communication.
@@ -30,22 +22,6 @@ import java.util.concurrent.CompletableFuture;
  */
 public class EventBusServiceFactory {
     private static final Logger log = LoggerFactory.getLogger(EventBusServiceFactory.class);
-    private static final String HEADER_METHOD_NAME = "method";
-
-    private static final ThreadLocal<Kryo> kryos = new ThreadLocal<Kryo>() {
-        @SuppressWarnings("rawtypes")
-        @Override
-        protected Kryo initialValue() {
-            Kryo kryo = new Kryo();
-            kryo.register(Map.class, new MapSerializer() {
-                protected Map create(Kryo kryo, Input input, java.lang.Class<Map> type) {
-                    return new HashMap();
-                }
-            });
-            kryo.setInstantiatorStrategy(new DefaultInstantiatorStrategy(new ListInstantiatorStrategy()));
-            return kryo;
-        }
-    };
 
     /**
      * Creates proxy client that invokes appropriate method of RPC service.
@@ -55,66 +31,124 @@ public class EventBusServiceFactory {
      * 
      * @return proxy client of interface that use EventBus for communication. 
      */
-    @SuppressWarnings("ThrowableResultOfMethodCallIgnored")
     public static <T> T createClient(EventBus eventBus, Class<T> iface) {
-        EventBusService service = getEventBusServiceInterface(iface).getAnnotation(EventBusService.class);
-        if (service == null) {
-            throw new RuntimeException("Interface should has EventBusService annotiation.");
-        }
+        return createClient(eventBus, iface, new EventBusServiceOptions());
+    }
 
-        String address = service.value();
+    /**
+     * Creates proxy client that invokes appropriate method of RPC service.
+     * 
+     * @param eventBus EventBus instance
+     * @param iface    RPC service interface that marked with {@link EventBusService} annotation.
+     * @param options  client options
+     * 
+     * @return proxy client of interface that use EventBus for communication. 
+     */
+    public static <T> T createClient(EventBus eventBus, Class<T> iface, EventBusServiceOptions options) {
+        ServiceClient client = serviceClient(eventBus, iface, options);
+        if (options.isUseGeneratedStubs()) {
+            AbstractEventBusServiceClient generated = GeneratedStubs.newInstance(iface, GeneratedStubs.CLIENT_SUFFIX,
+                    AbstractEventBusServiceClient.class);
+            if (generated != null) {
+                generated.bind(client);
+                return iface.cast(generated);
+            }
+        }
 
         @SuppressWarnings("unchecked")
         T instance = (T) Proxy.newProxyInstance(iface.getClassLoader(), new Class[] { iface },
-                (proxy, method, args) -> {
-                    String methodName = method.getName();
-                    Class<?>[] classes = method.getParameterTypes();
-                    DeliveryOptions options = new DeliveryOptions().addHeader(HEADER_METHOD_NAME, methodName);
-                    Buffer buffer = null;
-
-                    if (classes.length > 0) {
-                        buffer = writeObjects(args);
-                    }
-                    if (method.getReturnType() == void.class) {
-                        if (method.getAnnotation(Publish.class) != null) {
-                            eventBus.publish(address, buffer, options);
-                        } else {
-                            eventBus.send(address, buffer, options);
-                        }
-                        return null;
-                    } else {
-                        Class<?> returnType = method.getReturnType();
-                        if (returnType.isAssignableFrom(CompletableFuture.class)) {
-                            CompletableFuture<Object> result = new CompletableFuture<>();
-                            eventBus.<Buffer>send(address, buffer, options, r -> {
-                                if (r.failed()) {
-                                    result.completeExceptionally(r.cause());
-                                    return;
-                                }
-                                Message<Buffer> msg = r.result();
-
-                                if (msg != null) {
-                                    Buffer buf = msg.body();
-                                    Registration clazz = kryos.get().readClass(new Input(buf.getBytes()));
-
-                                    if (clazz != null && Throwable.class.isAssignableFrom(clazz.getType())) {
-                                        result.completeExceptionally(
-                                                (Throwable) kryos.get().readClassAndObject(new Input(buf.getBytes())));
-                                    } else {
-                                        result.complete(readObject(msg.body()));
-                                    }
-                                } else {
-                                    result.complete(null);
-                                }
-                            });
-                            return result;
-                        }
-                        throw new RuntimeException("EventBusService support only CompletableFuture returns");
-                    }
-                });
+                new ClientHandler(client, iface));
         return instance;
     }
 
+    /**
+     * Closes client created by {@link #createClient}: unregisters its consumer of evictions of cached results that
+     * are published by other clients and clears results it has cached. Client that is used after it is closed
+     * registers the consumer again.
+     *
+     * @param client proxy or generated client of RPC service
+     */
+    public static void closeClient(Object client) {
+        if (client instanceof AbstractEventBusServiceClient) {
+            ((AbstractEventBusServiceClient) client).serviceClient().close();
+        } else if (client != null && Proxy.isProxyClass(client.getClass())
+                && Proxy.getInvocationHandler(client) instanceof ClientHandler) {
+            ((ClientHandler) Proxy.getInvocationHandler(client)).client.close();
+        } else {
+            throw new IllegalArgumentException(String.format("%s is not client of RPC service", client));
+        }
+    }
+
+    /**
+     * Creates pipeline that queues calls of RPC service and sends them as single message when it is flushed.
+     * 
+     * @param eventBus EventBus instance
+     * @param iface    RPC service interface that marked with {@link EventBusService} annotation.
+     * 
+     * @return pipeline of calls that use EventBus for communication.
+     */
+    public static <T> CallPipeline<T> createPipeline(EventBus eventBus, Class<T> iface) {
+        return createPipeline(eventBus, iface, new EventBusServiceOptions());
+    }
+
+    /**
+     * Creates pipeline that queues calls of RPC service and sends them as single message when it is flushed.
+     * 
+     * @param eventBus EventBus instance
+     * @param iface    RPC service interface that marked with {@link EventBusService} annotation.
+     * @param options  client options
+     * 
+     * @return pipeline of calls that use EventBus for communication.
+     */
+    public static <T> CallPipeline<T> createPipeline(EventBus eventBus, Class<T> iface,
+            EventBusServiceOptions options) {
+        return new CallPipeline<>(serviceClient(eventBus, iface, options), iface);
+    }
+
+    /**
+     * Invocation handler of proxy client.
+     */
+    private static final class ClientHandler implements InvocationHandler {
+        private final ServiceClient client;
+        private final Class<?> iface;
+        private final DefaultMethods defaultMethods = new DefaultMethods();
+
+        ClientHandler(ServiceClient client, Class<?> iface) {
+            this.client = client;
+            this.iface = iface;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            ClientMethod clientMethod = client.method(method);
+            if (clientMethod != null) {
+                return client.invoke(clientMethod, args);
+            }
+            switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return iface.getSimpleName() + "[" + client.getAddress() + "]";
+            default:
+                if (method.isDefault()) {
+                    return defaultMethods.invoke(proxy, method, args);
+                }
+                throw new UnsupportedOperationException(method.toString());
+            }
+        }
+    }
+
+    private static ServiceClient serviceClient(EventBus eventBus, Class<?> iface, EventBusServiceOptions options) {
+        Class<?> serviceInterface = getEventBusServiceInterface(iface);
+        EventBusService service = serviceInterface.getAnnotation(EventBusService.class);
+        if (service == null) {
+            throw new RuntimeException("Interface should has EventBusService annotiation.");
+        }
+        return new ServiceClient(eventBus, serviceInterface, service.value(), options);
+    }
+
     /**
      * Registers RPC service in Vertx EventBus.
      * 
@@ -124,56 +158,157 @@ public class EventBusServiceFactory {
      * @return EventBus message consumer that can be used to unregister service.
      */
     public static <T> MessageConsumer<Buffer> registerServer(EventBus eventBus, T serverHandler) {
-        log.debug("Register EventBus Service: {}", serverHandler.getClass().getName());
-        HashMap<String, Method> methods = new HashMap<>();
+        return registerServer(eventBus, serverHandler, new EventBusServiceOptions());
+    }
 
+    /**
+     * Registers RPC service in Vertx EventBus.
+     * 
+     * @param eventBus      EventBus instance
+     * @param serverHandler RPC service implementation
+     * @param options       server options
+     *  
+     * @return EventBus message consumer that can be used to unregister service, dedicated executors of methods
+     *         are shut down once it is unregistered.
+     */
+    public static <T> MessageConsumer<Buffer> registerServer(EventBus eventBus, T serverHandler,
+            EventBusServiceOptions options) {
+        log.debug("Register EventBus Service: {}", serverHandler.getClass().getName());
         Class<?> serviceInterface = getEventBusServiceInterface(serverHandler.getClass());
         EventBusService serviceAnnotation = serviceInterface.getAnnotation(EventBusService.class);
         String address = serviceAnnotation.value();
-        for (Method method : serviceInterface.getDeclaredMethods()) {
-            method.setAccessible(true);
-            methods.put(method.getName(), method);
+        KryoSerializer serializer = new KryoSerializer(options, serviceInterface);
+        List<ServerMethod> methods = createServerMethods(serviceInterface, serializer, options);
+        ServiceServer server = new ServiceServer(eventBus, serverHandler, serviceInterface, methods, serializer,
+                options);
+        LocalMessageCodec.register(eventBus);
+        MessageConsumer<Object> consumer = eventBus.consumer(address);
+        if (options.isPauseOnOverload()) {
+            ConsumerFlow.attach(consumer, server);
         }
-        MessageConsumer<Buffer> consumer = eventBus.<Buffer>consumer(address);
-        consumer.handler(r -> {
-            try {
-                String methodName = r.headers().get(HEADER_METHOD_NAME);
-                if (!methods.containsKey(methodName)) {
-                    String msg = String.format("Method %s not found", methodName);
-                    log.error(msg);
-                    r.fail(1, msg);
-                    return;
-                }
+        consumer.handler(server::handle);
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        MessageConsumer<Buffer> result = (MessageConsumer) consumer;
+        // executors of methods are shut down once service is unregistered
+        return new ServiceConsumer<>(result, () -> MethodExecutor.close(methods));
+    }
+
+    /**
+     * Registers RPC service with several instances that are invoked on their own event loops behind the same
+     * address, so CPU bound service is not limited by single event loop thread.
+     *
+     * @param vertx          Vertx instance
+     * @param serverHandlers factory of RPC service implementations, it is called once per instance
+     * @param instances      number of instances, it should not exceed number of event loops
+     *
+     * @return registered service that can be used to unregister it or to inspect load of instances.
+     */
+    public static <T> ServiceInstances registerServer(Vertx vertx, Supplier<T> serverHandlers, int instances) {
+        return registerServer(vertx, serverHandlers, instances, new EventBusServiceOptions());
+    }
+
+    /**
+     * Registers RPC service with several instances that are invoked on their own event loops behind the same
+     * address, so CPU bound service is not limited by single event loop thread. Messages are received by single
+     * consumer and passed to instances according to {@link EventBusServiceOptions#getDispatchPolicy()}. Each
+     * instance runs on context of its own verticle that is undeployed once service is unregistered.
+     *
+     * @param vertx          Vertx instance
+     * @param serverHandlers factory of RPC service implementations, it is called once per instance
+     * @param instances      number of instances, it should not exceed number of event loops
+     * @param options        server options
+     *
+     * @return registered service that can be used to unregister it or to inspect load of instances.
+     */
+    public static <T> ServiceInstances registerServer(Vertx vertx, Supplier<T> serverHandlers, int instances,
+            EventBusServiceOptions options) {
+        if (instances <= 0) {
+            throw new IllegalArgumentException("instances must be > 0");
+        }
+        EventBus eventBus = vertx.eventBus();
+        ServiceServer[] servers = new ServiceServer[instances];
+        Class<?> serviceInterface = null;
+        List<ServerMethod> methods = null;
+        KryoSerializer serializer = null;
+        for (int i = 0; i < instances; i++) {
+            T serverHandler = serverHandlers.get();
+            if (serviceInterface == null) {
+                log.debug("Register EventBus Service: {} x {}", serverHandler.getClass().getName(), instances);
+                serviceInterface = getEventBusServiceInterface(serverHandler.getClass());
+                // methods, their executors and Kryo pool are shared by instances
+                serializer = new KryoSerializer(options, serviceInterface);
+                methods = createServerMethods(serviceInterface, serializer, options);
+            }
+            servers[i] = new ServiceServer(eventBus, serverHandler, serviceInterface, methods, serializer, options);
+        }
+        LocalMessageCodec.register(eventBus);
+        MessageConsumer<Object> consumer = eventBus.consumer(serviceInterface.getAnnotation(EventBusService.class)
+                .value());
+        if (options.isPauseOnOverload()) {
+            ConsumerFlow.attach(consumer, servers);
+        }
+        List<ServerMethod> shared = methods;
+        return new ServiceInstances(vertx, servers, options.getDispatchPolicy(), consumer,
+                () -> MethodExecutor.close(shared));
+    }
 
-                Method method = methods.get(methodName);
-                Object result = null;
-
-                try {
-                    if (method.getParameterTypes().length == 0) {
-                        result = method.invoke(serverHandler);
-                    } else {
-                        Object[] objects = readObjects(r.body(), method.getParameterTypes().length);
-                        result = method.invoke(serverHandler, objects);
-                    }
-
-                    if (method.getReturnType().isAssignableFrom(CompletableFuture.class)) {
-                        ((CompletableFuture<?>) result).whenComplete((msg, e) -> {
-                            if (e != null) {
-                                r.reply(writeObject(e));
-                            } else {
-                                r.reply(writeObject(msg));
-                            }
-                        });
-                    }
-                } catch (InvocationTargetException ex) {
-                    r.reply(writeObject(ex.getTargetException()));
+    /**
+     * Creates server methods that are invoked by generated dispatcher if it exists or by method handles otherwise.
+     *
+     * @param frames serializer of messages of the server, default codecs of values share its Kryo instances
+     */
+    private static List<ServerMethod> createServerMethods(Class<?> serviceInterface, KryoSerializer frames,
+            EventBusServiceOptions options) {
+        Map<String, Method> methods = ServiceMethods.of(serviceInterface);
+        List<ServerMethod> result = new ArrayList<>();
+        String threadName = "typed-rpc-" + serviceInterface.getSimpleName();
+        MethodExecutor serviceExecutor = MethodExecutor.create(serviceInterface.getAnnotation(Execution.class),
+                threadName);
+        RpcSerializer serializer = options.getSerializer() == RpcSerializer.KRYO ? frames
+                : options.getSerializer().create(serviceInterface, options);
+
+        AbstractEventBusServiceDispatcher dispatcher = null;
+        if (options.isUseGeneratedStubs()) {
+            dispatcher = GeneratedStubs.newInstance(serviceInterface, GeneratedStubs.DISPATCHER_SUFFIX,
+                    AbstractEventBusServiceDispatcher.class);
+        }
+        if (dispatcher != null) {
+            final AbstractEventBusServiceDispatcher generated = dispatcher;
+            String[] signatures = generated.getSignatures();
+            for (int i = 0; i < signatures.length; i++) {
+                Method method = methods.remove(signatures[i]);
+                if (method == null) {
+                    throw new IllegalStateException(String.format("%s has no method %s, regenerate %s",
+                            serviceInterface.getName(), signatures[i], generated.getClass().getName()));
                 }
-            } catch (Throwable e) {
-                log.error(e.getMessage(), e);
-                r.fail(-1, e.getMessage());
+                final int index = i;
+                result.add(ServerMethod.create(method, (target, args) -> generated.invoke(index, target, args),
+                        serializer, GraphLimits.create(method, serviceInterface, options),
+                        executor(method, serviceExecutor, threadName), metrics(method, serviceInterface, options),
+                        Compressor.create(method, serviceInterface, options)));
             }
-        });
-        return consumer;
+        }
+        for (Method method : methods.values()) {
+            result.add(ServerMethod.create(method, serializer, GraphLimits.create(method, serviceInterface, options),
+                    executor(method, serviceExecutor, threadName), metrics(method, serviceInterface, options),
+                    Compressor.create(method, serviceInterface, options)));
+        }
+        return result;
+    }
+
+    /**
+     * @return dedicated executor of method with {@link Execution} annotation or executor of service otherwise
+     */
+    private static MethodExecutor executor(Method method, MethodExecutor serviceExecutor, String threadName) {
+        Execution execution = method.getAnnotation(Execution.class);
+        return execution != null ? MethodExecutor.create(execution, threadName + "-" + method.getName())
+                : serviceExecutor;
+    }
+
+    private static MethodMetrics metrics(Method method, Class<?> serviceInterface, EventBusServiceOptions options) {
+        ServiceMetrics metrics = options.getMetrics();
+        return metrics != null ? metrics.server(serviceInterface.getAnnotation(EventBusService.class).value(),
+                method.getName()) : null;
     }
 
     private static Class<?> getEventBusServiceInterface(Class<?> clazz) {
@@ -190,36 +325,4 @@ public class EventBusServiceFactory {
         }
         throw new RuntimeException(String.format("%s interface has not EventBusService annotation", clazz.getName()));
     }
-
-    private static Object[] readObjects(Buffer buffer, int count) {
-        final Input input = new Input(buffer.getBytes());
-        if (count == 1) {
-            return new Object[] { kryos.get().readClassAndObject(input) };
-        }
-
-        List<Object> result = new ArrayList<>();
-        for (int i = 0; i < count; i++) {
-            result.add(kryos.get().readClassAndObject(input));
-        }
-        return result.toArray(new Object[result.size()]);
-    }
-
-    @SuppressWarnings("unchecked")
-    private static <T> T readObject(Buffer buffer) {
-        return (T) kryos.get().readClassAndObject(new Input(buffer.getBytes()));
-    }
-
-    private static Buffer writeObjects(Object[] objs) {
-        final Output output = new Output(2048, Integer.MAX_VALUE);
-        for (int i = 0; i < objs.length; i++) {
-            kryos.get().writeClassAndObject(output, objs[i]);
-        }
-        return Buffer.buffer(output.toBytes());
-    }
-
-    private static Buffer writeObject(Object objs) {
-        final Output output = new Output(2048, Integer.MAX_VALUE);
-        kryos.get().writeClassAndObject(output, objs);
-        return Buffer.buffer(output.toBytes());
-    }
 }
@@ -0,0 +1,737 @@
+package com.xored.vertx.typed.rpc;
+
+import com.esotericsoftware.kryo.Kryo;
+import io.vertx.core.eventbus.DeliveryOptions;
+
+import java.util.function.Consumer;
+
+/**
+ * Options of RPC client and server created by {@link EventBusServiceFactory}.
+ *
+ * @author Konstantin Zaitsev
+ */
+public class EventBusServiceOptions {
+    /**
+     * The default initial size of serialization buffer = 2048
+     */
+    public static final int DEFAULT_INITIAL_BUFFER_SIZE = 2048;
+
+    /**
+     * The default maximum size of serialized message = {@link Integer#MAX_VALUE}
+     */
+    public static final int DEFAULT_MAX_BUFFER_SIZE = Integer.MAX_VALUE;
+
+    /**
+     * Generated clients and dispatchers are used by default = true
+     */
+    public static final boolean DEFAULT_USE_GENERATED_STUBS = true;
+
+    /**
+     * Methods are identified by compact id by default = false
+     */
+    public static final boolean DEFAULT_METHOD_NAME_HEADER = false;
+
+    /**
+     * Calls are sent immediately by default = false
+     */
+    public static final boolean DEFAULT_BATCHING = false;
+
+    /**
+     * The default time of collecting calls into batch = 0, calls made until the end of current event loop task
+     */
+    public static final long DEFAULT_BATCH_WINDOW = 0;
+
+    /**
+     * The default maximum number of calls in batch = 128
+     */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 128;
+
+    /**
+     * Replies are received by temporary reply consumer per call by default, so calls fail at once when there are no
+     * servers = false
+     */
+    public static final boolean DEFAULT_REPLY_CHANNEL = false;
+
+    /**
+     * The default time of waiting for result = 30000 ms, the same as EventBus send timeout
+     */
+    public static final long DEFAULT_TIMEOUT = DeliveryOptions.DEFAULT_TIMEOUT;
+
+    /**
+     * The default number of stream items sender may send ahead of their handling by receiver = 256
+     */
+    public static final int DEFAULT_STREAM_WINDOW = 256;
+
+    /**
+     * The default maximum number of stream items sent in single message = 64
+     */
+    public static final int DEFAULT_STREAM_CHUNK_SIZE = 64;
+
+    /**
+     * The default time of waiting for stream items that sender is allowed to send = 0, streams wait without timeout
+     */
+    public static final long DEFAULT_STREAM_IDLE_TIMEOUT = 0;
+
+    /**
+     * The default choice of service instance = {@link DispatchPolicy#LEAST_IN_FLIGHT}
+     */
+    public static final DispatchPolicy DEFAULT_DISPATCH_POLICY = DispatchPolicy.LEAST_IN_FLIGHT;
+
+    /**
+     * The default maximum number of calls in flight of service = {@link Integer#MAX_VALUE}
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT = Integer.MAX_VALUE;
+
+    /**
+     * Calls above maximum number of calls in flight are rejected by default = false
+     */
+    public static final boolean DEFAULT_PAUSE_ON_OVERLOAD = false;
+
+    /**
+     * Messages are not compressed by default = {@link Compression.Codec#NONE}
+     */
+    public static final Compression.Codec DEFAULT_COMPRESSION = Compression.Codec.NONE;
+
+    /**
+     * The default minimum size of compressed message in bytes = 1024
+     */
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+
+    /**
+     * Values are serialized by Kryo by default = {@link RpcSerializer#KRYO}
+     */
+    public static final RpcSerializer.Factory DEFAULT_SERIALIZER = RpcSerializer.KRYO;
+
+    /**
+     * The default maximum number of idle Kryo instances of service = twice number of processors
+     */
+    public static final int DEFAULT_KRYO_POOL_SIZE = 2 * Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Kryo tracks references of written objects by default = true
+     */
+    public static final boolean DEFAULT_REFERENCES = true;
+
+    /**
+     * The default maximum depth of read object graphs = {@link Integer#MAX_VALUE}
+     */
+    public static final int DEFAULT_MAX_DEPTH = Integer.MAX_VALUE;
+
+    /**
+     * The default maximum number of elements of read collections = {@link Integer#MAX_VALUE}
+     */
+    public static final int DEFAULT_MAX_COLLECTION_SIZE = Integer.MAX_VALUE;
+
+    /**
+     * The default maximum size of received message in bytes = {@link Integer#MAX_VALUE}
+     */
+    public static final int DEFAULT_MAX_BYTES = Integer.MAX_VALUE;
+
+    private int initialBufferSize = DEFAULT_INITIAL_BUFFER_SIZE;
+    private int maxBufferSize = DEFAULT_MAX_BUFFER_SIZE;
+    private boolean useGeneratedStubs = DEFAULT_USE_GENERATED_STUBS;
+    private boolean methodNameHeader = DEFAULT_METHOD_NAME_HEADER;
+    private Consumer<Kryo> classRegistrar;
+    private boolean batching = DEFAULT_BATCHING;
+    private long batchWindow = DEFAULT_BATCH_WINDOW;
+    private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+    private boolean replyChannel = DEFAULT_REPLY_CHANNEL;
+    private long timeout = DEFAULT_TIMEOUT;
+    private int streamWindow = DEFAULT_STREAM_WINDOW;
+    private int streamChunkSize = DEFAULT_STREAM_CHUNK_SIZE;
+    private long streamIdleTimeout = DEFAULT_STREAM_IDLE_TIMEOUT;
+    private DispatchPolicy dispatchPolicy = DEFAULT_DISPATCH_POLICY;
+    private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+    private boolean pauseOnOverload = DEFAULT_PAUSE_ON_OVERLOAD;
+    private ServiceMetrics metrics;
+    private Compression.Codec compression = DEFAULT_COMPRESSION;
+    private int compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+    private RpcSerializer.Factory serializer = DEFAULT_SERIALIZER;
+    private int kryoPoolSize = DEFAULT_KRYO_POOL_SIZE;
+    private boolean references = DEFAULT_REFERENCES;
+    private int maxDepth = DEFAULT_MAX_DEPTH;
+    private int maxCollectionSize = DEFAULT_MAX_COLLECTION_SIZE;
+    private int maxBytes = DEFAULT_MAX_BYTES;
+
+    /**
+     * Default constructor
+     */
+    public EventBusServiceOptions() {
+    }
+
+    /**
+     * Copy constructor
+     *
+     * @param other the options to copy
+     */
+    public EventBusServiceOptions(EventBusServiceOptions other) {
+        this.initialBufferSize = other.initialBufferSize;
+        this.maxBufferSize = other.maxBufferSize;
+        this.useGeneratedStubs = other.useGeneratedStubs;
+        this.methodNameHeader = other.methodNameHeader;
+        this.classRegistrar = other.classRegistrar;
+        this.batching = other.batching;
+        this.batchWindow = other.batchWindow;
+        this.maxBatchSize = other.maxBatchSize;
+        this.replyChannel = other.replyChannel;
+        this.timeout = other.timeout;
+        this.streamWindow = other.streamWindow;
+        this.streamChunkSize = other.streamChunkSize;
+        this.streamIdleTimeout = other.streamIdleTimeout;
+        this.dispatchPolicy = other.dispatchPolicy;
+        this.maxInFlight = other.maxInFlight;
+        this.pauseOnOverload = other.pauseOnOverload;
+        this.metrics = other.metrics;
+        this.compression = other.compression;
+        this.compressionThreshold = other.compressionThreshold;
+        this.serializer = other.serializer;
+        this.kryoPoolSize = other.kryoPoolSize;
+        this.references = other.references;
+        this.maxDepth = other.maxDepth;
+        this.maxCollectionSize = other.maxCollectionSize;
+        this.maxBytes = other.maxBytes;
+    }
+
+    /**
+     * @return initial size of serialization buffer in bytes
+     */
+    public int getInitialBufferSize() {
+        return initialBufferSize;
+    }
+
+    /**
+     * Sets initial size of serialization buffer. Services that exchange large messages should use size close to
+     * typical message size to avoid buffer resizing while serialization.
+     *
+     * @param initialBufferSize initial size in bytes
+     * @return a reference to this, so the API can be used fluently
+     */
+    public EventBusServiceOptions setInitialBufferSize(int initialBufferSize) {
+        if (initialBufferSize <= 0) {
+            throw new IllegalArgumentException("initialBufferSize must be > 0");
+        }
+        this.initialBufferSize = initialBufferSize;
+        return this;
+    }
+
+    /**
+     * @return maximum size of serialized message in bytes
+     */
+    public int getMaxBufferSize() {
+        return maxBufferSize;
+    }
+
+    /**
+     * Sets maximum size of serialized message. Serialization of larger message fails.
+     *
+     * @param maxBufferSize maximum size in bytes
+     * @return a reference to this, so the API can be used fluently
+     */
+    public EventBusServiceOptions setMaxBufferSize(int maxBufferSize) {
+        if (maxBufferSize <= 0) {
+            throw new IllegalArgumentException("maxBufferSize must be > 0");
+        }
+        this.maxBufferSize = maxBufferSize;
+        return this;
+    }
+
+    /**
+     * @return whether clients and dispatchers generated by {@link EventBusServiceProcessor} are used
+     */
+    public boolean isUseGeneratedStubs() {
+        return useGeneratedStubs;
+    }
+
+    /**
+     * Sets whether clients and dispatchers generated by {@link EventBusServiceProcessor} are used when they are
+     * available. Otherwise {@link java.lang.reflect.Proxy} client and method handles dispatcher are used.
+     *
+     * @param useGeneratedStubs use generated classes
+     * @return a reference to this, so the API can be used fluently
+     */
+    public EventBusServiceOptions setUseGeneratedStubs(boolean useGeneratedStubs) {
+        this.useGeneratedStubs = useGeneratedStubs;
+        return this;
+    }
+
+    /**
+     * @return whether client passes method name in header as previous versions did
+     */
+    public boolean isMethodNameHeader() {
+        return methodNameHeader;
+    }
+
+    /**
+     * Sets whether client passes method name in header instead of compact method id. Client switches to method name
+     * header automatically when server of previous version rejects its first request, but one way calls get no
+     * reply, so clients that only send or publish to such servers should enable it explicitly.
+     *
+     * @param methodNameHeader pass method name in header
+     * @return a reference to this, so the API can be used fluently
+     */
+    public EventBusServiceOptions setMethodNameHeader(boolean methodNameHeader) {
+        this.methodNameHeader = methodNameHeader;
+        return this;
+    }
+
+    /**
+     * @return user registrar of Kryo classes or <code>null</code>
+     */
+    public Consumer<Kryo> getClassRegistrar() {
+        return classRegistrar;
+    }
+
+    /**
+     * Sets registrar that is called for each Kryo instance of the service after registration of classes used by
+     * service methods. It can register classes that are not visible from method signatures, e.g. bean field types or
+     * subclasses, and custom serializers. Client and server should use the same registrations; explicit ids should
+     * be below {@value KryoRegistrations#FIRST_ID}.
+     *
+     * @param classRegistrar registrar of Kryo classes
+     * @return a reference to this, so the API can be used fluently
+     */
+    public EventBusServiceOptions setClassRegistrar(Consumer<Kryo> classRegistrar) {
+        this.classRegistrar = classRegistrar;
+        return this;
+    }
+
+    /**
+     * @return whether client collects calls into batches
+     */
+    public boolean isBatching() {
+        return batching;
+    }
+
+    /**
+     * Sets whether client collects calls made within {@link #setBatchWindow batch window} into single EventBus
+     * message. Server replies to batch once all its calls are completed, so slow calls delay results of other calls
+     * of the same batch. Only calls made on Vert.x context are collected, {@link Local} calls are sent immediately and
+     * {@link Publish} calls are collected into separate batch that is published to all servers.
+     *
+     * @param batching collect calls into batches
+     * @return a reference to this, so the API can be used fluently
+     */
+    public EventBusServiceOptions setBatching(boolean batching) {
+        this.batching = batching;
+        return this;
+    }
+
+    /**
+     * @return time of collecting calls into batch in milliseconds
+     */
+    public long getBatchWindow() {
+        return batchWindow;
+    }
+
+    /**
+     * Sets time of collecting calls into batch since the first call. Zero window sends batch when the current task of
+     * Vert.x context is completed.
+     *
+     * @param batchWindow time in milliseconds
+     * @return a reference to this, so the API can be used fluently
+     */
+    public EventBusServiceOptions setBatchWindow(long batchWindow) {
+        if (batchWindow < 0) {
+            throw new IllegalArgumentException("batchWindow must be >= 0");
+        }
+        this.batchWindow = batchWindow;
+        return this;
+    }
+
+    /**
+     * @return maximum number of calls in batch
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Sets maximum number of calls in batch. Batch is sent immediately when it is reached.
+     *
+     * @param maxBatchSize maximum number of calls
+     * @return a reference to this, so the API can be used fluently
+     */
+    public EventBusServiceOptions setMaxBatchSize(int maxBatchSize) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be > 0");
+        }
+        this.maxBatchSize = maxBatchSize;
+        return this;
+    }
+
+    /**
+     * @return whether client receives replies by shared reply channel
+     */
+    public boolean isReplyChannel() {
+        return replyChannel;
+    }
+
+    /**
+     * Sets whether client receives replies by reply address that is registered once per EventBus instead of
+     * temporary reply consumer per call. Client switches to it after the first successful call, so servers of
+     * previous versions are still supported. Calls with reply channel are not failed immediately when there are no
+     * servers, they fail by timeout.
+     *
+     * @param replyChannel use shared reply channel
+     * @return a reference to this, so the API can be used fluently
+     */
+    public EventBusServiceOptions setReplyChannel(boolean replyChannel) {
+        this.replyChannel = replyChannel;
+        return this;
+    }
+
+    /**
+     * @return time of waiting for result in milliseconds
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Sets time of waiting for result of methods without {@link Timeout} annotation. Calls that are not replied in
+     * time are completed with {@link EventBusServiceTimeoutException}.
+     *
+     * @param timeout time in milliseconds
+     * @return a reference to this, so the API can be used fluently
+     */
+    public EventBusServiceOptions setTimeout(long timeout) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("timeout must be > 0");
+        }
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * @return number of stream items sender may send ahead of their handling by receiver
+     */
+    public int getStreamWindow() {
+        return streamWindow;
+    }
+
+    /**
+     * Sets number of items of {@link io.vertx.core.streams.ReadStream} result or argument that sender may send before
+     * receiver handles them. Receiver grants more items as it handles half of the window, paused stream stops sender
+     * once the window is exhausted, so it also limits memory used by unhandled items.
+     *
+     * @param streamWindow number of items
+     * @return a reference to this, so the API can be used fluently
+     */
+    public EventBusServiceOptions setStreamWindow(int streamWindow) {
+        if (streamWindow <= 0) {
+            throw new IllegalArgumentException("streamWindow must be > 0");
+        }
+        this.streamWindow = streamWindow;
+        return this;
+    }
+
+    /**
+     * @return maximum number of stream items sent in single message
+     */
+    public int getStreamChunkSize() {
+        return streamChunkSize;
+    }
+
+    /**
+     * Sets maximum number of items of {@link io.vertx.core.streams.ReadStream} result or argument that are sent in
+     * single EventBus message. Incomplete chunk is sent at the end of current event loop task.
+     *
+     * @param streamChunkSize maximum number of items
+     * @return a reference to this, so the API can be used fluently
+     */
+    public EventBusServiceOptions setStreamChunkSize(int streamChunkSize) {
+        if (streamChunkSize <= 0) {
+            throw new IllegalArgumentException("streamChunkSize must be > 0");
+        }
+        this.streamChunkSize = streamChunkSize;
+        return this;
+    }
+
+    /**
+     * @return time of waiting for stream items in milliseconds or 0 if streams wait without timeout
+     */
+    public long getStreamIdleTimeout() {
+        return streamIdleTimeout;
+    }
+
+    /**
+     * Sets time of waiting for items of {@link io.vertx.core.streams.ReadStream} result or argument while sender has
+     * credit to send them. Stream fails with {@link EventBusServiceTimeoutException} and sender is cancelled if no
+     * items are received in time, e.g. because sender is gone. Paused stream with exhausted window is not timed out.
+     *
+     * @param streamIdleTimeout timeout in milliseconds or 0 to wait without timeout
+     * @return a reference to this, so the API can be used fluently
+     */
+    public EventBusServiceOptions setStreamIdleTimeout(long streamIdleTimeout) {
+        if (streamIdleTimeout < 0) {
+            throw new IllegalArgumentException("streamIdleTimeout must be >= 0");
+        }
+        this.streamIdleTimeout = streamIdleTimeout;
+        return this;
+    }
+
+    /**
+     * @return choice of service instance that handles the next message
+     */
+    public DispatchPolicy getDispatchPolicy() {
+        return dispatchPolicy;
+    }
+
+    /**
+     * Sets choice of service instance that handles the next message when service is registered with several
+     * instances by {@link EventBusServiceFactory#registerServer(io.vertx.core.Vertx, java.util.function.Supplier,
+     * int, EventBusServiceOptions)}.
+     *
+     * @param dispatchPolicy choice of service instance
+     * @return a reference to this, so the API can be used fluently
+     */
+    public EventBusServiceOptions setDispatchPolicy(DispatchPolicy dispatchPolicy) {
+        if (dispatchPolicy == null) {
+            throw new IllegalArgumentException("dispatchPolicy must not be null");
+        }
+        this.dispatchPolicy = dispatchPolicy;
+        return this;
+    }
+
+    /**
+     * @return maximum number of calls in flight of service instance
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Sets maximum number of calls that service instance handles at the same time, service with
+     * {@link MaxInFlight} annotation uses the annotation instead. Calls above it are rejected with
+     * {@link EventBusServiceOverloadedException} unless {@link #setPauseOnOverload pause on overload} is enabled.
+     *
+     * @param maxInFlight maximum number of calls
+     * @return a reference to this, so the API can be used fluently
+     */
+    public EventBusServiceOptions setMaxInFlight(int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be > 0");
+        }
+        this.maxInFlight = maxInFlight;
+        return this;
+    }
+
+    /**
+     * @return whether service consumer is paused instead of rejecting calls above maximum number of calls in flight
+     */
+    public boolean isPauseOnOverload() {
+        return pauseOnOverload;
+    }
+
+    /**
+     * Sets whether service consumer is paused while service has {@link #setMaxInFlight maximum number} of calls in
+     * flight instead of rejecting calls above it. Messages received by paused consumer are buffered by EventBus up to
+     * {@link io.vertx.core.eventbus.MessageConsumer#setMaxBufferedMessages limit} and they are failed by client
+     * timeout rather than rejected. Method limits of {@link MaxInFlight} annotation always reject calls.
+     *
+     * @param pauseOnOverload pause consumer instead of rejecting calls
+     * @return a reference to this, so the API can be used fluently
+     */
+    public EventBusServiceOptions setPauseOnOverload(boolean pauseOnOverload) {
+        this.pauseOnOverload = pauseOnOverload;
+        return this;
+    }
+
+    /**
+     * @return metrics of client or service methods or <code>null</code> if they are not recorded
+     */
+    public ServiceMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets metrics that record calls, errors, calls in flight, latencies and message sizes of each method of client
+     * or service, e.g. {@link HistogramServiceMetrics}. Calls are not recorded by default.
+     *
+     * @param metrics metrics of methods
+     * @return a reference to this, so the API can be used fluently
+     */
+    public EventBusServiceOptions setMetrics(ServiceMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * @return codec of messages that are compressed
+     */
+    public Compression.Codec getCompression() {
+        return compression;
+    }
+
+    /**
+     * Sets codec that compresses calls of client and replies of service which are larger than
+     * {@link #setCompressionThreshold threshold}, service interface or method with {@link Compression} annotation uses
+     * the annotation instead. Compression is negotiated: client compresses calls once server replied that it
+     * understands the codec and server compresses replies to clients that accept the codec, so peers without
+     * compression or of previous versions receive uncompressed messages.
+     *
+     * @param compression codec of messages
+     * @return a reference to this, so the API can be used fluently
+     */
+    public EventBusServiceOptions setCompression(Compression.Codec compression) {
+        if (compression == null) {
+            throw new IllegalArgumentException("compression must not be null");
+        }
+        this.compression = compression;
+        return this;
+    }
+
+    /**
+     * @return minimum size of compressed message in bytes
+     */
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * Sets minimum size of serialized call or reply that is compressed, smaller messages are sent as is.
+     *
+     * @param compressionThreshold minimum size in bytes
+     * @return a reference to this, so the API can be used fluently
+     */
+    public EventBusServiceOptions setCompressionThreshold(int compressionThreshold) {
+        if (compressionThreshold < 0) {
+            throw new IllegalArgumentException("compressionThreshold must be >= 0");
+        }
+        this.compressionThreshold = compressionThreshold;
+        return this;
+    }
+
+    /**
+     * @return factory of serializers of arguments, results and stream items
+     */
+    public RpcSerializer.Factory getSerializer() {
+        return serializer;
+    }
+
+    /**
+     * Sets serialization of arguments, results and stream items of service methods, e.g.
+     * {@link RpcSerializer#POSITIONAL} or {@link RpcSerializer#JSON}. Client and server of the service should use the
+     * same serialization, calls of clients of previous versions are always serialized by Kryo.
+     *
+     * @param serializer factory of serializers that is called once per client or server
+     * @return a reference to this, so the API can be used fluently
+     */
+    public EventBusServiceOptions setSerializer(RpcSerializer.Factory serializer) {
+        if (serializer == null) {
+            throw new IllegalArgumentException("serializer must not be null");
+        }
+        this.serializer = serializer;
+        return this;
+    }
+
+    /**
+     * @return maximum number of idle Kryo instances of service
+     */
+    public int getKryoPoolSize() {
+        return kryoPoolSize;
+    }
+
+    /**
+     * Sets maximum number of idle Kryo instances that are kept by client or server of the service. Instances are
+     * borrowed from the pool once per message by any thread including worker and virtual threads, so the number of
+     * instances depends on concurrency of serialization rather than on number of threads. Instances that are
+     * returned to full pool are dropped.
+     *
+     * @param kryoPoolSize maximum number of idle instances
+     * @return a reference to this, so the API can be used fluently
+     */
+    public EventBusServiceOptions setKryoPoolSize(int kryoPoolSize) {
+        if (kryoPoolSize <= 0) {
+            throw new IllegalArgumentException("kryoPoolSize must be > 0");
+        }
+        this.kryoPoolSize = kryoPoolSize;
+        return this;
+    }
+
+    /**
+     * @return whether Kryo tracks references of written objects
+     */
+    public boolean isReferences() {
+        return references;
+    }
+
+    /**
+     * Sets whether Kryo preserves shared and cyclic references of arguments and results. Services that exchange
+     * trees of objects may turn references off, so identity of every written object is not tracked. Client and server
+     * of the service should use the same setting, methods and interfaces with {@link ObjectGraph} annotation use the
+     * annotation instead.
+     *
+     * @param references whether references are tracked
+     * @return a reference to this, so the API can be used fluently
+     */
+    public EventBusServiceOptions setReferences(boolean references) {
+        this.references = references;
+        return this;
+    }
+
+    /**
+     * @return maximum depth of read object graphs
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Sets maximum depth of nested objects of arguments and results, reading of deeper graphs fails.
+     *
+     * @param maxDepth maximum depth
+     * @return a reference to this, so the API can be used fluently
+     */
+    public EventBusServiceOptions setMaxDepth(int maxDepth) {
+        if (maxDepth <= 0) {
+            throw new IllegalArgumentException("maxDepth must be > 0");
+        }
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    /**
+     * @return maximum number of elements of read collections, maps and arrays
+     */
+    public int getMaxCollectionSize() {
+        return maxCollectionSize;
+    }
+
+    /**
+     * Sets maximum number of elements of collections, maps and arrays of arguments and results. Size is checked
+     * before collection is allocated, so reading of larger collection fails at once.
+     *
+     * @param maxCollectionSize maximum number of elements
+     * @return a reference to this, so the API can be used fluently
+     */
+    public EventBusServiceOptions setMaxCollectionSize(int maxCollectionSize) {
+        if (maxCollectionSize < 0) {
+            throw new IllegalArgumentException("maxCollectionSize must be >= 0");
+        }
+        this.maxCollectionSize = maxCollectionSize;
+        return this;
+    }
+
+    /**
+     * @return maximum size of received call or reply in bytes
+     */
+    public int getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Sets maximum size of received call or reply, larger messages are rejected before they are deserialized or
+     * decompressed. Batches and messages of clients of previous versions are limited by service setting.
+     *
+     * @param maxBytes maximum size in bytes
+     * @return a reference to this, so the API can be used fluently
+     */
+    public EventBusServiceOptions setMaxBytes(int maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be > 0");
+        }
+        this.maxBytes = maxBytes;
+        return this;
+    }
+}
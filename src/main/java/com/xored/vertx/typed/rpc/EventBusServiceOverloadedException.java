@@ -0,0 +1,38 @@
+package com.xored.vertx.typed.rpc;
+
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+
+/**
+ * Failure of RPC call that is rejected by server because service or method has {@link MaxInFlight maximum number} of
+ * calls in flight. It is {@link ReplyException} with {@link ReplyFailure#RECIPIENT_FAILURE} failure type, so it is
+ * handled by code that checks EventBus failures. The call is not invoked, so it can be safely retried later.
+ *
+ * @author Konstantin Zaitsev
+ */
+public class EventBusServiceOverloadedException extends ReplyException {
+    private static final long serialVersionUID = 1L;
+
+    private final String address;
+    private final String method;
+
+    public EventBusServiceOverloadedException(String address, String method, String message) {
+        super(ReplyFailure.RECIPIENT_FAILURE, RpcProtocol.FAILURE_OVERLOADED, message);
+        this.address = address;
+        this.method = method;
+    }
+
+    /**
+     * @return address of the service
+     */
+    public String getAddress() {
+        return address;
+    }
+
+    /**
+     * @return name of the called method
+     */
+    public String getMethod() {
+        return method;
+    }
+}
@@ -0,0 +1,266 @@
+package com.xored.vertx.typed.rpc;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates RPC client and server dispatcher for each interface marked with {@link EventBusService} annotation.
+ * Generated classes call service methods directly and are used by {@link EventBusServiceFactory} instead of
+ * {@link java.lang.reflect.Proxy} client and method handles dispatcher.
+ * <p>
+ * Generic and private interfaces are skipped, they use reflection based implementation.
+ *
+ * @author Konstantin Zaitsev
+ */
+@SupportedAnnotationTypes("com.xored.vertx.typed.rpc.EventBusService")
+public class EventBusServiceProcessor extends AbstractProcessor {
+    private Elements elements;
+    private Types types;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        elements = processingEnv.getElementUtils();
+        types = processingEnv.getTypeUtils();
+
+        for (Element element : roundEnv.getElementsAnnotatedWith(EventBusService.class)) {
+            if (element.getKind() != ElementKind.INTERFACE) {
+                continue;
+            }
+            TypeElement iface = (TypeElement) element;
+            if (!iface.getTypeParameters().isEmpty() || iface.getModifiers().contains(Modifier.PRIVATE)) {
+                processingEnv.getMessager().printMessage(Kind.NOTE,
+                        "Generic and private EventBusService interfaces use reflection based client", iface);
+                continue;
+            }
+            List<ExecutableElement> methods = serviceMethods(iface);
+            try {
+                generateClient(iface, methods);
+                generateDispatcher(iface, methods);
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Kind.ERROR,
+                        "Cannot generate EventBusService classes: " + e.getMessage(), iface);
+            }
+        }
+        return false;
+    }
+
+    private List<ExecutableElement> serviceMethods(TypeElement iface) {
+        List<ExecutableElement> result = new ArrayList<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(iface))) {
+            Set<Modifier> modifiers = method.getModifiers();
+            if (method.getEnclosingElement().getKind() == ElementKind.INTERFACE
+                    && modifiers.contains(Modifier.ABSTRACT) && !modifiers.contains(Modifier.STATIC)) {
+                result.add(method);
+            }
+        }
+        return result;
+    }
+
+    private void generateClient(TypeElement iface, List<ExecutableElement> methods) throws IOException {
+        String name = GeneratedStubs.name(elements.getBinaryName(iface).toString(), GeneratedStubs.CLIENT_SUFFIX);
+        try (PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(name, iface).openWriter())) {
+            writeHeader(out, iface, name);
+            out.printf("public final class %s extends %s implements %s {%n", simpleName(name),
+                    AbstractEventBusServiceClient.class.getCanonicalName(), iface.getQualifiedName());
+            writeSignatures(out, methods);
+            out.printf("    public %s() {%n", simpleName(name));
+            out.println("        super(SIGNATURES);");
+            out.println("    }");
+
+            for (int i = 0; i < methods.size(); i++) {
+                ExecutableElement method = methods.get(i);
+                ExecutableType type = (ExecutableType) types.asMemberOf((DeclaredType) iface.asType(), method);
+                List<? extends TypeMirror> params = type.getParameterTypes();
+
+                out.println();
+                out.println("    @Override");
+                out.print("    public ");
+                writeTypeParameters(out, method);
+                out.printf("%s %s(", type.getReturnType(), method.getSimpleName());
+                for (int j = 0; j < params.size(); j++) {
+                    if (j > 0) {
+                        out.print(", ");
+                    }
+                    if (method.isVarArgs() && j == params.size() - 1) {
+                        out.printf("%s... arg%d", ((ArrayType) params.get(j)).getComponentType(), j);
+                    } else {
+                        out.printf("%s arg%d", params.get(j), j);
+                    }
+                }
+                out.print(")");
+                List<? extends TypeMirror> thrown = type.getThrownTypes();
+                for (int j = 0; j < thrown.size(); j++) {
+                    out.print(j == 0 ? " throws " : ", ");
+                    out.print(thrown.get(j));
+                }
+                out.println(" {");
+
+                StringBuilder args = new StringBuilder();
+                if (params.isEmpty()) {
+                    args.append("NO_ARGS");
+                } else {
+                    args.append("new Object[] { ");
+                    for (int j = 0; j < params.size(); j++) {
+                        args.append(j > 0 ? ", " : "").append("arg").append(j);
+                    }
+                    args.append(" }");
+                }
+                if (type.getReturnType().getKind() == TypeKind.VOID) {
+                    out.printf("        invoke(%d, %s);%n", i, args);
+                } else {
+                    out.printf("        return invoke(%d, %s);%n", i, args);
+                }
+                out.println("    }");
+            }
+            out.println("}");
+        }
+    }
+
+    private void generateDispatcher(TypeElement iface, List<ExecutableElement> methods) throws IOException {
+        String name = GeneratedStubs.name(elements.getBinaryName(iface).toString(),
+                GeneratedStubs.DISPATCHER_SUFFIX);
+        try (PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(name, iface).openWriter())) {
+            writeHeader(out, iface, name);
+            out.printf("public final class %s extends %s {%n", simpleName(name),
+                    AbstractEventBusServiceDispatcher.class.getCanonicalName());
+            writeSignatures(out, methods);
+            out.printf("    public %s() {%n", simpleName(name));
+            out.println("        super(SIGNATURES);");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    @SuppressWarnings({ \"unchecked\", \"rawtypes\" })");
+            out.println("    public Object invoke(int method, Object target, Object[] args) throws Throwable {");
+            out.printf("        %s service = (%s) target;%n", iface.getQualifiedName(), iface.getQualifiedName());
+            out.println("        switch (method) {");
+            for (int i = 0; i < methods.size(); i++) {
+                ExecutableElement method = methods.get(i);
+                ExecutableType type = (ExecutableType) types.asMemberOf((DeclaredType) iface.asType(), method);
+                List<? extends TypeMirror> params = type.getParameterTypes();
+
+                StringBuilder call = new StringBuilder("service.").append(method.getSimpleName()).append('(');
+                for (int j = 0; j < params.size(); j++) {
+                    call.append(j > 0 ? ", " : "").append('(').append(castType(params.get(j))).append(") args[")
+                            .append(j).append(']');
+                }
+                call.append(')');
+
+                out.printf("        case %d:%n", i);
+                if (type.getReturnType().getKind() == TypeKind.VOID) {
+                    out.printf("            %s;%n", call);
+                    out.println("            return null;");
+                } else {
+                    out.printf("            return %s;%n", call);
+                }
+            }
+            out.println("        default:");
+            out.println("            throw new IllegalArgumentException(\"Unknown method index \" + method);");
+            out.println("        }");
+            out.println("    }");
+            out.println("}");
+        }
+    }
+
+    private void writeHeader(PrintWriter out, TypeElement iface, String name) {
+        PackageElement pkg = elements.getPackageOf(iface);
+        if (!pkg.isUnnamed()) {
+            out.printf("package %s;%n%n", pkg.getQualifiedName());
+        }
+        out.printf("/**%n * Generated by %s for {@link %s}.%n */%n", getClass().getName(), iface.getQualifiedName());
+    }
+
+    private void writeSignatures(PrintWriter out, List<ExecutableElement> methods) {
+        out.println("    private static final String[] SIGNATURES = {");
+        for (ExecutableElement method : methods) {
+            out.printf("            \"%s\",%n", signature(method));
+        }
+        out.println("    };");
+        out.println();
+    }
+
+    private void writeTypeParameters(PrintWriter out, ExecutableElement method) {
+        List<? extends TypeParameterElement> params = method.getTypeParameters();
+        if (params.isEmpty()) {
+            return;
+        }
+        out.print("<");
+        for (int i = 0; i < params.size(); i++) {
+            TypeParameterElement param = params.get(i);
+            out.print(i > 0 ? ", " : "");
+            out.print(param.getSimpleName());
+            List<? extends TypeMirror> bounds = param.getBounds();
+            for (int j = 0; j < bounds.size(); j++) {
+                if (bounds.size() == 1 && bounds.get(j).toString().equals(Object.class.getName())) {
+                    break;
+                }
+                out.print(j == 0 ? " extends " : " & ");
+                out.print(bounds.get(j));
+            }
+        }
+        out.print("> ");
+    }
+
+    /**
+     * Returns signature of method in the same form as {@link ServiceMethods#signature(java.lang.reflect.Method)}.
+     */
+    private String signature(ExecutableElement method) {
+        StringBuilder sb = new StringBuilder(method.getSimpleName()).append('(');
+        List<? extends Element> params = method.getParameters();
+        for (int i = 0; i < params.size(); i++) {
+            sb.append(i > 0 ? "," : "").append(binaryName(params.get(i).asType()));
+        }
+        return sb.append(')').toString();
+    }
+
+    private String binaryName(TypeMirror type) {
+        TypeMirror erased = types.erasure(type);
+        switch (erased.getKind()) {
+        case ARRAY:
+            return binaryName(((ArrayType) erased).getComponentType()) + "[]";
+        case DECLARED:
+            return elements.getBinaryName((TypeElement) ((DeclaredType) erased).asElement()).toString();
+        default:
+            return erased.toString();
+        }
+    }
+
+    private String castType(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return types.boxedClass((PrimitiveType) type).getQualifiedName().toString();
+        }
+        return types.erasure(type).toString();
+    }
+
+    private static String simpleName(String qualifiedName) {
+        return qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1);
+    }
+}
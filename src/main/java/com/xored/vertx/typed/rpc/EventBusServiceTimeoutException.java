@@ -0,0 +1,47 @@
+package com.xored.vertx.typed.rpc;
+
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+
+/**
+ * Failure of RPC call that is not replied within {@link Timeout timeout}. It is {@link ReplyException} with
+ * {@link ReplyFailure#TIMEOUT} failure type, so it is handled by code that checks EventBus failures.
+ *
+ * @author Konstantin Zaitsev
+ */
+public class EventBusServiceTimeoutException extends ReplyException {
+    private static final long serialVersionUID = 1L;
+
+    private final String address;
+    private final String method;
+    private final long timeout;
+
+    public EventBusServiceTimeoutException(String address, String method, long timeout) {
+        super(ReplyFailure.TIMEOUT, String.format("Call of %s in %s is timed out after %d ms", method, address,
+                timeout));
+        this.address = address;
+        this.method = method;
+        this.timeout = timeout;
+    }
+
+    /**
+     * @return address of the service
+     */
+    public String getAddress() {
+        return address;
+    }
+
+    /**
+     * @return name of the called method
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * @return timeout in milliseconds
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+}
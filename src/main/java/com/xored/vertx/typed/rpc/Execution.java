@@ -0,0 +1,57 @@
+package com.xored.vertx.typed.rpc;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Threads that invoke service methods on server. Can be specified for service interface or single method, method
+ * annotation has priority. Methods without annotation are invoked on event loop of the service consumer.
+ * <p>
+ * Calls that do not fit into the {@link #queueSize() queue} are completed with
+ * {@link java.util.concurrent.RejectedExecutionException}.
+ *
+ * @author Konstantin Zaitsev
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface Execution {
+    Mode value();
+
+    /**
+     * Maximum number of calls waiting for execution, it is not applied to {@link Mode#EVENT_LOOP} mode.
+     */
+    int queueSize() default 1024;
+
+    /**
+     * Number of threads of {@link Mode#EXECUTOR} mode.
+     */
+    int threads() default 4;
+
+    enum Mode {
+        /**
+         * Methods are invoked on event loop of the service consumer.
+         */
+        EVENT_LOOP,
+
+        /**
+         * Methods are invoked by Vert.x worker pool with {@link io.vertx.core.Context#executeBlocking}, calls are not
+         * ordered.
+         */
+        WORKER,
+
+        /**
+         * Methods are invoked by {@link #threads() fixed number} of threads that are dedicated to service or method
+         * with annotation. Idle threads are stopped.
+         */
+        EXECUTOR,
+
+        /**
+         * Methods are invoked by new virtual thread per call, it requires Java 21 or later.
+         */
+        VIRTUAL_THREAD
+    }
+}
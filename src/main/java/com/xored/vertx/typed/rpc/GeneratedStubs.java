@@ -0,0 +1,38 @@
+package com.xored.vertx.typed.rpc;
+
+/**
+ * Locates classes generated by {@link EventBusServiceProcessor} for service interfaces.
+ *
+ * @author Konstantin Zaitsev
+ */
+final class GeneratedStubs {
+    static final String CLIENT_SUFFIX = "_EventBusClient";
+    static final String DISPATCHER_SUFFIX = "_EventBusDispatcher";
+
+    private GeneratedStubs() {
+    }
+
+    /**
+     * @return qualified name of generated class for interface with specified binary name.
+     */
+    static String name(String binaryName, String suffix) {
+        return binaryName.replace('$', '_') + suffix;
+    }
+
+    /**
+     * @return new instance of generated class or <code>null</code> if class was not generated for interface.
+     */
+    static <T> T newInstance(Class<?> iface, String suffix, Class<T> type) {
+        Class<?> clazz;
+        try {
+            clazz = Class.forName(name(iface.getName(), suffix), true, iface.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+        try {
+            return type.cast(clazz.getDeclaredConstructor().newInstance());
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(String.format("Cannot create %s", clazz.getName()), e);
+        }
+    }
+}
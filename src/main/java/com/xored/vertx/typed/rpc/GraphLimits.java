@@ -0,0 +1,94 @@
+package com.xored.vertx.typed.rpc;
+
+import java.lang.reflect.Method;
+
+/**
+ * Reference tracking and limits of object graphs of service or method that are resolved once according to
+ * {@link ObjectGraph} annotations and options.
+ *
+ * @author Konstantin Zaitsev
+ */
+final class GraphLimits {
+    /**
+     * Kryo defaults that are used for failures, stream ends and messages that are not bound to method.
+     */
+    static final GraphLimits DEFAULT = new GraphLimits(EventBusServiceOptions.DEFAULT_REFERENCES,
+            EventBusServiceOptions.DEFAULT_MAX_DEPTH, EventBusServiceOptions.DEFAULT_MAX_COLLECTION_SIZE,
+            EventBusServiceOptions.DEFAULT_MAX_BYTES);
+
+    final boolean references;
+    final int maxDepth;
+    final int maxCollectionSize;
+    final int maxBytes;
+
+    private GraphLimits(boolean references, int maxDepth, int maxCollectionSize, int maxBytes) {
+        this.references = references;
+        this.maxDepth = maxDepth;
+        this.maxCollectionSize = maxCollectionSize;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Creates limits of method or service according to {@link ObjectGraph} annotation of method, annotation of
+     * service interface or options.
+     *
+     * @param method method or <code>null</code> for limits of service
+     */
+    static GraphLimits create(Method method, Class<?> serviceInterface, EventBusServiceOptions options) {
+        ObjectGraph graph = method != null ? method.getAnnotation(ObjectGraph.class) : null;
+        if (graph == null) {
+            graph = serviceInterface.getAnnotation(ObjectGraph.class);
+        }
+        if (graph == null) {
+            return of(options.isReferences(), options.getMaxDepth(), options.getMaxCollectionSize(),
+                    options.getMaxBytes());
+        }
+        String name = method != null ? method.toString() : serviceInterface.getName();
+        if (graph.maxDepth() <= 0 || graph.maxBytes() <= 0) {
+            throw new IllegalArgumentException(String.format("maxDepth and maxBytes of %s must be > 0", name));
+        }
+        if (graph.maxCollectionSize() < 0) {
+            throw new IllegalArgumentException(String.format("maxCollectionSize of %s must be >= 0", name));
+        }
+        return of(graph.references(), graph.maxDepth(), graph.maxCollectionSize(), graph.maxBytes());
+    }
+
+    private static GraphLimits of(boolean references, int maxDepth, int maxCollectionSize, int maxBytes) {
+        GraphLimits limits = new GraphLimits(references, maxDepth, maxCollectionSize, maxBytes);
+        return limits.equals(DEFAULT) ? DEFAULT : limits;
+    }
+
+    /**
+     * @return the same limits with references tracked as by clients of previous versions
+     */
+    GraphLimits withReferences() {
+        return references ? this : of(true, maxDepth, maxCollectionSize, maxBytes);
+    }
+
+    /**
+     * Checks size of received message before it is deserialized.
+     *
+     * @throws IllegalStateException if message is larger than maximum size
+     */
+    void checkBytes(int bytes) {
+        if (bytes > maxBytes) {
+            throw new IllegalStateException(String.format("Message of %d bytes exceeds maximum size %d", bytes,
+                    maxBytes));
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof GraphLimits)) {
+            return false;
+        }
+        GraphLimits other = (GraphLimits) obj;
+        return references == other.references && maxDepth == other.maxDepth
+                && maxCollectionSize == other.maxCollectionSize && maxBytes == other.maxBytes;
+    }
+
+    @Override
+    public int hashCode() {
+        return ((Boolean.hashCode(references) * 31 + maxDepth) * 31 + maxCollectionSize) * 31 + maxBytes;
+    }
+}
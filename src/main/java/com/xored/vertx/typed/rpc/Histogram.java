@@ -0,0 +1,97 @@
+package com.xored.vertx.typed.rpc;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram of non-negative values with log-linear buckets like HdrHistogram: each power of two range is
+ * split into {@value #SUB_BUCKETS} buckets, so recorded values are precise within 1/{@value #SUB_BUCKETS} of value.
+ * Recording does not allocate, values above {@link #MAX_VALUE} are recorded as the maximum one.
+ *
+ * @author Konstantin Zaitsev
+ */
+final class Histogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The maximum value that is recorded precisely, about 73 minutes in nanoseconds.
+     */
+    static final long MAX_VALUE = (1L << 42) - 1;
+
+    private static final double[] PERCENTILES = { 0.5, 0.9, 0.99, 0.999 };
+    private static final String[] PERCENTILE_NAMES = { "p50", "p90", "p99", "p999" };
+
+    private final AtomicLongArray counts = new AtomicLongArray(index(MAX_VALUE) + 1);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long value) {
+        if (value < 0) {
+            value = 0;
+        } else if (value > MAX_VALUE) {
+            value = MAX_VALUE;
+        }
+        counts.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // retry
+        }
+    }
+
+    /**
+     * @return count, mean, maximum and percentiles of recorded values
+     */
+    JsonObject snapshot() {
+        long[] snapshot = new long[counts.length()];
+        long total = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        long maxValue = max.get();
+        long n = count.sum();
+        JsonObject result = new JsonObject().put("count", total).put("mean", n > 0 ? sum.sum() / (double) n : 0)
+                .put("max", maxValue);
+        // percentiles are ascending, so buckets are scanned once
+        long cumulative = 0;
+        int i = 0;
+        for (int p = 0; p < PERCENTILES.length; p++) {
+            long rank = Math.max(1, (long) Math.ceil(PERCENTILES[p] * total));
+            while (i < snapshot.length - 1 && cumulative + snapshot[i] < rank) {
+                cumulative += snapshot[i++];
+            }
+            result.put(PERCENTILE_NAMES[p], total > 0 ? Math.min(highestEquivalent(i), maxValue) : 0);
+        }
+        return result;
+    }
+
+    /**
+     * @return index of bucket of value, values below {@value #SUB_BUCKETS} have their own buckets
+     */
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * @return the highest value that is recorded into bucket with specified index
+     */
+    static long highestEquivalent(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long lowest = (long) (SUB_BUCKETS + (index & (SUB_BUCKETS - 1))) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
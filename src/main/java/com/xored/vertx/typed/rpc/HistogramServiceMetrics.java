@@ -0,0 +1,122 @@
+package com.xored.vertx.typed.rpc;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.metrics.Measured;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics that keep counters and histograms of calls in memory. The same instance can be set to options of several
+ * clients and services, metrics of each method are available by name
+ * <code>client|server.&lt;address&gt;.&lt;method&gt;</code> in {@link #getMetricsSnapshot() snapshot}:
+ * <ul>
+ * <li><code>calls</code>, <code>errors</code> and <code>inFlight</code> - numbers of calls</li>
+ * <li><code>roundTrip</code> - client round trip time in nanoseconds</li>
+ * <li><code>queue</code> and <code>execution</code> - server time before invocation and time of execution in
+ * nanoseconds</li>
+ * <li><code>requestBytes</code> and <code>replyBytes</code> - sizes of serialized messages</li>
+ * </ul>
+ * Histograms contain count, mean, max and p50, p90, p99, p999 percentiles.
+ *
+ * @author Konstantin Zaitsev
+ */
+public class HistogramServiceMetrics implements ServiceMetrics, Measured {
+    private final ConcurrentMap<String, Recorder> recorders = new ConcurrentHashMap<>();
+
+    @Override
+    public MethodMetrics client(String address, String method) {
+        return recorders.computeIfAbsent("client." + address + "." + method, name -> new Recorder(false));
+    }
+
+    @Override
+    public MethodMetrics server(String address, String method) {
+        return recorders.computeIfAbsent("server." + address + "." + method, name -> new Recorder(true));
+    }
+
+    @Override
+    public boolean isMetricsEnabled() {
+        return true;
+    }
+
+    /**
+     * @return metrics of all methods by name in the same form as snapshots of Vert.x metrics service
+     */
+    public JsonObject getMetricsSnapshot() {
+        JsonObject result = new JsonObject();
+        for (Map.Entry<String, Recorder> entry : recorders.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return result;
+    }
+
+    /**
+     * @param name name of method metrics
+     * @return metrics of the method or <code>null</code> if there is no such method
+     */
+    public JsonObject getMetricsSnapshot(String name) {
+        Recorder recorder = recorders.get(name);
+        return recorder != null ? recorder.snapshot() : null;
+    }
+
+    private static final class Recorder implements MethodMetrics {
+        private final boolean server;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder inFlight = new LongAdder();
+        private final Histogram latency = new Histogram();
+        private final Histogram queue;
+        private final Histogram requestBytes = new Histogram();
+        private final Histogram replyBytes = new Histogram();
+
+        Recorder(boolean server) {
+            this.server = server;
+            this.queue = server ? new Histogram() : null;
+        }
+
+        @Override
+        public void started() {
+            calls.increment();
+            inFlight.increment();
+        }
+
+        @Override
+        public void queued(long nanos) {
+            if (queue != null) {
+                queue.record(nanos);
+            }
+        }
+
+        @Override
+        public void completed(long nanos, boolean failed) {
+            inFlight.decrement();
+            if (failed) {
+                errors.increment();
+            }
+            latency.record(nanos);
+        }
+
+        @Override
+        public void requestSize(int bytes) {
+            requestBytes.record(bytes);
+        }
+
+        @Override
+        public void replySize(int bytes) {
+            replyBytes.record(bytes);
+        }
+
+        JsonObject snapshot() {
+            JsonObject result = new JsonObject().put("calls", calls.sum()).put("errors", errors.sum())
+                    .put("inFlight", inFlight.sum());
+            if (server) {
+                result.put("queue", queue.snapshot()).put("execution", latency.snapshot());
+            } else {
+                result.put("roundTrip", latency.snapshot());
+            }
+            return result.put("requestBytes", requestBytes.snapshot()).put("replyBytes", replyBytes.snapshot());
+        }
+    }
+}
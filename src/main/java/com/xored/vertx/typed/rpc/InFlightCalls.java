@@ -0,0 +1,69 @@
+package com.xored.vertx.typed.rpc;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Calls of {@link SingleFlight} method in flight keyed by serialized arguments, identical calls share result of the
+ * first one until it is completed. Each caller gets its own future that depends on the shared result.
+ *
+ * @author Konstantin Zaitsev
+ */
+final class InFlightCalls {
+    private final ConcurrentMap<ArgsKey, CompletableFuture<Object>> calls = new ConcurrentHashMap<>();
+
+    /**
+     * Returns result of identical call in flight or makes the call.
+     *
+     * @param args serialized arguments of the call
+     * @param call makes call
+     */
+    CompletableFuture<Object> get(byte[] args, Supplier<CompletableFuture<Object>> call) {
+        ArgsKey key = new ArgsKey(args);
+        CompletableFuture<Object> shared = new CompletableFuture<>();
+        CompletableFuture<Object> existing = calls.putIfAbsent(key, shared);
+        if (existing != null) {
+            return copy(existing);
+        }
+
+        CompletableFuture<Object> result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            calls.remove(key, shared);
+            // identical calls may have already joined the call
+            shared.completeExceptionally(e);
+            throw e;
+        }
+        result.whenComplete((value, e) -> {
+            calls.remove(key, shared);
+            if (e != null) {
+                shared.completeExceptionally(e);
+            } else {
+                shared.complete(value);
+            }
+        });
+        return copy(shared);
+    }
+
+    int size() {
+        return calls.size();
+    }
+
+    /**
+     * @return future completed with the same value or exception, so caller cannot complete result of other callers
+     */
+    private static CompletableFuture<Object> copy(CompletableFuture<Object> result) {
+        CompletableFuture<Object> copy = new CompletableFuture<>();
+        result.whenComplete((value, e) -> {
+            if (e != null) {
+                copy.completeExceptionally(e);
+            } else {
+                copy.complete(value);
+            }
+        });
+        return copy;
+    }
+}
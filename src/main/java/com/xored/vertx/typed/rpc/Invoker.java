@@ -0,0 +1,17 @@
+package com.xored.vertx.typed.rpc;
+
+/**
+ * Invokes single method of RPC service implementation.
+ *
+ * @author Konstantin Zaitsev
+ */
+@FunctionalInterface
+interface Invoker {
+    /**
+     * @param target service implementation
+     * @param args   method arguments
+     * @return method result
+     * @throws Throwable exception thrown by the method as is
+     */
+    Object invoke(Object target, Object[] args) throws Throwable;
+}
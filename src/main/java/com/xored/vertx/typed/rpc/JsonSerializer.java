@@ -0,0 +1,102 @@
+package com.xored.vertx.typed.rpc;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.vertx.core.json.Json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+
+/**
+ * Serializer that writes values as JSON documents by Jackson mapper of Vert.x. Each value is written as int length
+ * followed by UTF-8 JSON, fields of beans are written by name regardless of their visibility and getters and setters
+ * are ignored, so beans are serialized the same way as by Kryo. Beans should have constructor without arguments.
+ * <p>
+ * Values are written with declared types, so subclasses of declared classes are read as declared classes. Length of
+ * JSON document is checked against maximum size of {@link GraphLimits} of method before the document is read.
+ *
+ * @author Konstantin Zaitsev
+ */
+final class JsonSerializer implements RpcSerializer {
+    private final ObjectMapper mapper;
+
+    JsonSerializer(Class<?> serviceInterface, EventBusServiceOptions options) {
+        this.mapper = Json.mapper.copy()
+                .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+                .configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false)
+                .setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+                .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+    }
+
+    @Override
+    public Codec codec(Type type) {
+        return codec(type, GraphLimits.DEFAULT);
+    }
+
+    /**
+     * Returns codec that reads JSON documents of maximum size of specified limits.
+     */
+    Codec codec(Type type, GraphLimits limits) {
+        JavaType javaType = mapper.getTypeFactory().constructType(type);
+        return new JsonCodec(mapper.writerFor(javaType), mapper.readerFor(javaType), limits.maxBytes);
+    }
+
+    private static final class JsonCodec implements Codec {
+        private final ObjectWriter writer;
+        private final ObjectReader reader;
+        private final int maxBytes;
+
+        JsonCodec(ObjectWriter writer, ObjectReader reader, int maxBytes) {
+            this.writer = writer;
+            this.reader = reader;
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public void write(Output output, Object value) {
+            int start = output.position();
+            output.writeInt(0);
+            try {
+                writer.writeValue((OutputStream) output, value);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Failed to write JSON of " + value.getClass().getName(), e);
+            }
+            int end = output.position();
+            output.setPosition(start);
+            output.writeInt(end - start - 4);
+            output.setPosition(end);
+        }
+
+        @Override
+        public Object read(Input input) {
+            int length = input.readInt();
+            if (length < 0 || length > maxBytes) {
+                throw new IllegalStateException(String.format("JSON of %d bytes exceeds maximum size %d", length,
+                        maxBytes));
+            }
+            try {
+                if (input.getClass() == Input.class && input.limit() - input.position() >= length) {
+                    // document is parsed in place
+                    int position = input.position();
+                    Object value = reader.readValue(input.getBuffer(), position, length);
+                    input.setPosition(position + length);
+                    return value;
+                }
+                return reader.readValue(input.readBytes(length));
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to read JSON", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.xored.vertx.typed.rpc;
+
+import com.esotericsoftware.kryo.Kryo;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * Bounded lock-free pool of configured {@link Kryo} instances. Instances are taken from and returned to slots by
+ * atomic operations, new instance is created when pool is empty and instance returned to full pool is dropped.
+ * <p>
+ * Instance is borrowed for {@link Scope scope} of message, nested scopes of the same thread, e.g. codecs of
+ * arguments that are read within scope of call, use instance of the outermost scope, so pool is accessed once per
+ * message. Threads keep only their scope holder, they do not keep instances between messages.
+ *
+ * @author Konstantin Zaitsev
+ */
+final class KryoPool {
+    private final Supplier<Kryo> factory;
+    private final AtomicReferenceArray<Kryo> slots;
+    private final ThreadLocal<Scope> scopes = ThreadLocal.withInitial(Scope::new);
+
+    /**
+     * @param factory   creates and registers classes of new instances
+     * @param size      maximum number of idle instances
+     * @param prewarmed number of instances that are created at once
+     */
+    KryoPool(Supplier<Kryo> factory, int size, int prewarmed) {
+        this.factory = factory;
+        this.slots = new AtomicReferenceArray<>(size);
+        for (int i = 0; i < Math.min(prewarmed, size); i++) {
+            slots.set(i, factory.get());
+        }
+    }
+
+    /**
+     * @return idle instance or new instance if pool is empty
+     */
+    Kryo borrow() {
+        int size = slots.length();
+        int start = start(size);
+        for (int i = 0; i < size; i++) {
+            int index = (start + i) % size;
+            if (slots.get(index) != null) {
+                Kryo kryo = slots.getAndSet(index, null);
+                if (kryo != null) {
+                    return kryo;
+                }
+            }
+        }
+        return factory.get();
+    }
+
+    /**
+     * Returns instance to the pool, it is dropped if pool is full.
+     */
+    void release(Kryo kryo) {
+        int size = slots.length();
+        int start = start(size);
+        for (int i = 0; i < size; i++) {
+            int index = (start + i) % size;
+            if (slots.get(index) == null && slots.compareAndSet(index, null, kryo)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return number of idle instances
+     */
+    int idle() {
+        int idle = 0;
+        for (int i = 0; i < slots.length(); i++) {
+            if (slots.get(i) != null) {
+                idle++;
+            }
+        }
+        return idle;
+    }
+
+    /**
+     * Enters scope of the current thread, instance is borrowed by the outermost scope. Scope should be exited by
+     * {@link #exit} in finally block.
+     *
+     * @return scope with instance that is used until scope is exited
+     */
+    Scope enter() {
+        Scope scope = scopes.get();
+        if (scope.depth++ == 0) {
+            scope.kryo = borrow();
+        }
+        return scope;
+    }
+
+    /**
+     * Exits scope, instance is returned to the pool by the outermost scope.
+     */
+    void exit(Scope scope) {
+        if (--scope.depth == 0) {
+            Kryo kryo = scope.kryo;
+            scope.kryo = null;
+            release(kryo);
+        }
+    }
+
+    /**
+     * Threads start search from different slots to reduce contention.
+     */
+    private static int start(int size) {
+        return (int) (Thread.currentThread().getId() % size);
+    }
+
+    /**
+     * Instance borrowed by thread for the duration of message.
+     */
+    static final class Scope {
+        Kryo kryo;
+        private int depth;
+    }
+}
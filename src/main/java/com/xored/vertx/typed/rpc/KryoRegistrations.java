@@ -0,0 +1,141 @@
+package com.xored.vertx.typed.rpc;
+
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Kryo class registrations derived from RPC service interface.
+ * <p>
+ * Concrete classes of method parameters and results, including type arguments of generic types like
+ * <code>CompletableFuture&lt;List&lt;Person&gt;&gt;</code>, are registered with ids computed from class names, so
+ * client and server get the same ids independently of each other and of the order of methods. Classes are written as
+ * varint id of at most 3 bytes instead of class name.
+ * <p>
+ * JDK classes other than collections and maps are not registered: <code>CompletableFuture</code> only wraps
+ * serialized values and other JDK classes may have internal fields that cannot be accessed by reflection since JDK 16,
+ * so eager field serializers of them would fail when client is created or service is registered. Collections and maps
+ * are written by Kryo collection serializers that do not access their fields.
+ *
+ * @author Konstantin Zaitsev
+ */
+final class KryoRegistrations {
+    /**
+     * The first id of derived registrations. Ids below it are used by Kryo defaults and are free for user
+     * registrations, see {@link EventBusServiceOptions#setClassRegistrar}.
+     */
+    static final int FIRST_ID = 64;
+
+    private static final int ID_MASK = (1 << 20) - 1;
+
+    private KryoRegistrations() {
+    }
+
+    /**
+     * @return registration ids of classes used by service interface methods.
+     */
+    static Map<Class<?>, Integer> of(Class<?> iface) {
+        // sorted by name, so collisions are resolved in the same way on both sides
+        Set<Class<?>> classes = new TreeSet<>(Comparator.comparing(Class::getName));
+        for (Method method : ServiceMethods.of(iface).values()) {
+            for (Type type : method.getGenericParameterTypes()) {
+                collect(type, classes);
+            }
+            collect(method.getGenericReturnType(), classes);
+        }
+
+        Map<Class<?>, Integer> result = new LinkedHashMap<>();
+        Set<Integer> used = new HashSet<>();
+        for (Class<?> type : classes) {
+            int id = RpcProtocol.hash(type.getName()) & ID_MASK;
+            while (!used.add(id)) {
+                id = (id + 1) & ID_MASK;
+            }
+            result.put(type, FIRST_ID + id);
+        }
+        return result;
+    }
+
+    private static void collect(Type type, Set<Class<?>> classes) {
+        if (type instanceof ParameterizedType) {
+            collect(((ParameterizedType) type).getRawType(), classes);
+            for (Type argument : ((ParameterizedType) type).getActualTypeArguments()) {
+                collect(argument, classes);
+            }
+        } else if (type instanceof GenericArrayType) {
+            collect(((GenericArrayType) type).getGenericComponentType(), classes);
+        } else if (type instanceof Class) {
+            Class<?> clazz = (Class<?>) type;
+            if (clazz.isArray()) {
+                collect(clazz.getComponentType(), classes);
+                classes.add(clazz);
+            } else if (isConcrete(clazz) && (!isJdkClass(clazz) || Collection.class.isAssignableFrom(clazz)
+                    || Map.class.isAssignableFrom(clazz))) {
+                classes.add(clazz);
+            }
+        }
+        // type variables and wildcards have no concrete class
+    }
+
+    private static boolean isJdkClass(Class<?> clazz) {
+        String name = clazz.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jdk.")
+                || name.startsWith("sun.");
+    }
+
+    private static boolean isConcrete(Class<?> clazz) {
+        return !clazz.isPrimitive() && !clazz.isInterface() && !Modifier.isAbstract(clazz.getModifiers())
+                && clazz != Object.class && clazz != Void.class;
+    }
+
+    /**
+     * Returns class of declared type if its values are written without class because the type is final, e.g.
+     * <code>String</code>, boxed primitives, final beans or arrays of them.
+     *
+     * @return boxed class or <code>null</code> if values of the type may have other classes
+     */
+    static Class<?> finalType(Type declared) {
+        Type raw = declared instanceof ParameterizedType ? ((ParameterizedType) declared).getRawType() : declared;
+        if (!(raw instanceof Class)) {
+            // type variables, wildcards and generic arrays
+            return null;
+        }
+        Class<?> type = box((Class<?>) raw);
+        Class<?> element = type;
+        while (element.isArray()) {
+            element = element.getComponentType();
+        }
+        return element.isPrimitive() || Modifier.isFinal(element.getModifiers()) ? type : null;
+    }
+
+    static Class<?> box(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        }
+        if (type == int.class) {
+            return Integer.class;
+        } else if (type == long.class) {
+            return Long.class;
+        } else if (type == double.class) {
+            return Double.class;
+        } else if (type == boolean.class) {
+            return Boolean.class;
+        } else if (type == float.class) {
+            return Float.class;
+        } else if (type == short.class) {
+            return Short.class;
+        } else if (type == byte.class) {
+            return Byte.class;
+        }
+        return Character.class;
+    }
+}
@@ -0,0 +1,606 @@
+package com.xored.vertx.typed.rpc;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Kryo.DefaultInstantiatorStrategy;
+import com.esotericsoftware.kryo.io.ByteBufferInput;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.MapSerializer;
+import io.netty.buffer.ByteBuf;
+import io.vertx.core.buffer.Buffer;
+
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Kryo based serialization of RPC frames, arguments and results.
+ * <p>
+ * Objects are written to per thread {@link Output} that is reused between calls, so the only copy of serialized data
+ * is the one into exactly sized result {@link Buffer}. Reading is performed in place over buffer content.
+ * <p>
+ * Serializers of services register classes used by service methods, so they are written as ids instead of names.
+ * Data written by any serializer can be read by others, but registered ids are understood only by serializer of the
+ * same service.
+ * <p>
+ * Arguments, results and stream items are written by {@link RpcSerializer.Codec codecs} of their declared types, the
+ * serializer itself is the default {@link RpcSerializer#KRYO Kryo} provider of codecs.
+ * <p>
+ * Kryo instances are borrowed from {@link KryoPool pool} once per message, codecs of values that are written or read
+ * within the message share the instance of the message.
+ *
+ * @author Konstantin Zaitsev
+ */
+class KryoSerializer implements RpcSerializer {
+    /**
+     * Per thread output buffers grown above this size are released after use.
+     */
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * Kryo instances without service class registrations, they are compatible with previous versions.
+     */
+    private static final KryoPool defaultPool = new KryoPool(KryoSerializer::createKryo,
+            EventBusServiceOptions.DEFAULT_KRYO_POOL_SIZE, 1);
+
+    private static final ThreadLocal<Output> outputs = new ThreadLocal<Output>() {
+        @Override
+        protected Output initialValue() {
+            return new Output(EventBusServiceOptions.DEFAULT_INITIAL_BUFFER_SIZE, -1);
+        }
+    };
+
+    private final KryoPool pool;
+    private final int initialBufferSize;
+    private final int maxBufferSize;
+    private final Codec classCodec = new ClassCodec(GraphLimits.DEFAULT);
+
+    /**
+     * Creates serializer that writes classes by name.
+     */
+    KryoSerializer(EventBusServiceOptions options) {
+        this.pool = defaultPool;
+        this.initialBufferSize = options.getInitialBufferSize();
+        this.maxBufferSize = options.getMaxBufferSize();
+    }
+
+    /**
+     * Creates serializer with {@link KryoRegistrations registrations} of classes used by service interface and
+     * registrations of {@link EventBusServiceOptions#getClassRegistrar() user registrar}. The first instance is
+     * registered at once, so registration failures are reported when client is created or service is registered.
+     */
+    KryoSerializer(EventBusServiceOptions options, Class<?> serviceInterface) {
+        Map<Class<?>, Integer> registrations = KryoRegistrations.of(serviceInterface);
+        Consumer<Kryo> registrar = options.getClassRegistrar();
+        this.pool = new KryoPool(() -> {
+            Kryo kryo = createKryo();
+            for (Map.Entry<Class<?>, Integer> entry : registrations.entrySet()) {
+                kryo.register(entry.getKey(), entry.getValue());
+            }
+            if (registrar != null) {
+                registrar.accept(kryo);
+            }
+            return kryo;
+        }, options.getKryoPoolSize(), 1);
+        this.initialBufferSize = options.getInitialBufferSize();
+        this.maxBufferSize = options.getMaxBufferSize();
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static Kryo createKryo() {
+        Kryo kryo = new LimitedKryo();
+        kryo.register(Map.class, LimitedKryo.sizeLimited(new MapSerializer() {
+            protected Map create(Kryo kryo, Input input, java.lang.Class<Map> type) {
+                return new HashMap();
+            }
+        }));
+        kryo.addDefaultSerializer(Throwable.class, new ThrowableSerializer());
+        kryo.setInstantiatorStrategy(new DefaultInstantiatorStrategy(new ListInstantiatorStrategy()));
+        return kryo;
+    }
+
+    Object[] readObjects(Buffer buffer, int count) {
+        return readObjects(input(buffer), count, GraphLimits.DEFAULT);
+    }
+
+    /**
+     * Reads objects written with class by {@link #writeObjects}.
+     *
+     * @param limits limits of read object graphs
+     */
+    Object[] readObjects(Buffer buffer, int count, GraphLimits limits) {
+        return readObjects(input(buffer), count, limits);
+    }
+
+    Object[] readObjects(Input input, int count) {
+        return readObjects(input, count, GraphLimits.DEFAULT);
+    }
+
+    private Object[] readObjects(Input input, int count, GraphLimits limits) {
+        KryoPool.Scope scope = pool.enter();
+        try {
+            Kryo kryo = kryo(scope, limits);
+            Object[] result = new Object[count];
+            for (int i = 0; i < count; i++) {
+                result[i] = kryo.readClassAndObject(input);
+            }
+            return result;
+        } finally {
+            pool.exit(scope);
+        }
+    }
+
+    /**
+     * Reads arguments written by {@link #writeCall} or stream items.
+     *
+     * @param codecs codecs of declared types of objects
+     */
+    Object[] readObjects(Input input, Codec[] codecs) {
+        KryoPool.Scope scope = pool.enter();
+        try {
+            Object[] result = new Object[codecs.length];
+            for (int i = 0; i < codecs.length; i++) {
+                result[i] = codecs[i].read(input);
+            }
+            return result;
+        } finally {
+            pool.exit(scope);
+        }
+    }
+
+    /**
+     * Reads results written by {@link #writeResults}, failures of calls are returned as {@link Throwable}.
+     *
+     * @param codecs codecs of result types of calls
+     */
+    Object[] readResults(Input input, Codec[] codecs) {
+        KryoPool.Scope scope = pool.enter();
+        try {
+            Object[] result = new Object[codecs.length];
+            for (int i = 0; i < codecs.length; i++) {
+                result[i] = readResult(input, codecs[i], scope);
+            }
+            return result;
+        } finally {
+            pool.exit(scope);
+        }
+    }
+
+    Object readResult(Input input, Codec codec) {
+        KryoPool.Scope scope = pool.enter();
+        try {
+            return readResult(input, codec, scope);
+        } finally {
+            pool.exit(scope);
+        }
+    }
+
+    private static Object readResult(Input input, Codec codec, KryoPool.Scope scope) {
+        return input.readByte() == RpcProtocol.RESULT_FAILURE
+                ? kryo(scope, GraphLimits.DEFAULT).readClassAndObject(input) : codec.read(input);
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> T readObject(Buffer buffer) {
+        KryoPool.Scope scope = pool.enter();
+        try {
+            return (T) kryo(scope, GraphLimits.DEFAULT).readClassAndObject(input(buffer));
+        } finally {
+            pool.exit(scope);
+        }
+    }
+
+    Buffer writeObjects(Object[] objs) {
+        final Output output = output();
+        KryoPool.Scope scope = pool.enter();
+        try {
+            Kryo kryo = kryo(scope, GraphLimits.DEFAULT);
+            for (int i = 0; i < objs.length; i++) {
+                kryo.writeClassAndObject(output, objs[i]);
+            }
+        } finally {
+            pool.exit(scope);
+        }
+        return toBuffer(output);
+    }
+
+    /**
+     * Writes results of call or batch with their {@link RpcProtocol#RESULT_VALUE status}.
+     *
+     * @param codecs codecs of result types of calls
+     */
+    Buffer writeResults(Object[] values, Codec[] codecs) {
+        final Output output = output();
+        writeResults(output, values, codecs);
+        return toBuffer(output);
+    }
+
+    private void writeResults(Output output, Object[] values, Codec[] codecs) {
+        KryoPool.Scope scope = pool.enter();
+        try {
+            for (int i = 0; i < values.length; i++) {
+                writeResult(output, values[i], codecs[i], scope);
+            }
+        } finally {
+            pool.exit(scope);
+        }
+    }
+
+    private static void writeResult(Output output, Object value, Codec codec, KryoPool.Scope scope) {
+        if (value instanceof Throwable) {
+            output.writeByte(RpcProtocol.RESULT_FAILURE);
+            kryo(scope, GraphLimits.DEFAULT).writeClassAndObject(output, value);
+        } else {
+            output.writeByte(RpcProtocol.RESULT_VALUE);
+            codec.write(output, value);
+        }
+    }
+
+    /**
+     * Writes {@link RpcProtocol#FRAME_CALL call frame} with method id and arguments.
+     *
+     * @param codecs codecs of parameter types
+     */
+    Buffer writeCall(int methodId, Object[] args, Codec[] codecs) {
+        final Output output = output();
+        output.writeByte(RpcProtocol.FRAME_CALL);
+        writeCall(output, methodId, args, codecs);
+        return toBuffer(output);
+    }
+
+    /**
+     * Writes {@link RpcProtocol#FRAME_CALL call frame} enclosed into {@link RpcProtocol#FRAME_REPLY_TO envelope}
+     * with reply address.
+     */
+    Buffer writeCall(long correlationId, String replyAddress, int methodId, Object[] args, Codec[] codecs) {
+        final Output output = output();
+        writeReplyTo(output, correlationId, replyAddress);
+        output.writeByte(RpcProtocol.FRAME_CALL);
+        writeCall(output, methodId, args, codecs);
+        return toBuffer(output);
+    }
+
+    /**
+     * Writes {@link RpcProtocol#FRAME_CALL call frame} enclosed into {@link RpcProtocol#FRAME_STREAM stream envelope}
+     * with reply address and initial credit.
+     */
+    Buffer writeStreamCall(long correlationId, String replyAddress, int credit, int methodId, Object[] args,
+            Codec[] codecs) {
+        final Output output = output();
+        output.writeByte(RpcProtocol.FRAME_STREAM);
+        output.writeLong(correlationId);
+        output.writeString(replyAddress);
+        output.writeInt(credit);
+        output.writeByte(RpcProtocol.FRAME_CALL);
+        writeCall(output, methodId, args, codecs);
+        return toBuffer(output);
+    }
+
+    /**
+     * Encloses call into {@link RpcProtocol#FRAME_UPLOAD upload envelope}.
+     */
+    static Buffer writeUpload(String controlAddress, int parameterIndex, Buffer call) {
+        Output envelope = new Output(controlAddress.length() + 8, -1);
+        envelope.writeByte(RpcProtocol.FRAME_UPLOAD);
+        envelope.writeString(controlAddress);
+        envelope.writeByte(parameterIndex);
+        return Buffer.buffer(envelope.position() + call.length()).appendBytes(envelope.getBuffer(), 0,
+                envelope.position()).appendBuffer(call);
+    }
+
+    /**
+     * Writes request of uploaded items that is sent by receiver to control address of {@link StreamSender}.
+     */
+    static Buffer writeStreamRequest(int credit, long correlationId, String replyAddress) {
+        Output output = new Output(replyAddress.length() + 16, -1);
+        output.writeInt(credit);
+        output.writeLong(correlationId);
+        output.writeString(replyAddress);
+        return Buffer.buffer(output.position()).appendBytes(output.getBuffer(), 0, output.position());
+    }
+
+    static void writeReplyTo(Output output, long correlationId, String replyAddress) {
+        output.writeByte(RpcProtocol.FRAME_REPLY_TO);
+        output.writeLong(correlationId);
+        output.writeString(replyAddress);
+    }
+
+    /**
+     * Encloses call that is already written into {@link RpcProtocol#FRAME_REPLY_TO envelope} with reply address.
+     */
+    static Buffer writeReplyTo(long correlationId, String replyAddress, Buffer call) {
+        Output envelope = new Output(replyAddress.length() + 16, -1);
+        writeReplyTo(envelope, correlationId, replyAddress);
+        return Buffer.buffer(envelope.position() + call.length()).appendBytes(envelope.getBuffer(), 0,
+                envelope.position()).appendBuffer(call);
+    }
+
+    /**
+     * Writes reply to {@link ReplyChannel reply channel} with serialized {@link #writeResults results}.
+     */
+    Buffer writeReply(long correlationId, Object[] values, Codec[] codecs) {
+        final Output output = output();
+        output.writeLong(correlationId);
+        output.writeByte(RpcProtocol.REPLY_OK);
+        writeResults(output, values, codecs);
+        return toBuffer(output);
+    }
+
+    /**
+     * Writes reply to {@link ReplyChannel reply channel} with failure.
+     */
+    Buffer writeFailure(long correlationId, int failureCode, String message) {
+        final Output output = output();
+        output.writeLong(correlationId);
+        output.writeByte(RpcProtocol.REPLY_FAILED);
+        output.writeInt(failureCode);
+        output.writeString(message);
+        return toBuffer(output);
+    }
+
+    /**
+     * Writes {@link RpcProtocol#STREAM_OPEN stream message} with control address of the stream.
+     */
+    Buffer writeStreamOpen(long correlationId, String controlAddress) {
+        final Output output = streamOutput(correlationId, RpcProtocol.STREAM_OPEN);
+        output.writeString(controlAddress);
+        return toBuffer(output);
+    }
+
+    /**
+     * Writes {@link RpcProtocol#STREAM_ITEMS stream message} with chunk of items.
+     *
+     * @param codec codec of item type
+     */
+    Buffer writeStreamItems(long correlationId, List<Object> items, Codec codec) {
+        final Output output = streamOutput(correlationId, RpcProtocol.STREAM_ITEMS);
+        output.writeInt(items.size());
+        KryoPool.Scope scope = pool.enter();
+        try {
+            for (int i = 0; i < items.size(); i++) {
+                codec.write(output, items.get(i));
+            }
+        } finally {
+            pool.exit(scope);
+        }
+        return toBuffer(output);
+    }
+
+    /**
+     * Writes the last {@link RpcProtocol#STREAM_END stream message}.
+     *
+     * @param failure failure of stream or <code>null</code> if it is completed normally
+     */
+    Buffer writeStreamEnd(long correlationId, Throwable failure) {
+        final Output output = streamOutput(correlationId, RpcProtocol.STREAM_END);
+        writeClassAndObject(output, failure, GraphLimits.DEFAULT);
+        return toBuffer(output);
+    }
+
+    private Output streamOutput(long correlationId, byte type) {
+        final Output output = output();
+        output.writeLong(correlationId);
+        output.writeByte(RpcProtocol.REPLY_OK);
+        output.writeByte(type);
+        return output;
+    }
+
+    /**
+     * Writes method id and arguments of call to specified output, e.g. to output of {@link CallBatch}.
+     */
+    void writeCall(Output output, int methodId, Object[] args, Codec[] codecs) {
+        output.writeVarInt(methodId, true);
+        KryoPool.Scope scope = pool.enter();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                codecs[i].write(output, args[i]);
+            }
+        } finally {
+            pool.exit(scope);
+        }
+    }
+
+    /**
+     * @return new output that is limited by maximum buffer size of this serializer.
+     */
+    Output newOutput() {
+        return new Output(Math.min(initialBufferSize, maxBufferSize), maxBufferSize);
+    }
+
+    Buffer writeObject(Object obj) {
+        final Output output = output();
+        writeClassAndObject(output, obj, GraphLimits.DEFAULT);
+        return toBuffer(output);
+    }
+
+    private void writeClassAndObject(Output output, Object obj, GraphLimits limits) {
+        KryoPool.Scope scope = pool.enter();
+        try {
+            kryo(scope, limits).writeClassAndObject(output, obj);
+        } finally {
+            pool.exit(scope);
+        }
+    }
+
+    /**
+     * Returns codec that writes values of final types without class and values of other types with class.
+     */
+    @Override
+    public Codec codec(Type type) {
+        Class<?> finalType = KryoRegistrations.finalType(type);
+        return finalType != null ? new FinalCodec(finalType, GraphLimits.DEFAULT) : classCodec;
+    }
+
+    /**
+     * Returns codec that writes and reads values with specified references and limits of object graphs.
+     */
+    Codec codec(Type type, GraphLimits limits) {
+        if (limits == GraphLimits.DEFAULT) {
+            return codec(type);
+        }
+        Class<?> finalType = KryoRegistrations.finalType(type);
+        return finalType != null ? new FinalCodec(finalType, limits) : new ClassCodec(limits);
+    }
+
+    /**
+     * @return provider of codecs with specified references and limits of object graphs if serializer is one of
+     * built-in serializers or the same serializer otherwise
+     */
+    static RpcSerializer limited(RpcSerializer serializer, GraphLimits limits) {
+        if (limits == GraphLimits.DEFAULT) {
+            return serializer;
+        } else if (serializer instanceof KryoSerializer) {
+            return type -> ((KryoSerializer) serializer).codec(type, limits);
+        } else if (serializer instanceof PositionalSerializer) {
+            return type -> ((PositionalSerializer) serializer).codec(type, limits);
+        } else if (serializer instanceof JsonSerializer) {
+            return type -> ((JsonSerializer) serializer).codec(type, limits);
+        }
+        return serializer;
+    }
+
+    /**
+     * @return class of Kryo serializer of type
+     */
+    Class<?> serializerClass(Class<?> type) {
+        KryoPool.Scope scope = pool.enter();
+        try {
+            return kryo(scope, GraphLimits.DEFAULT).getSerializer(type).getClass();
+        } finally {
+            pool.exit(scope);
+        }
+    }
+
+    /**
+     * Enters scope of message, codecs that are used within the scope share its Kryo instance. Scope should be exited
+     * by {@link #exit} in finally block.
+     */
+    KryoPool.Scope enter() {
+        return pool.enter();
+    }
+
+    void exit(KryoPool.Scope scope) {
+        pool.exit(scope);
+    }
+
+    /**
+     * @return deep copies of objects.
+     */
+    Object[] copy(Object[] objs) {
+        KryoPool.Scope scope = pool.enter();
+        try {
+            Kryo kryo = kryo(scope, GraphLimits.DEFAULT);
+            Object[] result = new Object[objs.length];
+            for (int i = 0; i < objs.length; i++) {
+                result[i] = kryo.copy(objs[i]);
+            }
+            return result;
+        } finally {
+            pool.exit(scope);
+        }
+    }
+
+    /**
+     * Returns per thread output that is reset and limited by maximum buffer size of this serializer.
+     */
+    private Output output() {
+        Output output = outputs.get();
+        byte[] bytes = output.getBuffer();
+        if (bytes.length < initialBufferSize || bytes.length > maxBufferSize) {
+            bytes = new byte[Math.min(initialBufferSize, maxBufferSize)];
+        }
+        output.setBuffer(bytes, maxBufferSize);
+        return output;
+    }
+
+    private Buffer toBuffer(Output output) {
+        int size = output.position();
+        Buffer buffer = Buffer.buffer(size).appendBytes(output.getBuffer(), 0, size);
+        if (output.getBuffer().length > Math.max(MAX_RETAINED_BUFFER_SIZE, initialBufferSize)) {
+            output.setBuffer(new byte[EventBusServiceOptions.DEFAULT_INITIAL_BUFFER_SIZE], -1);
+        }
+        return buffer;
+    }
+
+    /**
+     * @return Kryo of scope with specified references and limits of object graphs
+     */
+    private static Kryo kryo(KryoPool.Scope scope, GraphLimits limits) {
+        ((LimitedKryo) scope.kryo).setLimits(limits);
+        return scope.kryo;
+    }
+
+    /**
+     * Creates Kryo input that reads buffer content in place without copying it to intermediate array.
+     */
+    static Input input(Buffer buffer) {
+        ByteBuf buf = buffer.getByteBuf();
+        if (buf.hasArray()) {
+            return new Input(buf.array(), buf.arrayOffset() + buf.readerIndex(), buf.readableBytes());
+        }
+        return new ByteBufferInput(buf.nioBuffer());
+    }
+
+    /**
+     * @return number of bytes that are left to read, limit of input created from buffer is offset of the end of
+     * buffer content in backing array rather than its length
+     */
+    static int remaining(Input input) {
+        return input.limit() - input.position();
+    }
+
+    private final class ClassCodec implements Codec {
+        private final GraphLimits limits;
+
+        ClassCodec(GraphLimits limits) {
+            this.limits = limits;
+        }
+
+        @Override
+        public void write(Output output, Object value) {
+            writeClassAndObject(output, value, limits);
+        }
+
+        @Override
+        public Object read(Input input) {
+            KryoPool.Scope scope = pool.enter();
+            try {
+                return kryo(scope, limits).readClassAndObject(input);
+            } finally {
+                pool.exit(scope);
+            }
+        }
+    }
+
+    private final class FinalCodec implements Codec {
+        private final Class<?> type;
+        private final GraphLimits limits;
+
+        FinalCodec(Class<?> type, GraphLimits limits) {
+            this.type = type;
+            this.limits = limits;
+        }
+
+        @Override
+        public void write(Output output, Object value) {
+            KryoPool.Scope scope = pool.enter();
+            try {
+                kryo(scope, limits).writeObjectOrNull(output, value, type);
+            } finally {
+                pool.exit(scope);
+            }
+        }
+
+        @Override
+        public Object read(Input input) {
+            KryoPool.Scope scope = pool.enter();
+            try {
+                return kryo(scope, limits).readObjectOrNull(input, type);
+            } finally {
+                pool.exit(scope);
+            }
+        }
+    }
+}
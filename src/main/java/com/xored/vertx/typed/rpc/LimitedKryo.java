@@ -0,0 +1,127 @@
+package com.xored.vertx.typed.rpc;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.ByteBufferInput;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.CollectionSerializer;
+import com.esotericsoftware.kryo.serializers.DefaultArraySerializers;
+import com.esotericsoftware.kryo.serializers.MapSerializer;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Kryo that applies {@link GraphLimits} of the current message: reference tracking, maximum depth and maximum size
+ * of collections, maps and arrays. Default serializers of collections and arrays check size before elements are
+ * allocated. Failures are written by {@link ThrowableSerializer}, serializers of other classes are not changed. Classes
+ * which fields cannot be accessed by reflection, e.g. JDK classes on JDK 16 and later, are never read by Java
+ * serialization, they should be registered with their own serializers.
+ *
+ * @author Konstantin Zaitsev
+ */
+final class LimitedKryo extends Kryo {
+    /**
+     * Serializers that read size of collection or array first.
+     */
+    private static final Set<Class<?>> SIZED_SERIALIZERS = new HashSet<>(Arrays.asList(CollectionSerializer.class,
+            MapSerializer.class, DefaultArraySerializers.ByteArraySerializer.class,
+            DefaultArraySerializers.CharArraySerializer.class, DefaultArraySerializers.ShortArraySerializer.class,
+            DefaultArraySerializers.IntArraySerializer.class, DefaultArraySerializers.LongArraySerializer.class,
+            DefaultArraySerializers.FloatArraySerializer.class, DefaultArraySerializers.DoubleArraySerializer.class,
+            DefaultArraySerializers.BooleanArraySerializer.class, DefaultArraySerializers.StringArraySerializer.class,
+            DefaultArraySerializers.ObjectArraySerializer.class));
+
+    private GraphLimits limits = GraphLimits.DEFAULT;
+
+    /**
+     * Applies limits to the following objects, it should be called when no object is being written or read.
+     */
+    void setLimits(GraphLimits limits) {
+        if (this.limits != limits) {
+            this.limits = limits;
+            setReferences(limits.references);
+            setMaxDepth(limits.maxDepth);
+        }
+    }
+
+    @Override
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public Serializer getDefaultSerializer(Class type) {
+        Serializer serializer;
+        try {
+            serializer = super.getDefaultSerializer(type);
+        } catch (IllegalArgumentException e) {
+            // since JDK 16 field serializer cannot access private fields of JDK classes
+            throw new IllegalArgumentException(String.format("%s cannot be written by default serializer, register "
+                    + "its serializer by EventBusServiceOptions.setClassRegistrar", type.getName()), e);
+        }
+        return SIZED_SERIALIZERS.contains(serializer.getClass()) ? new SizeLimitedSerializer(serializer,
+                type.isArray()) : serializer;
+    }
+
+    /**
+     * @param serializer serializer of collection or map that reads size first
+     * @return serializer that checks size before it is passed to the serializer
+     */
+    @SuppressWarnings("rawtypes")
+    static Serializer sizeLimited(Serializer serializer) {
+        return new SizeLimitedSerializer(serializer, false);
+    }
+
+    private void checkSize(int size) {
+        if (size > limits.maxCollectionSize) {
+            throw new KryoException(String.format("Collection size %d exceeds maximum %d", size,
+                    limits.maxCollectionSize));
+        }
+    }
+
+    /**
+     * Checks size that is read by serializer of collection or array before it is passed to the serializer.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static final class SizeLimitedSerializer extends Serializer<Object> {
+        private final Serializer serializer;
+        private final boolean array;
+
+        SizeLimitedSerializer(Serializer serializer, boolean array) {
+            super(serializer.getAcceptsNull(), serializer.isImmutable());
+            this.serializer = serializer;
+            this.array = array;
+        }
+
+        @Override
+        public void write(Kryo kryo, Output output, Object object) {
+            serializer.write(kryo, output, object);
+        }
+
+        @Override
+        public Object read(Kryo kryo, Input input, Class<Object> type) {
+            LimitedKryo limited = (LimitedKryo) kryo;
+            if (limited.limits.maxCollectionSize != Integer.MAX_VALUE) {
+                int position = input.position();
+                int size = input.readVarInt(true);
+                input.setPosition(position);
+                if (input instanceof ByteBufferInput) {
+                    ((ByteBufferInput) input).getByteBuffer().position(position);
+                }
+                // arrays write length plus one, zero is null
+                limited.checkSize(array ? size - 1 : size);
+            }
+            return serializer.read(kryo, input, type);
+        }
+
+        @Override
+        public Object copy(Kryo kryo, Object original) {
+            return serializer.copy(kryo, original);
+        }
+
+        @Override
+        public void setGenerics(Kryo kryo, Class[] generics) {
+            serializer.setGenerics(kryo, generics);
+        }
+    }
+}
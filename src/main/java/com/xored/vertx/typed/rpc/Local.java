@@ -0,0 +1,24 @@
+package com.xored.vertx.typed.rpc;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Passes arguments and results of service methods by reference when client and server share JVM. Messages that are
+ * delivered to another cluster node are still serialized. Can be specified for service interface or single method,
+ * method annotation has priority.
+ *
+ * @author Konstantin Zaitsev
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface Local {
+    /**
+     * Deep copy arguments and results on local delivery to isolate client and server objects.
+     */
+    boolean copy() default false;
+}
@@ -0,0 +1,54 @@
+package com.xored.vertx.typed.rpc;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Body of {@link Local} RPC message. It holds arguments or result objects when delivered in the same JVM or their
+ * serialized form when received from another cluster node.
+ *
+ * @author Konstantin Zaitsev
+ */
+final class LocalMessage {
+    private final int methodId;
+    private final Object[] values;
+    private final Buffer buffer;
+    private final boolean copy;
+
+    /**
+     * @param methodId id of called method or 0 for reply
+     * @param values   arguments or result
+     * @param copy     whether values should be copied on delivery
+     */
+    LocalMessage(int methodId, Object[] values, boolean copy) {
+        this.methodId = methodId;
+        this.values = values;
+        this.buffer = null;
+        this.copy = copy;
+    }
+
+    LocalMessage(int methodId, Buffer buffer) {
+        this.methodId = methodId;
+        this.values = null;
+        this.buffer = buffer;
+        this.copy = false;
+    }
+
+    int getMethodId() {
+        return methodId;
+    }
+
+    boolean isCopy() {
+        return copy;
+    }
+
+    Object[] getValues() {
+        return values;
+    }
+
+    /**
+     * @return objects of the message deserializing them if message was received from another node.
+     */
+    Object[] values(KryoSerializer serializer, int count) {
+        return values != null ? values : serializer.readObjects(buffer, count);
+    }
+}
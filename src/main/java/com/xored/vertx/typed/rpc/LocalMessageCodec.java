@@ -0,0 +1,67 @@
+package com.xored.vertx.typed.rpc;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.MessageCodec;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Codec of {@link LocalMessage} that keeps objects as is for local delivery and serializes them for cluster.
+ *
+ * @author Konstantin Zaitsev
+ */
+class LocalMessageCodec implements MessageCodec<LocalMessage, LocalMessage> {
+    static final String NAME = "typed-rpc-local";
+
+    private static final Set<EventBus> registered = Collections.newSetFromMap(new WeakHashMap<>());
+
+    private final KryoSerializer serializer = new KryoSerializer(new EventBusServiceOptions());
+
+    /**
+     * Registers codec in event bus if it is not registered yet.
+     */
+    static void register(EventBus eventBus) {
+        synchronized (registered) {
+            if (registered.add(eventBus)) {
+                eventBus.registerCodec(new LocalMessageCodec());
+            }
+        }
+    }
+
+    @Override
+    public void encodeToWire(Buffer buffer, LocalMessage msg) {
+        Buffer bytes = serializer.writeObjects(msg.getValues());
+        buffer.appendInt(msg.getMethodId());
+        buffer.appendInt(bytes.length());
+        buffer.appendBuffer(bytes);
+    }
+
+    @Override
+    public LocalMessage decodeFromWire(int pos, Buffer buffer) {
+        int methodId = buffer.getInt(pos);
+        int length = buffer.getInt(pos + 4);
+        pos += 8;
+        return new LocalMessage(methodId, buffer.slice(pos, pos + length));
+    }
+
+    @Override
+    public LocalMessage transform(LocalMessage msg) {
+        if (msg.isCopy()) {
+            return new LocalMessage(msg.getMethodId(), serializer.copy(msg.getValues()), true);
+        }
+        return msg;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public byte systemCodecID() {
+        return -1;
+    }
+}
@@ -0,0 +1,25 @@
+package com.xored.vertx.typed.rpc;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Maximum number of calls that server handles at the same time, calls above it are rejected with
+ * {@link EventBusServiceOverloadedException}. Annotation of service interface limits all calls of service instance and
+ * overrides {@link EventBusServiceOptions#getMaxInFlight() server option}, annotation of method limits calls of the
+ * method only.
+ * <p>
+ * Call is in flight until its result is replied, one way call until the method returns and stream call until the
+ * stream is ended.
+ *
+ * @author Konstantin Zaitsev
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface MaxInFlight {
+    int value();
+}
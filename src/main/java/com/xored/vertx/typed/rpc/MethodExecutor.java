@@ -0,0 +1,135 @@
+package com.xored.vertx.typed.rpc;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Invokes service methods off event loop according to {@link Execution} mode. Calls that are accepted but not started
+ * yet are counted, so queue depth is limited the same way in all modes. Dedicated executors are shut down once
+ * service is unregistered.
+ *
+ * @author Konstantin Zaitsev
+ */
+final class MethodExecutor {
+    private static final long IDLE_THREAD_TIMEOUT = 60;
+
+    private final Executor executor;
+    private final int queueSize;
+    private final AtomicInteger queued = new AtomicInteger();
+
+    /**
+     * @param executor executor of calls or <code>null</code> to execute them by Vert.x worker pool
+     */
+    private MethodExecutor(Executor executor, int queueSize) {
+        this.executor = executor;
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * @param name name of threads of dedicated executor
+     * @return executor of specified execution mode or <code>null</code> if methods are invoked on event loop
+     */
+    static MethodExecutor create(Execution execution, String name) {
+        if (execution == null || execution.value() == Execution.Mode.EVENT_LOOP) {
+            return null;
+        }
+        if (execution.queueSize() < 0) {
+            throw new IllegalArgumentException(String.format("queueSize of %s must be >= 0", name));
+        }
+        switch (execution.value()) {
+        case WORKER:
+            return new MethodExecutor(null, execution.queueSize());
+        case EXECUTOR:
+            if (execution.threads() <= 0) {
+                throw new IllegalArgumentException(String.format("threads of %s must be > 0", name));
+            }
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(execution.threads(), execution.threads(),
+                    IDLE_THREAD_TIMEOUT, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    new DefaultThreadFactory(name, true));
+            pool.allowCoreThreadTimeOut(true);
+            return new MethodExecutor(pool, execution.queueSize());
+        case VIRTUAL_THREAD:
+            return new MethodExecutor(virtualThreadExecutor(), execution.queueSize());
+        default:
+            throw new IllegalArgumentException("Unknown execution mode " + execution.value());
+        }
+    }
+
+    private static Executor virtualThreadExecutor() {
+        try {
+            return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads require Java 21 or later", e);
+        }
+    }
+
+    /**
+     * Executes task unless the queue is full.
+     *
+     * @return <code>false</code> if task is rejected
+     */
+    boolean execute(Runnable task) {
+        if (queued.incrementAndGet() > queueSize) {
+            queued.decrementAndGet();
+            return false;
+        }
+        Runnable started = () -> {
+            queued.decrementAndGet();
+            task.run();
+        };
+        if (executor != null) {
+            try {
+                executor.execute(started);
+            } catch (RejectedExecutionException e) {
+                // service is unregistered
+                queued.decrementAndGet();
+                return false;
+            }
+            return true;
+        }
+        Context context = Vertx.currentContext();
+        if (context == null) {
+            queued.decrementAndGet();
+            throw new IllegalStateException("Worker execution requires Vert.x context");
+        }
+        context.executeBlocking(f -> {
+            started.run();
+            f.complete();
+        }, false, null);
+        return true;
+    }
+
+    /**
+     * Shuts down dedicated executor, tasks that are already executed or queued are completed.
+     */
+    void close() {
+        if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    /**
+     * Shuts down executors of methods, executor of service is shared by its methods.
+     */
+    static void close(Collection<ServerMethod> methods) {
+        Map<MethodExecutor, Boolean> executors = new IdentityHashMap<>();
+        for (ServerMethod method : methods) {
+            if (method.getExecutor() != null && executors.put(method.getExecutor(), Boolean.TRUE) == null) {
+                method.getExecutor().close();
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.xored.vertx.typed.rpc;
+
+/**
+ * Recorder of calls of single RPC method created by {@link ServiceMetrics}. It is called by event loop and executor
+ * threads concurrently, so implementations should be thread safe and should not block.
+ *
+ * @author Konstantin Zaitsev
+ */
+public interface MethodMetrics {
+    /**
+     * Call is sent by client or invoked by server.
+     */
+    void started();
+
+    /**
+     * Time since message is received by server until method is invoked, it includes waiting for
+     * {@link Execution executor}. It is recorded by server only.
+     *
+     * @param nanos time in nanoseconds
+     */
+    void queued(long nanos);
+
+    /**
+     * Call is completed: result is received by client or completed by service method. One way calls are completed once
+     * they are sent or once the method returns, stream calls once the stream is ended.
+     *
+     * @param nanos  round trip time for client or execution time for server in nanoseconds
+     * @param failed whether call is completed with exception
+     */
+    void completed(long nanos, boolean failed);
+
+    /**
+     * Size of serialized request, calls passed by reference are not recorded.
+     *
+     * @param bytes size in bytes
+     */
+    void requestSize(int bytes);
+
+    /**
+     * Size of serialized reply, replies to batches and stream items are not recorded.
+     *
+     * @param bytes size in bytes
+     */
+    void replySize(int bytes);
+}
@@ -0,0 +1,44 @@
+package com.xored.vertx.typed.rpc;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Reference tracking and limits of object graphs that are written and read by Kryo. Can be specified for service
+ * interface or single method, method annotation has priority and both override
+ * {@link EventBusServiceOptions#setReferences options}.
+ * <p>
+ * Methods that exchange trees of objects may turn references off, so Kryo does not track identity of written objects.
+ * References change serialized form of values, so the annotation of shared service interface keeps clients and
+ * servers consistent. Limits are checked while reading, so oversized or malicious messages fail before objects are
+ * allocated.
+ *
+ * @author Konstantin Zaitsev
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface ObjectGraph {
+    /**
+     * Whether shared and cyclic references are preserved, graphs without references should be trees.
+     */
+    boolean references() default EventBusServiceOptions.DEFAULT_REFERENCES;
+
+    /**
+     * Maximum depth of nested objects.
+     */
+    int maxDepth() default EventBusServiceOptions.DEFAULT_MAX_DEPTH;
+
+    /**
+     * Maximum number of elements of read collection, map or array.
+     */
+    int maxCollectionSize() default EventBusServiceOptions.DEFAULT_MAX_COLLECTION_SIZE;
+
+    /**
+     * Maximum size of received call or reply in bytes.
+     */
+    int maxBytes() default EventBusServiceOptions.DEFAULT_MAX_BYTES;
+}
@@ -0,0 +1,676 @@
+package com.xored.vertx.typed.rpc;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.FieldSerializer;
+import org.objenesis.instantiator.ObjectInstantiator;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Serializer that writes values positionally according to their declared types: fields of beans in fixed order
+ * without names and classes, collections and maps as size followed by elements. Codecs are derived from parameter,
+ * result and item types of service methods when client or server is created and fields are accessed by method
+ * handles, so values are written without reflection and without class tags.
+ * <p>
+ * Reference values start with {@link #NULL}, {@link #DECLARED} or {@link #OTHER} tag byte. Values of other classes
+ * than declared ones, e.g. subclasses of declared class or sorted collections, are written with class by Kryo of the
+ * service as well as values of interfaces, JDK classes and classes with custom Kryo serializers. Object graphs should
+ * be trees: shared objects are written as copies and cycles are not supported. List, set, collection and map
+ * interfaces are read as {@link ArrayList}, {@link LinkedHashSet} and {@link LinkedHashMap}.
+ * <p>
+ * Sizes of collections, maps and arrays are checked against {@link GraphLimits} of method before they are allocated
+ * and nesting of positional values is limited by maximum depth, values written by Kryo are limited by Kryo.
+ *
+ * @author Konstantin Zaitsev
+ */
+final class PositionalSerializer implements RpcSerializer {
+    private static final byte NULL = 0;
+    private static final byte DECLARED = 1;
+    private static final byte OTHER = 2;
+    private static final Class<?>[] PRIMITIVES = { int.class, long.class, double.class, boolean.class, float.class,
+            short.class, byte.class, char.class };
+
+    private final KryoSerializer kryo;
+    private final GraphLimits limits;
+    private final Codec other;
+    private final Map<Type, Codec> codecs = new HashMap<>();
+    /**
+     * Serializers of other limits that share Kryo of the service, they are accessed under lock of this map.
+     */
+    private final Map<GraphLimits, PositionalSerializer> limited;
+
+    PositionalSerializer(Class<?> serviceInterface, EventBusServiceOptions options) {
+        this(new KryoSerializer(options, serviceInterface), GraphLimits.DEFAULT, new HashMap<>());
+    }
+
+    private PositionalSerializer(KryoSerializer kryo, GraphLimits limits,
+            Map<GraphLimits, PositionalSerializer> limited) {
+        this.kryo = kryo;
+        this.limits = limits;
+        this.other = kryo.codec(Object.class, limits);
+        this.limited = limited;
+    }
+
+    /**
+     * Codecs are created at client creation or service registration, beans put their codecs before codecs of their
+     * fields are created, so recursive types are supported.
+     */
+    @Override
+    public synchronized Codec codec(Type type) {
+        Codec codec = codecs.get(type);
+        if (codec == null) {
+            codec = create(type);
+            codecs.put(type, codec);
+        }
+        return codec;
+    }
+
+    /**
+     * Returns codec that reads values with specified references and limits of object graphs.
+     */
+    Codec codec(Type type, GraphLimits limits) {
+        if (limits == this.limits) {
+            return codec(type);
+        }
+        PositionalSerializer serializer;
+        synchronized (limited) {
+            serializer = limited.computeIfAbsent(limits, l -> new PositionalSerializer(kryo, l, limited));
+        }
+        return serializer.codec(type);
+    }
+
+    private Codec create(Type type) {
+        if (type instanceof ParameterizedType) {
+            Class<?> raw = (Class<?>) ((ParameterizedType) type).getRawType();
+            Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+            if (Collection.class.isAssignableFrom(raw)) {
+                return collection(raw, arguments[0]);
+            }
+            if (Map.class.isAssignableFrom(raw)) {
+                return map(raw, arguments[0], arguments[1]);
+            }
+            return codec(raw);
+        }
+        if (type instanceof GenericArrayType) {
+            Type component = ((GenericArrayType) type).getGenericComponentType();
+            Class<?> raw = component instanceof ParameterizedType
+                    ? (Class<?>) ((ParameterizedType) component).getRawType() : Object.class;
+            return new ArrayCodec(Array.newInstance(raw, 0).getClass(), codec(component));
+        }
+        if (!(type instanceof Class)) {
+            // type variables and wildcards
+            return kryo.codec(Object.class, limits);
+        }
+        Class<?> clazz = (Class<?>) type;
+        if (clazz.isPrimitive()) {
+            return primitive(clazz);
+        }
+        Codec scalar = scalar(clazz);
+        if (scalar != null) {
+            return scalar;
+        }
+        if (clazz.isEnum()) {
+            return new EnumCodec(clazz);
+        }
+        if (clazz.isArray()) {
+            return clazz.getComponentType().isPrimitive() ? kryo.codec(clazz, limits)
+                    : new ArrayCodec(clazz, codec(clazz.getComponentType()));
+        }
+        if (Collection.class.isAssignableFrom(clazz)) {
+            return collection(clazz, Object.class);
+        }
+        if (Map.class.isAssignableFrom(clazz)) {
+            return map(clazz, Object.class, Object.class);
+        }
+        return bean(clazz);
+    }
+
+    private static PlainCodec primitive(Class<?> type) {
+        if (type == int.class) {
+            return new PlainCodec((output, value) -> output.writeVarInt((Integer) value, false),
+                    input -> input.readVarInt(false));
+        } else if (type == long.class) {
+            return new PlainCodec((output, value) -> output.writeVarLong((Long) value, false),
+                    input -> input.readVarLong(false));
+        } else if (type == double.class) {
+            return new PlainCodec((output, value) -> output.writeDouble((Double) value), Input::readDouble);
+        } else if (type == boolean.class) {
+            return new PlainCodec((output, value) -> output.writeBoolean((Boolean) value), Input::readBoolean);
+        } else if (type == float.class) {
+            return new PlainCodec((output, value) -> output.writeFloat((Float) value), Input::readFloat);
+        } else if (type == short.class) {
+            return new PlainCodec((output, value) -> output.writeShort((Short) value), Input::readShort);
+        } else if (type == byte.class) {
+            return new PlainCodec((output, value) -> output.writeByte((Byte) value), Input::readByte);
+        }
+        return new PlainCodec((output, value) -> output.writeChar((Character) value), Input::readChar);
+    }
+
+    /**
+     * @return codec of string, boxed primitive or byte array or <code>null</code> if type is not scalar
+     */
+    private Codec scalar(Class<?> type) {
+        if (type == String.class) {
+            // strings are written with null marker by Kryo
+            return new PlainCodec((output, value) -> output.writeString((String) value), Input::readString);
+        } else if (type == byte[].class) {
+            return new ScalarCodec(type, (output, value) -> {
+                output.writeVarInt(((byte[]) value).length, true);
+                output.writeBytes((byte[]) value);
+            }, input -> input.readBytes(readSize(input)));
+        } else if (type == Void.class) {
+            return kryo.codec(type, limits);
+        }
+        for (Class<?> primitive : PRIMITIVES) {
+            if (KryoRegistrations.box(primitive) == type) {
+                PlainCodec codec = primitive(primitive);
+                return new ScalarCodec(type, codec.writer, codec.reader);
+            }
+        }
+        return null;
+    }
+
+    private Codec collection(Class<?> type, Type element) {
+        Supplier<Collection<Object>> factory;
+        if (type == List.class || type == Collection.class || type == ArrayList.class) {
+            factory = ArrayList::new;
+        } else if (type == Set.class || type == LinkedHashSet.class) {
+            factory = LinkedHashSet::new;
+        } else {
+            factory = constructor(type);
+        }
+        if (factory == null || SortedSet.class.isAssignableFrom(type)) {
+            return kryo.codec(type, limits);
+        }
+        return new CollectionCodec(type, factory, codec(element));
+    }
+
+    private Codec map(Class<?> type, Type key, Type value) {
+        Supplier<Map<Object, Object>> factory = type == Map.class || type == LinkedHashMap.class
+                ? LinkedHashMap::new : constructor(type);
+        if (factory == null || SortedMap.class.isAssignableFrom(type)) {
+            return kryo.codec(type, limits);
+        }
+        return new MapCodec(type, factory, codec(key), codec(value));
+    }
+
+    /**
+     * @return factory of instances of concrete class with public constructor without arguments or <code>null</code>
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Supplier<T> constructor(Class<?> type) {
+        if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+            return null;
+        }
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.publicLookup().findConstructor(type, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+        return () -> {
+            try {
+                return (T) handle.invokeExact();
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        };
+    }
+
+    /**
+     * Creates codec of bean that is serialized by {@link FieldSerializer} by default, values of other classes are
+     * written by Kryo.
+     */
+    private Codec bean(Class<?> type) {
+        if (type.isInterface() || Modifier.isAbstract(type.getModifiers()) || type == Object.class
+                || type.getName().startsWith("java.") || Throwable.class.isAssignableFrom(type)
+                || kryo.serializerClass(type) != FieldSerializer.class) {
+            return kryo.codec(type, limits);
+        }
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+            List<Field> declared = new ArrayList<>();
+            for (Field field : c.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic()) {
+                    declared.add(field);
+                }
+            }
+            // fields are ordered by name, so order does not depend on compiler, superclass fields go first
+            declared.sort(Comparator.comparing(Field::getName));
+            fields.addAll(0, declared);
+        }
+        MethodHandle[] getters = new MethodHandle[fields.size()];
+        MethodHandle[] setters = new MethodHandle[fields.size()];
+        try {
+            for (int i = 0; i < getters.length; i++) {
+                fields.get(i).setAccessible(true);
+                getters[i] = MethodHandles.lookup().unreflectGetter(fields.get(i));
+                setters[i] = MethodHandles.lookup().unreflectSetter(fields.get(i));
+            }
+        } catch (IllegalAccessException | RuntimeException e) {
+            // e.g. classes of modules that are not open
+            return kryo.codec(type, limits);
+        }
+
+        BeanCodec codec = new BeanCodec(type, new Kryo.DefaultInstantiatorStrategy(new StdInstantiatorStrategy())
+                .newInstantiatorOf(type));
+        codecs.put(type, codec);
+        FieldCodec[] fieldCodecs = new FieldCodec[fields.size()];
+        for (int i = 0; i < fieldCodecs.length; i++) {
+            Field field = fields.get(i);
+            fieldCodecs[i] = field.getType().isPrimitive()
+                    ? new PrimitiveFieldCodec(field.getType(), getters[i], setters[i])
+                    : new ObjectFieldCodec(getters[i], setters[i], codec(field.getGenericType()));
+        }
+        codec.fields = fieldCodecs;
+        return codec;
+    }
+
+    /**
+     * Reads size of collection, map or array and checks it before elements are allocated.
+     */
+    private int readSize(Input input) {
+        int size = input.readVarInt(true);
+        if (size < 0 || size > limits.maxCollectionSize) {
+            throw new KryoException(String.format("Collection size %d exceeds maximum %d", size,
+                    limits.maxCollectionSize));
+        }
+        return size;
+    }
+
+    /**
+     * Reads value nested into positional value of specified depth.
+     */
+    private static Object readNested(Codec codec, Input input, int depth) {
+        return codec instanceof TaggedCodec ? ((TaggedCodec) codec).read(input, depth + 1) : codec.read(input);
+    }
+
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException) {
+            return (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return new IllegalStateException(e);
+    }
+
+    /**
+     * Codec that writes values without tag: primitives that are never <code>null</code> or values that are written
+     * with null marker.
+     */
+    private static final class PlainCodec implements Codec {
+        final BiConsumer<Output, Object> writer;
+        final Function<Input, Object> reader;
+
+        PlainCodec(BiConsumer<Output, Object> writer, Function<Input, Object> reader) {
+            this.writer = writer;
+            this.reader = reader;
+        }
+
+        @Override
+        public void write(Output output, Object value) {
+            writer.accept(output, value);
+        }
+
+        @Override
+        public Object read(Input input) {
+            return reader.apply(input);
+        }
+    }
+
+    /**
+     * Codec of reference type that writes tag byte before the value.
+     */
+    private abstract class TaggedCodec implements Codec {
+        final Class<?> type;
+
+        TaggedCodec(Class<?> type) {
+            this.type = type;
+        }
+
+        @Override
+        public final void write(Output output, Object value) {
+            if (value == null) {
+                output.writeByte(NULL);
+            } else if (accepts(value)) {
+                output.writeByte(DECLARED);
+                writeValue(output, value);
+            } else {
+                output.writeByte(OTHER);
+                other.write(output, value);
+            }
+        }
+
+        @Override
+        public final Object read(Input input) {
+            return read(input, 1);
+        }
+
+        /**
+         * @param depth depth of the value in positional object graph
+         */
+        final Object read(Input input, int depth) {
+            byte tag = input.readByte();
+            if (tag == NULL) {
+                return null;
+            } else if (tag != DECLARED) {
+                return other.read(input);
+            }
+            if (depth > limits.maxDepth) {
+                throw new KryoException("Max depth exceeded: " + depth);
+            }
+            return readValue(input, depth);
+        }
+
+        /**
+         * @return whether value is written by this codec
+         */
+        boolean accepts(Object value) {
+            return value.getClass() == type;
+        }
+
+        abstract void writeValue(Output output, Object value);
+
+        abstract Object readValue(Input input, int depth);
+    }
+
+    private final class ScalarCodec extends TaggedCodec {
+        private final BiConsumer<Output, Object> writer;
+        private final Function<Input, Object> reader;
+
+        ScalarCodec(Class<?> type, BiConsumer<Output, Object> writer, Function<Input, Object> reader) {
+            super(type);
+            this.writer = writer;
+            this.reader = reader;
+        }
+
+        @Override
+        void writeValue(Output output, Object value) {
+            writer.accept(output, value);
+        }
+
+        @Override
+        Object readValue(Input input, int depth) {
+            return reader.apply(input);
+        }
+    }
+
+    private final class EnumCodec extends TaggedCodec {
+        private final Object[] constants;
+
+        EnumCodec(Class<?> type) {
+            super(type);
+            this.constants = type.getEnumConstants();
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            // constants with bodies are subclasses of enum
+            return type.isInstance(value);
+        }
+
+        @Override
+        void writeValue(Output output, Object value) {
+            output.writeVarInt(((Enum<?>) value).ordinal(), true);
+        }
+
+        @Override
+        Object readValue(Input input, int depth) {
+            return constants[input.readVarInt(true)];
+        }
+    }
+
+    private final class ArrayCodec extends TaggedCodec {
+        private final Codec element;
+
+        ArrayCodec(Class<?> type, Codec element) {
+            super(type);
+            this.element = element;
+        }
+
+        @Override
+        void writeValue(Output output, Object value) {
+            Object[] array = (Object[]) value;
+            output.writeVarInt(array.length, true);
+            for (Object item : array) {
+                element.write(output, item);
+            }
+        }
+
+        @Override
+        Object readValue(Input input, int depth) {
+            Object[] array = (Object[]) Array.newInstance(type.getComponentType(), readSize(input));
+            for (int i = 0; i < array.length; i++) {
+                array[i] = readNested(element, input, depth);
+            }
+            return array;
+        }
+    }
+
+    private final class CollectionCodec extends TaggedCodec {
+        private final Supplier<Collection<Object>> factory;
+        private final Codec element;
+
+        CollectionCodec(Class<?> type, Supplier<Collection<Object>> factory, Codec element) {
+            super(type);
+            this.factory = factory;
+            this.element = element;
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            // any implementation of declared interface except sorted ones that depend on comparator
+            return type.isInterface() ? type.isInstance(value) && !(value instanceof SortedSet)
+                    : value.getClass() == type;
+        }
+
+        @Override
+        void writeValue(Output output, Object value) {
+            Collection<?> collection = (Collection<?>) value;
+            output.writeVarInt(collection.size(), true);
+            for (Object item : collection) {
+                element.write(output, item);
+            }
+        }
+
+        @Override
+        Object readValue(Input input, int depth) {
+            int size = readSize(input);
+            Collection<Object> collection = factory.get();
+            for (int i = 0; i < size; i++) {
+                collection.add(readNested(element, input, depth));
+            }
+            return collection;
+        }
+    }
+
+    private final class MapCodec extends TaggedCodec {
+        private final Supplier<Map<Object, Object>> factory;
+        private final Codec key;
+        private final Codec value;
+
+        MapCodec(Class<?> type, Supplier<Map<Object, Object>> factory, Codec key, Codec value) {
+            super(type);
+            this.factory = factory;
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            return type.isInterface() ? value instanceof Map && !(value instanceof SortedMap)
+                    : value.getClass() == type;
+        }
+
+        @Override
+        void writeValue(Output output, Object value) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            output.writeVarInt(map.size(), true);
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                key.write(output, entry.getKey());
+                this.value.write(output, entry.getValue());
+            }
+        }
+
+        @Override
+        Object readValue(Input input, int depth) {
+            int size = readSize(input);
+            Map<Object, Object> map = factory.get();
+            for (int i = 0; i < size; i++) {
+                map.put(readNested(key, input, depth), readNested(value, input, depth));
+            }
+            return map;
+        }
+    }
+
+    private final class BeanCodec extends TaggedCodec {
+        private final ObjectInstantiator<?> instantiator;
+        FieldCodec[] fields;
+
+        BeanCodec(Class<?> type, ObjectInstantiator<?> instantiator) {
+            super(type);
+            this.instantiator = instantiator;
+        }
+
+        @Override
+        void writeValue(Output output, Object value) {
+            try {
+                for (FieldCodec field : fields) {
+                    field.write(output, value);
+                }
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        Object readValue(Input input, int depth) {
+            Object bean = instantiator.newInstance();
+            try {
+                for (FieldCodec field : fields) {
+                    field.read(input, bean, depth);
+                }
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+            return bean;
+        }
+    }
+
+    private interface FieldCodec {
+        void write(Output output, Object bean) throws Throwable;
+
+        /**
+         * @param depth depth of the bean in positional object graph
+         */
+        void read(Input input, Object bean, int depth) throws Throwable;
+    }
+
+    private static final class ObjectFieldCodec implements FieldCodec {
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        private final Codec codec;
+
+        ObjectFieldCodec(MethodHandle getter, MethodHandle setter, Codec codec) {
+            this.getter = getter.asType(MethodType.methodType(Object.class, Object.class));
+            this.setter = setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+            this.codec = codec;
+        }
+
+        @Override
+        public void write(Output output, Object bean) throws Throwable {
+            codec.write(output, (Object) getter.invokeExact(bean));
+        }
+
+        @Override
+        public void read(Input input, Object bean, int depth) throws Throwable {
+            setter.invokeExact(bean, readNested(codec, input, depth));
+        }
+    }
+
+    /**
+     * Codec of primitive field that is accessed without boxing.
+     */
+    private static final class PrimitiveFieldCodec implements FieldCodec {
+        private final Class<?> type;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        PrimitiveFieldCodec(Class<?> type, MethodHandle getter, MethodHandle setter) {
+            this.type = type;
+            this.getter = getter.asType(MethodType.methodType(type, Object.class));
+            this.setter = setter.asType(MethodType.methodType(void.class, Object.class, type));
+        }
+
+        @Override
+        public void write(Output output, Object bean) throws Throwable {
+            if (type == int.class) {
+                output.writeVarInt((int) getter.invokeExact(bean), false);
+            } else if (type == long.class) {
+                output.writeVarLong((long) getter.invokeExact(bean), false);
+            } else if (type == double.class) {
+                output.writeDouble((double) getter.invokeExact(bean));
+            } else if (type == boolean.class) {
+                output.writeBoolean((boolean) getter.invokeExact(bean));
+            } else if (type == float.class) {
+                output.writeFloat((float) getter.invokeExact(bean));
+            } else if (type == short.class) {
+                output.writeShort((short) getter.invokeExact(bean));
+            } else if (type == byte.class) {
+                output.writeByte((byte) getter.invokeExact(bean));
+            } else {
+                output.writeChar((char) getter.invokeExact(bean));
+            }
+        }
+
+        @Override
+        public void read(Input input, Object bean, int depth) throws Throwable {
+            if (type == int.class) {
+                setter.invokeExact(bean, input.readVarInt(false));
+            } else if (type == long.class) {
+                setter.invokeExact(bean, input.readVarLong(false));
+            } else if (type == double.class) {
+                setter.invokeExact(bean, input.readDouble());
+            } else if (type == boolean.class) {
+                setter.invokeExact(bean, input.readBoolean());
+            } else if (type == float.class) {
+                setter.invokeExact(bean, input.readFloat());
+            } else if (type == short.class) {
+                setter.invokeExact(bean, input.readShort());
+            } else if (type == byte.class) {
+                setter.invokeExact(bean, input.readByte());
+            } else {
+                setter.invokeExact(bean, input.readChar());
+            }
+        }
+    }
+}
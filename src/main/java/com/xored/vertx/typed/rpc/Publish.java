@@ -10,7 +10,7 @@ import java.lang.annotation.Target;
 
 /**
  * Use {@link EventBus#publish(String, Object)} for broadcast message. The method should be one way
- * with returns void otherwise annotation will ignored.
+ * with returns void otherwise annotation will ignored. Batched publications are published as single message.
  * 
  * @author Konstantin Zaitsev
  */
@@ -0,0 +1,169 @@
+package com.xored.vertx.typed.rpc;
+
+import com.esotericsoftware.kryo.io.Input;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistent reply address shared by all clients of EventBus. Calls that are sent with reply channel carry
+ * correlation id instead of registering temporary reply consumer and timeout timer per call. Pending replies are
+ * kept in concurrent table keyed by sequential ids and expire by shared {@link Deadlines timer wheel}.
+ *
+ * @author Konstantin Zaitsev
+ */
+final class ReplyChannel {
+    private static final Logger log = LoggerFactory.getLogger(ReplyChannel.class);
+    private static final Map<EventBus, ReplyChannel> channels = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final String address = "typed-rpc.reply." + UUID.randomUUID();
+    private final AtomicLong ids = new AtomicLong();
+    private final Map<Long, PendingReply> pending = new ConcurrentHashMap<>();
+
+    private ReplyChannel(EventBus eventBus) {
+        eventBus.<Buffer>consumer(address, this::handle);
+    }
+
+    /**
+     * @return reply channel of event bus, it is created on first use
+     */
+    static ReplyChannel get(EventBus eventBus) {
+        return channels.computeIfAbsent(eventBus, ReplyChannel::new);
+    }
+
+    String getAddress() {
+        return address;
+    }
+
+    /**
+     * Registers pending reply. Handler is called on the context of caller with input positioned at serialized results
+     * or with {@link ReplyException} on failure or timeout.
+     *
+     * @param maxBytes maximum size of decompressed results that is checked before they are allocated
+     * @return correlation id of reply
+     */
+    long register(long timeout, int maxBytes, Handler<AsyncResult<Input>> handler) {
+        return register(timeout, maxBytes, handler, false);
+    }
+
+    /**
+     * Registers pending {@link RpcProtocol#FRAME_STREAM stream} that receives any number of replies until it is
+     * {@link #cancel(long) cancelled}. Timeout is applied to the first reply only, streams without timeout wait for it
+     * until they are cancelled.
+     *
+     * @param timeout  time of waiting for the first reply or 0 to wait without timeout
+     * @param maxBytes maximum size of decompressed items that is checked before they are allocated
+     *
+     * @return correlation id of stream replies
+     */
+    long registerStream(long timeout, int maxBytes, Handler<AsyncResult<Input>> handler) {
+        return register(timeout, maxBytes, handler, true);
+    }
+
+    private long register(long timeout, int maxBytes, Handler<AsyncResult<Input>> handler, boolean stream) {
+        long id = ids.incrementAndGet();
+        PendingReply reply = new PendingReply(Vertx.currentContext(), handler, stream, maxBytes);
+        pending.put(id, reply);
+        if (timeout <= 0) {
+            return id;
+        }
+        reply.timeout = Deadlines.schedule(timeout, () -> {
+            if (!reply.replied && pending.remove(id) != null) {
+                reply.handle(Future.failedFuture(new ReplyException(ReplyFailure.TIMEOUT,
+                        "Timed out waiting for reply")));
+            }
+        });
+        if (!pending.containsKey(id)) {
+            // replied or cancelled before timeout was set
+            reply.cancelTimeout();
+        }
+        return id;
+    }
+
+    /**
+     * Removes pending reply that will not be replied, e.g. because call was not sent, or completed stream.
+     */
+    void cancel(long id) {
+        PendingReply reply = pending.remove(id);
+        if (reply != null) {
+            reply.cancelTimeout();
+        }
+    }
+
+    private void handle(Message<Buffer> msg) {
+        Input input = KryoSerializer.input(msg.body());
+        long id = input.readLong();
+        PendingReply reply = pending.get(id);
+        if (reply == null || !reply.stream && pending.remove(id) == null) {
+            log.debug("Reply {} is received after timeout", id);
+            return;
+        }
+        reply.replied = true;
+        reply.cancelTimeout();
+        byte status = input.readByte();
+        if (status == RpcProtocol.REPLY_OK) {
+            reply.handle(Future.succeededFuture(input));
+        } else if (status == RpcProtocol.REPLY_COMPRESSED) {
+            Input results;
+            try {
+                results = KryoSerializer.input(Compressor.decompressChannelReply(msg.body(), reply.maxBytes));
+            } catch (RuntimeException e) {
+                log.error(e.getMessage(), e);
+                reply.handle(Future.failedFuture(e));
+                return;
+            }
+            reply.handle(Future.succeededFuture(results));
+        } else {
+            int failureCode = input.readInt();
+            reply.handle(Future.failedFuture(new ReplyException(ReplyFailure.RECIPIENT_FAILURE, failureCode,
+                    input.readString())));
+        }
+    }
+
+    private static final class PendingReply {
+        private final Context context;
+        private final Handler<AsyncResult<Input>> handler;
+        private final boolean stream;
+        private final int maxBytes;
+        private volatile io.netty.util.Timeout timeout;
+        private volatile boolean replied;
+
+        PendingReply(Context context, Handler<AsyncResult<Input>> handler, boolean stream, int maxBytes) {
+            this.context = context;
+            this.handler = handler;
+            this.stream = stream;
+            this.maxBytes = maxBytes;
+        }
+
+        void cancelTimeout() {
+            io.netty.util.Timeout timeout = this.timeout;
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
+
+        void handle(AsyncResult<Input> result) {
+            if (context == null || context == Vertx.currentContext()) {
+                handler.handle(result);
+            } else {
+                context.runOnContext(v -> handler.handle(result));
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.xored.vertx.typed.rpc;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Client cache of results of {@link Cacheable} method keyed by serialized arguments. Entry is added when call is
+ * sent, so identical calls in flight share its result. Completed entries live until time to live elapses, the least
+ * recently used ones are evicted when cache is full. Each caller gets its own future that depends on the cached
+ * result.
+ *
+ * @author Konstantin Zaitsev
+ */
+final class ResultCache {
+    private final long ttl;
+    private final Map<ArgsKey, Entry> entries;
+
+    /**
+     * @param ttl time to live of completed results in nanoseconds
+     */
+    ResultCache(long ttl, int maxEntries) {
+        this.ttl = ttl;
+        this.entries = new LinkedHashMap<ArgsKey, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ArgsKey, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns cached result of call with specified arguments or makes the call.
+     *
+     * @param args serialized arguments of the call
+     * @param call sends call
+     */
+    CompletableFuture<Object> get(byte[] args, Supplier<CompletableFuture<Object>> call) {
+        ArgsKey key = new ArgsKey(args);
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null && System.nanoTime() - entry.expires < 0) {
+                return copy(entry.result);
+            }
+            entry = new Entry();
+            entries.put(key, entry);
+        }
+
+        Entry added = entry;
+        CompletableFuture<Object> result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            remove(key, added);
+            // identical calls may have already joined the entry
+            added.result.completeExceptionally(e);
+            throw e;
+        }
+        result.whenComplete((value, e) -> {
+            if (e != null) {
+                remove(key, added);
+                added.result.completeExceptionally(e);
+            } else {
+                added.expires = System.nanoTime() + ttl;
+                added.result.complete(value);
+            }
+        });
+        return copy(added.result);
+    }
+
+    /**
+     * Evicts all results, calls in flight are completed but their results are not cached.
+     */
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void remove(ArgsKey key, Entry entry) {
+        entries.remove(key, entry);
+    }
+
+    /**
+     * @return future completed with the same value or exception, so caller cannot complete result of other callers
+     */
+    private static CompletableFuture<Object> copy(CompletableFuture<Object> result) {
+        CompletableFuture<Object> copy = new CompletableFuture<>();
+        result.whenComplete((value, e) -> {
+            if (e != null) {
+                copy.completeExceptionally(e);
+            } else {
+                copy.complete(value);
+            }
+        });
+        return copy;
+    }
+
+    private static final class Entry {
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        // entry in flight does not expire
+        volatile long expires = System.nanoTime() + Long.MAX_VALUE / 2;
+    }
+}
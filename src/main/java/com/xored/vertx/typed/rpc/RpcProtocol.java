@@ -0,0 +1,171 @@
+package com.xored.vertx.typed.rpc;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Constants and helpers of RPC messages format.
+ * <p>
+ * Calls are sent as {@link io.vertx.core.buffer.Buffer} that starts with frame type byte followed by method id varint
+ * and serialized arguments. Frame type bytes have the highest bit set, so they are never confused with the first byte
+ * of legacy calls which contain serialized arguments only and pass method name in {@link #HEADER_METHOD_NAME} header.
+ *
+ * @author Konstantin Zaitsev
+ */
+final class RpcProtocol {
+    /**
+     * Header with method name of legacy calls.
+     */
+    static final String HEADER_METHOD_NAME = "method";
+
+    /**
+     * Header with names of {@link Compression.Codec codecs} separated by comma that sender of message decompresses.
+     * Client sends it with calls of methods with compression to accept compressed replies, server replies with it to
+     * such calls, so client starts to send compressed calls.
+     */
+    static final String HEADER_ACCEPT_ENCODING = "accept-encoding";
+
+    /**
+     * Header with name of {@link Compression.Codec codec} of compressed reply to message.
+     */
+    static final String HEADER_ENCODING = "encoding";
+
+    /**
+     * Frame of single method call.
+     */
+    static final byte FRAME_CALL = (byte) 0x81;
+
+    /**
+     * Frame of several method calls: frame type byte, int number of calls followed by method id varint and serialized
+     * arguments of each call. The reply contains serialized results of calls of methods that return
+     * {@link java.util.concurrent.CompletableFuture} in the order of calls.
+     */
+    static final byte FRAME_BATCH = (byte) 0x82;
+
+    /**
+     * Envelope of call or batch frame that should be replied to {@link ReplyChannel reply channel} of the client:
+     * frame type byte, long correlation id and reply address string followed by the enclosed frame. Replies to the
+     * channel start with the correlation id and {@link #REPLY_OK} or {@link #REPLY_FAILED} status byte.
+     */
+    static final byte FRAME_REPLY_TO = (byte) 0x83;
+
+    /**
+     * Envelope of call frame of method that returns {@link io.vertx.core.streams.ReadStream}: frame type byte, long
+     * correlation id, reply address string and int initial credit followed by the enclosed call frame. Server replies
+     * to the channel with {@link #STREAM_OPEN}, any number of {@link #STREAM_ITEMS} and {@link #STREAM_END} messages
+     * with {@link #REPLY_OK} status, and it sends no more items than the client granted.
+     */
+    static final byte FRAME_STREAM = (byte) 0x84;
+
+    /**
+     * Envelope of call of method with {@link io.vertx.core.streams.ReadStream} parameter: frame type byte, control
+     * address string of the client and byte index of the parameter followed by the enclosed frame. Server requests
+     * items by sending int credit, long correlation id and address string of its reply channel to the control address,
+     * then client sends {@link #STREAM_ITEMS} and {@link #STREAM_END} messages of the argument as server does for
+     * {@link #FRAME_STREAM stream results}.
+     */
+    static final byte FRAME_UPLOAD = (byte) 0x85;
+
+    /**
+     * Envelope of compressed frame: frame type byte and byte ordinal of {@link Compression.Codec codec} followed by int
+     * length and compressed data of the enclosed frame. It is sent only to servers that replied with
+     * {@link #HEADER_ACCEPT_ENCODING} header.
+     */
+    static final byte FRAME_COMPRESSED = (byte) 0x86;
+
+    /**
+     * Stream message with control address string, client sends int credits to it. Negative credit cancels stream.
+     */
+    static final byte STREAM_OPEN = 1;
+
+    /**
+     * Stream message with int number of items followed by serialized items.
+     */
+    static final byte STREAM_ITEMS = 2;
+
+    /**
+     * The last stream message with serialized failure or <code>null</code> if stream is completed normally.
+     */
+    static final byte STREAM_END = 3;
+
+    /**
+     * Status of reply that contains serialized results.
+     */
+    static final byte REPLY_OK = 0;
+
+    /**
+     * Status of reply that contains int failure code and failure message string.
+     */
+    static final byte REPLY_FAILED = 1;
+
+    /**
+     * Status of reply that contains byte ordinal of {@link Compression.Codec codec}, int length and compressed data of
+     * serialized results.
+     */
+    static final byte REPLY_COMPRESSED = 2;
+
+    /**
+     * Status of single result in reply that is followed by value written by {@link RpcSerializer.Codec codec} of
+     * result type.
+     */
+    static final byte RESULT_VALUE = 0;
+
+    /**
+     * Status of single result in reply that is followed by failure of the call written by Kryo.
+     */
+    static final byte RESULT_FAILURE = 1;
+
+    /**
+     * Failure code of legacy call with unknown method name. Servers of previous versions reply with it to calls
+     * without method name header.
+     */
+    static final int FAILURE_METHOD_NOT_FOUND = 1;
+
+    /**
+     * Failure code of call with unknown method id.
+     */
+    static final int FAILURE_METHOD_ID_NOT_FOUND = 2;
+
+    /**
+     * Failure code of call that is rejected because service or method has {@link MaxInFlight maximum number} of calls
+     * in flight.
+     */
+    static final int FAILURE_OVERLOADED = 3;
+
+    /**
+     * Failure code of unexpected server error.
+     */
+    static final int FAILURE_SERVER_ERROR = -1;
+
+    private static final int METHOD_ID_MASK = 0x0FFFFFFF;
+
+    private RpcProtocol() {
+    }
+
+    /**
+     * @return address where clients publish names of methods separated by comma which {@link Cacheable cached}
+     * results are evicted, empty string evicts all results
+     */
+    static String cacheEvictAddress(String address) {
+        return "typed-rpc.cache-evict." + address;
+    }
+
+    /**
+     * Returns stable method id of method with specified {@link ServiceMethods#signature signature}. It is 32-bit FNV-1a
+     * hash of the signature reduced to 28 bits, so it takes at most 4 bytes as varint.
+     */
+    static int methodId(String signature) {
+        return hash(signature) & METHOD_ID_MASK;
+    }
+
+    /**
+     * @return 32-bit FNV-1a hash of UTF-8 bytes of the string
+     */
+    static int hash(String value) {
+        int hash = 0x811C9DC5;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x01000193;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,62 @@
+package com.xored.vertx.typed.rpc;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import java.lang.reflect.Type;
+
+/**
+ * Service provider of serialization of arguments, results and stream items of RPC service methods that is set by
+ * {@link EventBusServiceOptions#setSerializer}. Codecs of parameter, result and item types are created once when client
+ * is created or service is registered, so values are written without lookup of their types. Client and server of the
+ * service should use the same serializer.
+ * <p>
+ * Values are written to and read from Kryo streams that hold frames of the protocol, codecs that do not use Kryo may
+ * use them as {@link java.io.OutputStream} and {@link java.io.InputStream}. Failures of calls and stream failures are
+ * not passed to codecs, they are written by Kryo.
+ *
+ * @author Konstantin Zaitsev
+ */
+public interface RpcSerializer {
+    /**
+     * Kryo serialization with classes of service interface registered by id, values of final declared types are
+     * written without class. It is the default serializer.
+     */
+    Factory KRYO = (serviceInterface, options) -> new KryoSerializer(options, serviceInterface);
+
+    /**
+     * Compact serialization that writes fields of beans in fixed order without names and classes, values of classes
+     * other than declared ones are written by Kryo. Object graphs should be trees, shared objects are written as
+     * copies.
+     */
+    Factory POSITIONAL = PositionalSerializer::new;
+
+    /**
+     * JSON serialization of fields by Jackson mapper of Vert.x for debugging and for peers that do not use Kryo,
+     * beans should have constructor without arguments.
+     */
+    Factory JSON = JsonSerializer::new;
+
+    /**
+     * @param type declared type of parameter, type argument of {@link java.util.concurrent.CompletableFuture} result
+     *             or item type of {@link io.vertx.core.streams.ReadStream} result or parameter
+     * @return codec of values of the type
+     */
+    Codec codec(Type type);
+
+    /**
+     * Writes and reads values of single declared type including <code>null</code>.
+     */
+    interface Codec {
+        void write(Output output, Object value);
+
+        Object read(Input input);
+    }
+
+    /**
+     * Creates serializer of service client or server.
+     */
+    interface Factory {
+        RpcSerializer create(Class<?> serviceInterface, EventBusServiceOptions options);
+    }
+}
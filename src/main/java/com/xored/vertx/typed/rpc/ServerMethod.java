@@ -0,0 +1,267 @@
+package com.xored.vertx.typed.rpc;
+
+import io.vertx.core.streams.ReadStream;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server side metadata of RPC service method that is resolved once at registration.
+ *
+ * @author Konstantin Zaitsev
+ */
+final class ServerMethod {
+    private final String name;
+    private final String signature;
+    private final int id;
+    private final int parameterCount;
+    private final RpcSerializer.Codec[] parameterCodecs;
+    private final RpcSerializer.Codec resultCodec;
+    private final RpcSerializer.Codec[] resultCodecs;
+    private final RpcSerializer.Codec uploadCodec;
+    private final GraphLimits limits;
+    private final boolean returnsFuture;
+    private final boolean returnsStream;
+    private final int streamParameter;
+    private final Invoker invoker;
+    private final MethodExecutor executor;
+    private final MethodMetrics metrics;
+    private final int maxInFlight;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final InFlightCalls singleFlight;
+    private final Compressor compressor;
+
+    private ServerMethod(Method method, Invoker invoker, RpcSerializer serializer, GraphLimits limits,
+            MethodExecutor executor, MethodMetrics metrics, Compressor compressor) {
+        this.name = method.getName();
+        this.signature = ServiceMethods.signature(method);
+        this.id = RpcProtocol.methodId(signature);
+        this.parameterCount = method.getParameterCount();
+        this.returnsFuture = method.getReturnType().isAssignableFrom(CompletableFuture.class);
+        this.returnsStream = method.getReturnType() == ReadStream.class;
+        this.streamParameter = ServiceMethods.streamParameter(method);
+        this.limits = limits;
+        RpcSerializer values = KryoSerializer.limited(serializer, limits);
+        this.parameterCodecs = ServiceMethods.parameterCodecs(method, values);
+        this.resultCodec = ServiceMethods.resultCodec(method, values);
+        this.resultCodecs = new RpcSerializer.Codec[] { resultCodec };
+        this.uploadCodec = streamParameter >= 0 ? values.codec(ServiceMethods.itemType(method, streamParameter))
+                : null;
+        this.invoker = invoker;
+        this.executor = executor;
+        this.metrics = metrics;
+        this.compressor = compressor;
+        MaxInFlight limit = method.getAnnotation(MaxInFlight.class);
+        if (limit != null && limit.value() <= 0) {
+            throw new IllegalArgumentException(String.format("MaxInFlight of %s must be > 0", signature));
+        }
+        this.maxInFlight = limit != null ? limit.value() : Integer.MAX_VALUE;
+        this.singleFlight = ServiceMethods.singleFlight(method);
+    }
+
+    /**
+     * @param serializer serializer that creates codecs of arguments and results
+     * @param limits     references and limits of object graphs of the method
+     * @param executor   executor of calls or <code>null</code> if method is invoked on event loop
+     * @param metrics    metrics of calls or <code>null</code> if they are not recorded
+     * @param compressor compressor of replies or <code>null</code> if they are not compressed
+     */
+    static ServerMethod create(Method method, RpcSerializer serializer, GraphLimits limits, MethodExecutor executor,
+            MethodMetrics metrics, Compressor compressor) {
+        return new ServerMethod(method, createInvoker(method), serializer, limits, executor, metrics, compressor);
+    }
+
+    /**
+     * @param serializer serializer that creates codecs of arguments and results
+     * @param limits     references and limits of object graphs of the method
+     * @param executor   executor of calls or <code>null</code> if method is invoked on event loop
+     * @param metrics    metrics of calls or <code>null</code> if they are not recorded
+     * @param compressor compressor of replies or <code>null</code> if they are not compressed
+     */
+    static ServerMethod create(Method method, Invoker invoker, RpcSerializer serializer, GraphLimits limits,
+            MethodExecutor executor, MethodMetrics metrics, Compressor compressor) {
+        return new ServerMethod(method, invoker, serializer, limits, executor, metrics, compressor);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String getSignature() {
+        return signature;
+    }
+
+    /**
+     * @return {@link RpcProtocol#methodId(String) id} of the method
+     */
+    int getId() {
+        return id;
+    }
+
+    int getParameterCount() {
+        return parameterCount;
+    }
+
+    /**
+     * @return codecs of parameters
+     */
+    RpcSerializer.Codec[] getParameterCodecs() {
+        return parameterCodecs;
+    }
+
+    /**
+     * @return codec of result or of items of {@link ReadStream} result
+     */
+    RpcSerializer.Codec getResultCodec() {
+        return resultCodec;
+    }
+
+    /**
+     * @return array with the only {@link #getResultCodec() codec of result}
+     */
+    RpcSerializer.Codec[] getResultCodecs() {
+        return resultCodecs;
+    }
+
+    /**
+     * @return codec of items of {@link ReadStream} parameter or <code>null</code> if there is no such parameter
+     */
+    RpcSerializer.Codec getUploadCodec() {
+        return uploadCodec;
+    }
+
+    /**
+     * @return references and limits of object graphs of the method
+     */
+    GraphLimits getLimits() {
+        return limits;
+    }
+
+    boolean returnsFuture() {
+        return returnsFuture;
+    }
+
+    boolean returnsStream() {
+        return returnsStream;
+    }
+
+    /**
+     * @return index of {@link ReadStream} parameter that is uploaded in chunks or -1 if there is no such parameter
+     */
+    int getStreamParameter() {
+        return streamParameter;
+    }
+
+    /**
+     * @return executor of calls or <code>null</code> if method is invoked on event loop
+     */
+    MethodExecutor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * @return metrics of calls or <code>null</code> if they are not recorded
+     */
+    MethodMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Counts call as in flight unless method has {@link MaxInFlight maximum number} of calls in flight, counted call
+     * should be {@link #release() released} once it is completed.
+     *
+     * @return <code>false</code> if call is rejected
+     */
+    boolean acquire() {
+        if (maxInFlight == Integer.MAX_VALUE) {
+            return true;
+        }
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    void release() {
+        if (maxInFlight != Integer.MAX_VALUE) {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * @return calls in flight of {@link SingleFlight} method or <code>null</code>
+     */
+    InFlightCalls getSingleFlight() {
+        return singleFlight;
+    }
+
+    /**
+     * @return compressor of replies or <code>null</code> if they are not compressed
+     */
+    Compressor getCompressor() {
+        return compressor;
+    }
+
+    Object invoke(Object target, Object[] args) throws Throwable {
+        return invoker.invoke(target, args);
+    }
+
+    /**
+     * Invokes method or shares result of identical call in flight if method is {@link SingleFlight}.
+     *
+     * @param key serialized arguments of the call or <code>null</code> if it is not de-duplicated
+     */
+    @SuppressWarnings("unchecked")
+    Object invoke(Object target, Object[] args, byte[] key) throws Throwable {
+        if (singleFlight == null || key == null) {
+            return invoker.invoke(target, args);
+        }
+        return singleFlight.get(key, () -> {
+            try {
+                return (CompletableFuture<Object>) invoker.invoke(target, args);
+            } catch (Throwable e) {
+                CompletableFuture<Object> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                return failed;
+            }
+        });
+    }
+
+    /**
+     * Creates invoker from method handle adapted to generic signature. Methods with up to three parameters are
+     * invoked without spreading arguments array.
+     */
+    private static Invoker createInvoker(Method method) {
+        MethodHandle handle;
+        try {
+            method.setAccessible(true);
+            handle = MethodHandles.lookup().unreflect(method).asFixedArity();
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(String.format("Method %s is not accessible", method), e);
+        }
+        int count = method.getParameterCount();
+        final MethodHandle generic = handle.asType(MethodType.genericMethodType(count + 1));
+        switch (count) {
+        case 0:
+            return (target, args) -> generic.invokeExact(target);
+        case 1:
+            return (target, args) -> generic.invokeExact(target, args[0]);
+        case 2:
+            return (target, args) -> generic.invokeExact(target, args[0], args[1]);
+        case 3:
+            return (target, args) -> generic.invokeExact(target, args[0], args[1], args[2]);
+        default:
+            final MethodHandle spreader = generic.asSpreader(Object[].class, count);
+            return (target, args) -> spreader.invokeExact(target, args);
+        }
+    }
+}
@@ -0,0 +1,916 @@
+package com.xored.vertx.typed.rpc;
+
+import com.esotericsoftware.kryo.io.Input;
+import io.vertx.core.Context;
+import io.vertx.core.MultiMap;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.core.streams.ReadStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Client side of RPC service that sends method calls over EventBus. It is shared by proxy and generated clients.
+ *
+ * @author Konstantin Zaitsev
+ */
+final class ServiceClient {
+    private static final Logger log = LoggerFactory.getLogger(ServiceClient.class);
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private final EventBus eventBus;
+    private final String address;
+    private final KryoSerializer serializer;
+    private final KryoSerializer legacySerializer;
+    private final Map<String, ClientMethod> methodsBySignature = new HashMap<>();
+    private final Map<Method, ClientMethod> methods = new HashMap<>();
+    private final boolean batching;
+    private final long batchWindow;
+    private final int maxBatchSize;
+    private final boolean useReplyChannel;
+    private final int streamWindow;
+    private final int streamChunkSize;
+    private final long streamIdleTimeout;
+    private final Compressor compressor;
+    private final DeliveryOptions acceptOptions;
+    private final GraphLimits limits;
+    private volatile boolean methodNameHeader;
+    private volatile String serverAccepted;
+    private volatile ReplyChannel replyChannel;
+    private volatile MessageConsumer<String> evictConsumer;
+    /**
+     * Current batches of contexts, so results of batched calls are completed on contexts of their callers.
+     */
+    private final Map<Context, CallBatch> batches = new HashMap<>();
+    private final Map<Context, CallBatch> publishBatches = new HashMap<>();
+
+    ServiceClient(EventBus eventBus, Class<?> serviceInterface, String address, EventBusServiceOptions options) {
+        this.eventBus = eventBus;
+        this.address = address;
+        this.serializer = new KryoSerializer(options, serviceInterface);
+        this.legacySerializer = new KryoSerializer(options);
+        this.methodNameHeader = options.isMethodNameHeader();
+        this.batching = options.isBatching();
+        this.batchWindow = options.getBatchWindow();
+        this.maxBatchSize = options.getMaxBatchSize();
+        this.useReplyChannel = options.isReplyChannel();
+        this.streamWindow = options.getStreamWindow();
+        this.streamChunkSize = options.getStreamChunkSize();
+        this.streamIdleTimeout = options.getStreamIdleTimeout();
+        this.compressor = Compressor.create(null, serviceInterface, options);
+        this.limits = GraphLimits.create(null, serviceInterface, options);
+        this.acceptOptions = compressor != null ? new DeliveryOptions()
+                .addHeader(RpcProtocol.HEADER_ACCEPT_ENCODING, Compressor.ACCEPTED) : null;
+        // default codecs share Kryo instances with frames
+        RpcSerializer values = options.getSerializer() == RpcSerializer.KRYO ? serializer
+                : options.getSerializer().create(serviceInterface, options);
+
+        for (Entry<String, Method> entry : ServiceMethods.of(serviceInterface).entrySet()) {
+            ClientMethod method = new ClientMethod(entry.getValue(), serviceInterface, options, values);
+            methodsBySignature.put(entry.getKey(), method);
+            methods.put(entry.getValue(), method);
+        }
+        LocalMessageCodec.register(eventBus);
+    }
+
+    String getAddress() {
+        return address;
+    }
+
+    /**
+     * @return method by its {@link ServiceMethods#signature(Method) signature}
+     */
+    ClientMethod method(String signature) {
+        ClientMethod method = methodsBySignature.get(signature);
+        if (method == null) {
+            throw new IllegalStateException(String.format("Method %s not found in %s", signature, address));
+        }
+        return method;
+    }
+
+    /**
+     * @return method or <code>null</code> if it is not service method.
+     */
+    ClientMethod method(Method method) {
+        return methods.get(method);
+    }
+
+    @SuppressWarnings("unchecked")
+    Object invoke(ClientMethod method, Object[] args) {
+        if (args == null) {
+            args = NO_ARGS;
+        }
+        ResultCache cache = method.getCache();
+        InFlightCalls singleFlight = method.getSingleFlight();
+        if (cache != null && evictConsumer == null) {
+            listenEvictions();
+        }
+        if (cache != null || singleFlight != null) {
+            // call is encoded once, its bytes are the key and the body of the call
+            Buffer call = serializer.writeCall(method.getId(), args, method.getParameterCodecs());
+            Object[] callArgs = args;
+            Supplier<CompletableFuture<Object>> invocation = () -> (CompletableFuture<Object>) invokeRecorded(method,
+                    callArgs, call);
+            return cache != null ? cache.get(call.getBytes(), invocation)
+                    : singleFlight.get(call.getBytes(), invocation);
+        }
+        evict(method);
+        return invokeRecorded(method, args, null);
+    }
+
+    /**
+     * Registers consumer of evictions that are published by other clients once results are cached, so pipelines and
+     * clients without cached calls do not register it.
+     */
+    private synchronized void listenEvictions() {
+        if (evictConsumer == null) {
+            evictConsumer = eventBus.consumer(RpcProtocol.cacheEvictAddress(address),
+                    msg -> evict(msg.body().isEmpty() ? new String[0] : msg.body().split(",")));
+        }
+    }
+
+    /**
+     * Unregisters consumer of cache evictions and clears cached results. Consumer is registered again if cached
+     * method is called afterwards.
+     */
+    synchronized void close() {
+        if (evictConsumer != null) {
+            evictConsumer.unregister();
+            evictConsumer = null;
+        }
+        evict(new String[0]);
+    }
+
+    /**
+     * Evicts cached results of this and other clients that are evicted by {@link CacheEvict} method.
+     */
+    private void evict(ClientMethod method) {
+        String[] evicts = method.getEvicts();
+        if (evicts != null) {
+            evict(evicts);
+            eventBus.publish(RpcProtocol.cacheEvictAddress(address), String.join(",", evicts));
+        }
+    }
+
+    /**
+     * @return new batch of {@link CallPipeline pipeline}
+     */
+    CallBatch newPipeline() {
+        return new CallBatch(serializer, false);
+    }
+
+    /**
+     * Adds call to pipeline, cached results and calls in flight are not shared with pipelined calls.
+     *
+     * @throws IllegalArgumentException if method streams or publishes
+     */
+    void pipeline(CallBatch pipeline, ClientMethod method, Object[] args) {
+        if (method.getStreamParameter() >= 0 || method.returnsStream() || method.isPublish()) {
+            throw new IllegalArgumentException(String.format("Method %s of %s cannot be pipelined",
+                    method.getName(), address));
+        }
+        if (!method.isOneWay() && !method.returnsFuture()) {
+            throw new RuntimeException("EventBusService support only CompletableFuture and ReadStream returns");
+        }
+        evict(method);
+        int size = pipeline.add(method, args != null ? args : NO_ARGS);
+        MethodMetrics metrics = method.getMetrics();
+        if (metrics != null) {
+            metrics.started();
+            metrics.requestSize(size);
+            if (method.isOneWay()) {
+                metrics.completed(0, false);
+            }
+        }
+    }
+
+    /**
+     * Sends calls of pipeline as single batch message.
+     *
+     * @return future of results in the order of calls, results of one way calls are <code>null</code> and failed
+     * calls have their exceptions as results
+     */
+    CompletableFuture<Object[]> flushPipeline(CallBatch pipeline) {
+        CompletableFuture<Object[]> result = new CompletableFuture<>();
+        if (pipeline.size() == 0) {
+            result.complete(NO_ARGS);
+            return result;
+        }
+        if (pipeline.getResultMethods().isEmpty()) {
+            eventBus.send(address, compress(compressor, pipeline.toBuffer()));
+            result.complete(new Object[pipeline.size()]);
+            return result;
+        }
+        long started = System.nanoTime();
+        ReplyChannel channel = replyChannel;
+        if (channel != null) {
+            long id = channel.register(pipeline.getTimeout(), limits.maxBytes, r -> {
+                if (r.failed()) {
+                    failPipeline(pipeline, result, r.cause());
+                } else {
+                    completePipeline(pipeline, result, r.result(), started);
+                }
+            });
+            Buffer call = compress(compressor, pipeline.toBuffer(id, channel.getAddress()));
+            if (acceptOptions != null) {
+                eventBus.send(address, call, acceptOptions);
+            } else {
+                eventBus.send(address, call);
+            }
+            return result;
+        }
+        DeliveryOptions deliveryOptions = new DeliveryOptions().setSendTimeout(pipeline.getTimeout());
+        if (compressor != null) {
+            deliveryOptions.addHeader(RpcProtocol.HEADER_ACCEPT_ENCODING, Compressor.ACCEPTED);
+        }
+        eventBus.send(address, compress(compressor, pipeline.toBuffer()), deliveryOptions, r -> {
+            if (r.failed()) {
+                failPipeline(pipeline, result, r.cause());
+                return;
+            }
+            enableReplyChannel();
+            Input input;
+            try {
+                input = KryoSerializer.input(replyBody(r.result(), compressor != null, limits));
+            } catch (Throwable e) {
+                failPipeline(pipeline, result, e);
+                return;
+            }
+            completePipeline(pipeline, result, input, started);
+        });
+        return result;
+    }
+
+    private void failPipeline(CallBatch pipeline, CompletableFuture<Object[]> result, Throwable cause) {
+        for (ClientMethod method : pipeline.getResultMethods()) {
+            if (method.getMetrics() != null) {
+                method.getMetrics().completed(0, true);
+            }
+        }
+        result.completeExceptionally(cause);
+    }
+
+    /**
+     * Reads results of pipelined calls that expect result, other calls have <code>null</code> results.
+     */
+    private void completePipeline(CallBatch pipeline, CompletableFuture<Object[]> result, Input input,
+            long started) {
+        List<ClientMethod> methods = pipeline.getMethods();
+        Object[] values = new Object[methods.size()];
+        try {
+            limits.checkBytes(KryoSerializer.remaining(input));
+            KryoPool.Scope scope = serializer.enter();
+            try {
+                for (int i = 0; i < values.length; i++) {
+                    ClientMethod method = methods.get(i);
+                    if (method.returnsFuture()) {
+                        values[i] = serializer.readResult(input, method.getResultCodec());
+                    }
+                }
+            } finally {
+                serializer.exit(scope);
+            }
+        } catch (Throwable e) {
+            failPipeline(pipeline, result, e);
+            return;
+        }
+        long elapsed = System.nanoTime() - started;
+        for (int i = 0; i < values.length; i++) {
+            MethodMetrics metrics = methods.get(i).getMetrics();
+            if (metrics != null && methods.get(i).returnsFuture()) {
+                metrics.completed(elapsed, values[i] instanceof Throwable);
+            }
+        }
+        result.complete(values);
+    }
+
+    /**
+     * Evicts cached results of methods with specified names or of all methods if names are not specified.
+     */
+    private void evict(String[] names) {
+        for (ClientMethod method : methods.values()) {
+            if (method.getCache() != null && (names.length == 0 || Arrays.asList(names).contains(method.getName()))) {
+                method.getCache().clear();
+            }
+        }
+    }
+
+    /**
+     * Invokes method and records the call if its metrics are recorded.
+     *
+     * @param call {@link RpcProtocol#FRAME_CALL call frame} that is already written or <code>null</code>
+     */
+    private Object invokeRecorded(ClientMethod method, Object[] args, Buffer call) {
+        MethodMetrics metrics = method.getMetrics();
+        if (metrics == null) {
+            return dispatch(method, args, call);
+        }
+        long started = System.nanoTime();
+        metrics.started();
+        Object result;
+        try {
+            result = dispatch(method, args, call);
+        } catch (RuntimeException e) {
+            metrics.completed(System.nanoTime() - started, true);
+            throw e;
+        }
+        // completion of future results is recorded by MeteredResult
+        if (result instanceof StreamReceiver) {
+            ((StreamReceiver<?>) result).completionHandler(e -> metrics.completed(System.nanoTime() - started,
+                    e != null));
+        } else if (result == null) {
+            metrics.completed(System.nanoTime() - started, false);
+        }
+        return result;
+    }
+
+    /**
+     * @return future of call result that records completion of the call if metrics are recorded
+     */
+    private static CompletableFuture<Object> newResult(ClientMethod method) {
+        MethodMetrics metrics = method.getMetrics();
+        return metrics != null ? new MeteredResult(metrics) : new CompletableFuture<>();
+    }
+
+    private Object dispatch(ClientMethod method, Object[] args, Buffer call) {
+        if (method.getStreamParameter() >= 0) {
+            return upload(method, args);
+        }
+        if (method.isOneWay()) {
+            oneWay(method, args);
+            return null;
+        }
+        if (method.returnsStream()) {
+            return stream(method, args);
+        }
+        if (!method.returnsFuture()) {
+            throw new RuntimeException("EventBusService support only CompletableFuture and ReadStream returns");
+        }
+        if (batching && method.getLocal() == null && !methodNameHeader) {
+            Context context = Vertx.currentContext();
+            if (context != null) {
+                return batch(context, method, args, call);
+            }
+        }
+
+        CompletableFuture<Object> result = newResult(method);
+        call(method, args, call, result);
+        return result;
+    }
+
+    /**
+     * Sends one way call without any reply bookkeeping. Calls of {@link Publish} methods are batched separately and
+     * published to all servers.
+     */
+    private void oneWay(ClientMethod method, Object[] args) {
+        if (batching && method.getLocal() == null && !methodNameHeader) {
+            Context context = Vertx.currentContext();
+            if (context != null) {
+                batch(context, method, args, null);
+                return;
+            }
+        }
+        boolean nameHeader = methodNameHeader && method.getLocal() == null;
+        Object body = body(method, args, null, nameHeader);
+        requestSize(method, body);
+        DeliveryOptions deliveryOptions = nameHeader ? method.getMethodHeaderDeliveryOptions()
+                : method.getDeliveryOptions();
+        if (method.isPublish()) {
+            eventBus.publish(address, body, deliveryOptions);
+        } else {
+            eventBus.send(address, body, deliveryOptions);
+        }
+    }
+
+    /**
+     * Sends single call.
+     *
+     * @param call   {@link RpcProtocol#FRAME_CALL call frame} that is already written or <code>null</code>
+     * @param result future of call result or <code>null</code> for one way calls
+     */
+    private void call(ClientMethod method, Object[] args, Buffer call, CompletableFuture<Object> result) {
+        if (result == null) {
+            oneWay(method, args);
+            return;
+        }
+        ReplyChannel channel = replyChannel;
+        if (channel != null && method.getLocal() == null && !methodNameHeader) {
+            Buffer body = compress(method.getCompressor(), channelCall(channel, method, args, call, result));
+            requestSize(method, body);
+            eventBus.send(address, body, method.getDeliveryOptions());
+            return;
+        }
+        boolean nameHeader = methodNameHeader && method.getLocal() == null;
+        Object body = body(method, args, call, nameHeader);
+        requestSize(method, body);
+        DeliveryOptions deliveryOptions = nameHeader ? method.getMethodHeaderDeliveryOptions()
+                : method.getDeliveryOptions();
+        send(method, args, body, deliveryOptions, nameHeader, result);
+    }
+
+    /**
+     * Adds call to the current batch of context, batch is sent at the end of batch window or when it is full.
+     */
+    private CompletableFuture<Object> batch(Context context, ClientMethod method, Object[] args, Buffer call) {
+        CompletableFuture<Object> result = method.isOneWay() ? null : newResult(method);
+        boolean publish = method.isPublish();
+        CallBatch full = null;
+        Map<Context, CallBatch> current = publish ? publishBatches : batches;
+        synchronized (this) {
+            CallBatch batch = current.get(context);
+            if (batch == null) {
+                CallBatch created = new CallBatch(serializer, publish);
+                batch = created;
+                current.put(context, created);
+                // timer of current context fires on the same context
+                if (batchWindow > 0) {
+                    context.owner().setTimer(batchWindow, id -> flush(context, created));
+                } else {
+                    context.runOnContext(v -> flush(context, created));
+                }
+            }
+            int size = batch.add(method, args, call, result);
+            if (method.getMetrics() != null) {
+                method.getMetrics().requestSize(size);
+            }
+            if (batch.size() >= maxBatchSize) {
+                full = batch;
+                current.remove(context);
+            }
+        }
+        if (full != null) {
+            send(full);
+        }
+        return result;
+    }
+
+    private void flush(Context context, CallBatch scheduled) {
+        synchronized (this) {
+            Map<Context, CallBatch> current = scheduled.isPublish() ? publishBatches : batches;
+            if (!current.remove(context, scheduled)) {
+                // already sent because it was full
+                return;
+            }
+        }
+        send(scheduled);
+    }
+
+    @SuppressWarnings("ThrowableResultOfMethodCallIgnored")
+    private void send(CallBatch batch) {
+        if (batch.size() == 0) {
+            return;
+        }
+        if (batch.isPublish()) {
+            eventBus.publish(address, compress(compressor, batch.toBuffer()));
+            return;
+        }
+        List<CompletableFuture<Object>> results = batch.getResults();
+        if (results.isEmpty()) {
+            eventBus.send(address, compress(compressor, batch.toBuffer()));
+            return;
+        }
+        List<ClientMethod> resultMethods = batch.getResultMethods();
+        Context context = Vertx.currentContext();
+        for (int i = 0; i < results.size(); i++) {
+            if (resultMethods.get(i).getTimeout() < batch.getTimeout()) {
+                // calls with shorter timeout are not waiting for the whole batch
+                ClientMethod method = resultMethods.get(i);
+                CompletableFuture<Object> result = results.get(i);
+                io.netty.util.Timeout timeout = Deadlines.schedule(method.getTimeout(), () -> {
+                    if (context != null) {
+                        context.runOnContext(v -> result.completeExceptionally(timeoutException(method)));
+                    } else {
+                        result.completeExceptionally(timeoutException(method));
+                    }
+                });
+                result.whenComplete((value, e) -> timeout.cancel());
+            }
+        }
+
+        ReplyChannel channel = replyChannel;
+        if (channel != null) {
+            long id = channel.register(batch.getTimeout(), limits.maxBytes, r -> {
+                if (r.failed()) {
+                    fail(resultMethods, results, r.cause());
+                } else {
+                    try {
+                        limits.checkBytes(KryoSerializer.remaining(r.result()));
+                    } catch (Throwable e) {
+                        fail(resultMethods, results, e);
+                        return;
+                    }
+                    complete(resultMethods, results, r.result());
+                }
+            });
+            Buffer call = compress(compressor, batch.toBuffer(id, channel.getAddress()));
+            if (acceptOptions != null) {
+                eventBus.send(address, call, acceptOptions);
+            } else {
+                eventBus.send(address, call);
+            }
+            return;
+        }
+        DeliveryOptions deliveryOptions = new DeliveryOptions().setSendTimeout(batch.getTimeout());
+        if (compressor != null) {
+            deliveryOptions.addHeader(RpcProtocol.HEADER_ACCEPT_ENCODING, Compressor.ACCEPTED);
+        }
+        eventBus.send(address, compress(compressor, batch.toBuffer()), deliveryOptions, r -> {
+            if (r.failed()) {
+                if (isMethodNameRequired(r.cause())) {
+                    // server of previous version does not understand batches, repeat calls with method name
+                    if (!methodNameHeader) {
+                        log.warn("Service {} requires method name header, switching to legacy calls", address);
+                        methodNameHeader = true;
+                    }
+                    for (int i = 0, j = 0; i < batch.size(); i++) {
+                        ClientMethod method = batch.getMethods().get(i);
+                        call(method, batch.getArgs().get(i), null, method.isOneWay() ? null : results.get(j++));
+                    }
+                    return;
+                }
+                fail(resultMethods, results, r.cause());
+                return;
+            }
+            enableReplyChannel();
+            Input input;
+            try {
+                input = KryoSerializer.input(replyBody(r.result(), compressor != null, limits));
+            } catch (Throwable e) {
+                fail(resultMethods, results, e);
+                return;
+            }
+            complete(resultMethods, results, input);
+        });
+    }
+
+    private void fail(List<ClientMethod> methods, List<CompletableFuture<Object>> results, Throwable cause) {
+        for (int i = 0; i < results.size(); i++) {
+            results.get(i).completeExceptionally(failure(methods.get(i), cause));
+        }
+    }
+
+    private void complete(List<ClientMethod> methods, List<CompletableFuture<Object>> results, Input input) {
+        try {
+            Object[] values = new Object[results.size()];
+            KryoPool.Scope scope = serializer.enter();
+            try {
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = serializer.readResult(input, methods.get(i).getResultCodec());
+                }
+            } finally {
+                serializer.exit(scope);
+            }
+            for (int i = 0; i < values.length; i++) {
+                complete(results.get(i), values[i]);
+            }
+        } catch (Throwable e) {
+            results.forEach(result -> result.completeExceptionally(e));
+        }
+    }
+
+    /**
+     * Creates message body that identifies method by id or by name header for legacy calls.
+     *
+     * @param call {@link RpcProtocol#FRAME_CALL call frame} that is already written or <code>null</code>
+     */
+    private Object body(ClientMethod method, Object[] args, Buffer call, boolean nameHeader) {
+        if (method.getLocal() != null) {
+            return new LocalMessage(method.getId(), args, method.getLocal().copy());
+        }
+        if (nameHeader) {
+            return method.getParameterCount() > 0 ? legacySerializer.writeObjects(args) : null;
+        }
+        return compress(method.getCompressor(), call != null ? call : serializer.writeCall(method.getId(), args,
+                method.getParameterCodecs()));
+    }
+
+    @SuppressWarnings("ThrowableResultOfMethodCallIgnored")
+    private void send(ClientMethod method, Object[] args, Object body, DeliveryOptions deliveryOptions,
+            boolean nameHeader, CompletableFuture<Object> result) {
+        eventBus.send(address, body, deliveryOptions, r -> {
+            if (r.failed()) {
+                if (!nameHeader && method.getLocal() == null && isMethodNameRequired(r.cause())) {
+                    // server of previous version does not understand method id, repeat call with method name
+                    if (!methodNameHeader) {
+                        log.warn("Service {} requires method name header, switching to legacy calls", address);
+                        methodNameHeader = true;
+                    }
+                    Object legacyBody = body(method, args, null, true);
+                    requestSize(method, legacyBody);
+                    send(method, args, legacyBody, method.getMethodHeaderDeliveryOptions(), true, result);
+                    return;
+                }
+                result.completeExceptionally(failure(method, r.cause()));
+                return;
+            }
+            if (!nameHeader && method.getLocal() == null) {
+                enableReplyChannel();
+            }
+            Message<Object> msg = r.result();
+            if (msg != null) {
+                replySize(method, msg.body());
+            }
+            Object value;
+            try {
+                value = msg != null ? readReply(method, msg, nameHeader) : null;
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            complete(result, value);
+        });
+    }
+
+    /**
+     * Registers call that is replied to reply channel.
+     *
+     * @return body of the call
+     */
+    private Buffer channelCall(ReplyChannel channel, ClientMethod method, Object[] args, Buffer call,
+            CompletableFuture<Object> result) {
+        long id = channel.register(method.getTimeout(), method.getLimits().maxBytes, r -> {
+            if (r.failed()) {
+                result.completeExceptionally(failure(method, r.cause()));
+                return;
+            }
+            if (method.getMetrics() != null) {
+                method.getMetrics().replySize(KryoSerializer.remaining(r.result()));
+            }
+            Object value;
+            try {
+                method.getLimits().checkBytes(KryoSerializer.remaining(r.result()));
+                value = serializer.readResult(r.result(), method.getResultCodec());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            complete(result, value);
+        });
+        try {
+            return call != null ? KryoSerializer.writeReplyTo(id, channel.getAddress(), call)
+                    : serializer.writeCall(id, channel.getAddress(), method.getId(), args, method.getParameterCodecs());
+        } catch (RuntimeException e) {
+            channel.cancel(id);
+            throw e;
+        }
+    }
+
+    /**
+     * Calls method that returns {@link ReadStream}. Items are always sent to reply channel, so stream calls are
+     * neither batched nor passed by reference and they are not supported by servers of previous versions. Server
+     * acknowledges the call once it is received, so stream fails at once if service is not registered.
+     */
+    private ReadStream<Object> stream(ClientMethod method, Object[] args) {
+        StreamReceiver<Object> stream = newStream(method);
+        Buffer call = compress(method.getCompressor(), streamCall(ReplyChannel.get(eventBus), method, args, stream));
+        requestSize(method, call);
+        eventBus.send(address, call, method.getStreamDeliveryOptions(), r -> {
+            if (r.failed()) {
+                stream.end(failure(method, r.cause()));
+            }
+        });
+        return stream;
+    }
+
+    private StreamReceiver<Object> newStream(ClientMethod method) {
+        return new StreamReceiver<>(eventBus, serializer, method.getResultCodec(), streamWindow, streamIdleTimeout,
+                () -> new EventBusServiceTimeoutException(address, method.getName(), streamIdleTimeout));
+    }
+
+    /**
+     * Registers stream call that is replied to reply channel.
+     *
+     * @return body of the call
+     */
+    private Buffer streamCall(ReplyChannel channel, ClientMethod method, Object[] args,
+            StreamReceiver<Object> stream) {
+        long id = channel.registerStream(method.getTimeout(), method.getLimits().maxBytes, r -> {
+            if (r.failed()) {
+                stream.end(failure(method, r.cause()));
+            } else {
+                stream.handle(r.result());
+            }
+        });
+        stream.closeHandler(() -> channel.cancel(id));
+        try {
+            return serializer.writeStreamCall(id, channel.getAddress(), streamWindow, method.getId(), args,
+                    method.getParameterCodecs());
+        } catch (RuntimeException e) {
+            channel.cancel(id);
+            throw e;
+        }
+    }
+
+    /**
+     * Calls method with {@link ReadStream} parameter. Call is sent once control address of the upload is registered,
+     * items of the argument are sent when server requests them. Uploads are replied to reply channel like stream
+     * calls and acknowledged like them, the timeout of the method includes the time of upload.
+     */
+    private Object upload(ClientMethod method, Object[] args) {
+        int index = method.getStreamParameter();
+        Object[] callArgs = args.clone();
+        callArgs[index] = null;
+        CompletableFuture<Object> result = method.returnsFuture() ? newResult(method) : null;
+        StreamReceiver<Object> stream = method.returnsStream() ? newStream(method) : null;
+        StreamSender sender = new StreamSender(eventBus, serializer, method.getUploadCodec(), streamChunkSize);
+        if (result != null) {
+            // server that completed call does not request the rest of upload
+            result.whenComplete((value, e) -> sender.cancel());
+        }
+        sender.start((ReadStream<?>) args[index], r -> {
+            Buffer call;
+            try {
+                if (r.failed()) {
+                    throw r.cause();
+                }
+                ReplyChannel channel = ReplyChannel.get(eventBus);
+                if (result != null) {
+                    call = channelCall(channel, method, callArgs, null, result);
+                } else if (stream != null) {
+                    call = streamCall(channel, method, callArgs, stream);
+                } else {
+                    call = serializer.writeCall(method.getId(), callArgs, method.getParameterCodecs());
+                }
+            } catch (Throwable e) {
+                log.error(e.getMessage(), e);
+                sender.cancel();
+                if (result != null) {
+                    result.completeExceptionally(e);
+                } else if (stream != null) {
+                    stream.end(e);
+                }
+                return;
+            }
+            Buffer upload = compress(method.getCompressor(), KryoSerializer.writeUpload(r.result(), index, call));
+            requestSize(method, upload);
+            eventBus.send(address, upload, method.getStreamDeliveryOptions(), ar -> {
+                if (ar.failed()) {
+                    sender.cancel();
+                    if (result != null) {
+                        result.completeExceptionally(failure(method, ar.cause()));
+                    } else if (stream != null) {
+                        stream.end(failure(method, ar.cause()));
+                    }
+                }
+            });
+        });
+        return result != null ? result : stream;
+    }
+
+    /**
+     * Switches to reply channel once server replied to call with method id, so it understands reply channel too.
+     */
+    private void enableReplyChannel() {
+        if (useReplyChannel && replyChannel == null) {
+            replyChannel = ReplyChannel.get(eventBus);
+        }
+    }
+
+    private static void complete(CompletableFuture<Object> result, Object value) {
+        if (value instanceof Throwable) {
+            result.completeExceptionally((Throwable) value);
+        } else {
+            result.complete(value);
+        }
+    }
+
+    /**
+     * @return typed exception for timeout and overload or the cause itself for other failures
+     */
+    private Throwable failure(ClientMethod method, Throwable cause) {
+        if (!(cause instanceof ReplyException) || cause instanceof EventBusServiceOverloadedException) {
+            return cause;
+        }
+        ReplyException e = (ReplyException) cause;
+        if (e.failureType() == ReplyFailure.TIMEOUT) {
+            return timeoutException(method);
+        }
+        if (e.failureType() == ReplyFailure.RECIPIENT_FAILURE && e.failureCode() == RpcProtocol.FAILURE_OVERLOADED) {
+            return new EventBusServiceOverloadedException(address, method.getName(), e.getMessage());
+        }
+        return cause;
+    }
+
+    private EventBusServiceTimeoutException timeoutException(ClientMethod method) {
+        return new EventBusServiceTimeoutException(address, method.getName(), method.getTimeout());
+    }
+
+    private static void requestSize(ClientMethod method, Object body) {
+        if (method.getMetrics() != null && body instanceof Buffer) {
+            method.getMetrics().requestSize(((Buffer) body).length());
+        }
+    }
+
+    private static void replySize(ClientMethod method, Object body) {
+        if (method.getMetrics() != null && body instanceof Buffer) {
+            method.getMetrics().replySize(((Buffer) body).length());
+        }
+    }
+
+    private static boolean isMethodNameRequired(Throwable cause) {
+        if (!(cause instanceof ReplyException)) {
+            return false;
+        }
+        ReplyException e = (ReplyException) cause;
+        return e.failureType() == ReplyFailure.RECIPIENT_FAILURE
+                && e.failureCode() == RpcProtocol.FAILURE_METHOD_NOT_FOUND;
+    }
+
+    /**
+     * @param nameHeader whether it is reply to legacy call which result is written with class
+     */
+    private Object readReply(ClientMethod method, Message<Object> reply, boolean nameHeader) {
+        Object body = reply.body();
+        if (body instanceof LocalMessage) {
+            return ((LocalMessage) body).values(serializer, 1)[0];
+        }
+        Buffer buffer = replyBody(reply, method.getCompressor() != null, method.getLimits());
+        return nameHeader ? serializer.readObject(buffer)
+                : serializer.readResult(KryoSerializer.input(buffer), method.getResultCodec());
+    }
+
+    /**
+     * Returns serialized results of reply that are decompressed if they are compressed. Codecs accepted by server are
+     * remembered once it replied to call that accepted compression, so the following calls are compressed.
+     *
+     * @param accepting whether the call accepted compressed reply
+     * @param limits    limits of reply that are checked before it is decompressed
+     */
+    private Buffer replyBody(Message<Object> reply, boolean accepting, GraphLimits limits) {
+        Buffer body = (Buffer) reply.body();
+        if (body != null) {
+            limits.checkBytes(body.length());
+        }
+        if (!accepting) {
+            return body;
+        }
+        MultiMap headers = reply.headers();
+        if (serverAccepted == null) {
+            serverAccepted = headers.get(RpcProtocol.HEADER_ACCEPT_ENCODING);
+        }
+        String encoding = headers.get(RpcProtocol.HEADER_ENCODING);
+        return encoding != null ? Compressor.decompressReply(encoding, body, limits.maxBytes) : body;
+    }
+
+    /**
+     * Compresses call if server accepts codec of the compressor and call is large enough.
+     *
+     * @param compressor compressor of method or batch or <code>null</code> if call is not compressed
+     * @return compressed call or the call itself
+     */
+    private Buffer compress(Compressor compressor, Buffer call) {
+        if (compressor == null || !compressor.isAcceptedBy(serverAccepted)) {
+            return call;
+        }
+        Buffer compressed = compressor.compressCall(call);
+        return compressed != null ? compressed : call;
+    }
+
+    /**
+     * Future of call result that records completion of the call before dependent actions are run, so they see
+     * metrics of completed call.
+     */
+    private static final class MeteredResult extends CompletableFuture<Object> {
+        private final MethodMetrics metrics;
+        private final long started = System.nanoTime();
+        private final AtomicBoolean recorded = new AtomicBoolean();
+
+        MeteredResult(MethodMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        @Override
+        public boolean complete(Object value) {
+            record(false);
+            return super.complete(value);
+        }
+
+        @Override
+        public boolean completeExceptionally(Throwable ex) {
+            record(true);
+            return super.completeExceptionally(ex);
+        }
+
+        private void record(boolean failed) {
+            if (!isDone() && recorded.compareAndSet(false, true)) {
+                metrics.completed(System.nanoTime() - started, failed);
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.xored.vertx.typed.rpc;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.streams.ReadStream;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Consumer of service address that releases resources of the service, e.g. its {@link MethodExecutor executors},
+ * once it is unregistered. Calls that are already passed to the service are completed.
+ *
+ * @author Konstantin Zaitsev
+ * @param <T> type of message body
+ */
+final class ServiceConsumer<T> implements MessageConsumer<T> {
+    private final MessageConsumer<T> consumer;
+    private final Runnable release;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    /**
+     * @param release releases resources of the service, it is called once
+     */
+    ServiceConsumer(MessageConsumer<T> consumer, Runnable release) {
+        this.consumer = consumer;
+        this.release = release;
+    }
+
+    @Override
+    public MessageConsumer<T> exceptionHandler(Handler<Throwable> handler) {
+        consumer.exceptionHandler(handler);
+        return this;
+    }
+
+    @Override
+    public MessageConsumer<T> handler(Handler<Message<T>> handler) {
+        consumer.handler(handler);
+        return this;
+    }
+
+    @Override
+    public MessageConsumer<T> pause() {
+        consumer.pause();
+        return this;
+    }
+
+    @Override
+    public MessageConsumer<T> resume() {
+        consumer.resume();
+        return this;
+    }
+
+    @Override
+    public MessageConsumer<T> endHandler(Handler<Void> endHandler) {
+        consumer.endHandler(endHandler);
+        return this;
+    }
+
+    @Override
+    public ReadStream<T> bodyStream() {
+        return consumer.bodyStream();
+    }
+
+    @Override
+    public boolean isRegistered() {
+        return consumer.isRegistered();
+    }
+
+    @Override
+    public String address() {
+        return consumer.address();
+    }
+
+    @Override
+    public MessageConsumer<T> setMaxBufferedMessages(int maxBufferedMessages) {
+        consumer.setMaxBufferedMessages(maxBufferedMessages);
+        return this;
+    }
+
+    @Override
+    public int getMaxBufferedMessages() {
+        return consumer.getMaxBufferedMessages();
+    }
+
+    @Override
+    public void completionHandler(Handler<AsyncResult<Void>> completionHandler) {
+        consumer.completionHandler(completionHandler);
+    }
+
+    @Override
+    public void unregister() {
+        consumer.unregister();
+        release();
+    }
+
+    @Override
+    public void unregister(Handler<AsyncResult<Void>> completionHandler) {
+        consumer.unregister(ar -> {
+            release();
+            completionHandler.handle(ar);
+        });
+    }
+
+    private void release() {
+        if (released.compareAndSet(false, true)) {
+            release.run();
+        }
+    }
+}
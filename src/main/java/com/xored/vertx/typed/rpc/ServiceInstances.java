@@ -0,0 +1,228 @@
+package com.xored.vertx.typed.rpc;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.MessageConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service registered with several instances that run on their own event loops behind the same address. Single
+ * consumer receives messages and passes them to instances according to {@link DispatchPolicy}.
+ * <p>
+ * Each instance is bound to context of verticle that is deployed for it, the consumer is paused until all verticles
+ * are deployed, so messages are buffered by EventBus meanwhile. Verticles are undeployed once service is
+ * unregistered. If any verticle fails to deploy, service is unregistered and the others are undeployed, the failure
+ * is passed to {@link #completionHandler}.
+ *
+ * @author Konstantin Zaitsev
+ */
+public final class ServiceInstances {
+    private static final Logger log = LoggerFactory.getLogger(ServiceInstances.class);
+
+    private final Vertx vertx;
+    private final ServiceServer[] servers;
+    // contexts are set by verticles before consumer is resumed
+    private final Context[] contexts;
+    private final DispatchPolicy dispatchPolicy;
+    private final MessageConsumer<Object> consumer;
+    private final AtomicInteger deployed = new AtomicInteger();
+    private final List<String> deploymentIds = new ArrayList<>();
+    private boolean undeployed;
+    private AsyncResult<Void> result;
+    private Handler<AsyncResult<Void>> completionHandler;
+    private int next;
+
+    /**
+     * @param release releases resources shared by instances once service is unregistered
+     */
+    ServiceInstances(Vertx vertx, ServiceServer[] servers, DispatchPolicy dispatchPolicy,
+            MessageConsumer<Object> consumer, Runnable release) {
+        this.vertx = vertx;
+        this.servers = servers;
+        this.contexts = new Context[servers.length];
+        this.dispatchPolicy = dispatchPolicy;
+        this.consumer = new ServiceConsumer<>(consumer, () -> {
+            release.run();
+            undeploy();
+        });
+        this.consumer.handler(this::dispatch);
+        this.consumer.pause();
+        if (Vertx.currentContext() != null) {
+            deploy();
+            return;
+        }
+        // deployment from thread without context creates context of caller that takes event loop in between
+        // verticles, so verticles are deployed from single context
+        CountDownLatch created = new CountDownLatch(1);
+        vertx.getOrCreateContext().runOnContext(v -> {
+            try {
+                deploy();
+            } finally {
+                created.countDown();
+            }
+        });
+        try {
+            created.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while deploying instances of service " + consumer.address(),
+                    e);
+        }
+    }
+
+    /**
+     * @return number of service instances
+     */
+    public int size() {
+        return servers.length;
+    }
+
+    /**
+     * @param instance index of service instance
+     * @return number of messages that are passed to instance and not completed yet
+     */
+    public int getInFlight(int instance) {
+        return servers[instance].getInFlight();
+    }
+
+    /**
+     * @return number of messages that are passed to each instance and not completed yet
+     */
+    public int[] getInFlight() {
+        int[] result = new int[servers.length];
+        for (int i = 0; i < servers.length; i++) {
+            result[i] = servers[i].getInFlight();
+        }
+        return result;
+    }
+
+    /**
+     * @return EventBus message consumer of service address
+     */
+    public MessageConsumer<Buffer> getConsumer() {
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        MessageConsumer<Buffer> result = (MessageConsumer) consumer;
+        return result;
+    }
+
+    /**
+     * Sets handler that is notified once all instances are deployed and service receives messages or once deployment
+     * of instance fails and service is unregistered. Handler is called immediately if deployment is already completed.
+     */
+    public void completionHandler(Handler<AsyncResult<Void>> completionHandler) {
+        AsyncResult<Void> completed;
+        synchronized (deploymentIds) {
+            this.completionHandler = completionHandler;
+            completed = result;
+        }
+        if (completed != null) {
+            completionHandler.handle(completed);
+        }
+    }
+
+    /**
+     * Unregisters service, undeploys verticles of instances and shuts down executors of its methods, calls that are
+     * already passed to instances are completed.
+     */
+    public void unregister() {
+        consumer.unregister();
+    }
+
+    /**
+     * Unregisters service, undeploys verticles of instances and shuts down executors of its methods, calls that are
+     * already passed to instances are completed.
+     *
+     * @param completionHandler handler notified once unregistration is propagated
+     */
+    public void unregister(Handler<AsyncResult<Void>> completionHandler) {
+        consumer.unregister(completionHandler);
+    }
+
+    /**
+     * Deploys verticle per instance, contexts of verticles are bound to event loops in turn.
+     */
+    private void deploy() {
+        for (int i = 0; i < servers.length; i++) {
+            int instance = i;
+            vertx.deployVerticle(new AbstractVerticle() {
+                @Override
+                public void start() {
+                    contexts[instance] = context;
+                }
+            }, this::deployed);
+        }
+    }
+
+    private void deployed(AsyncResult<String> ar) {
+        if (ar.failed()) {
+            log.error("Failed to deploy instance of service {}, service is unregistered", consumer.address(),
+                    ar.cause());
+            // undeploys instances that are deployed already and the ones that will be deployed later
+            consumer.unregister();
+            complete(Future.failedFuture(ar.cause()));
+            return;
+        }
+        synchronized (deploymentIds) {
+            if (undeployed) {
+                vertx.undeploy(ar.result());
+                return;
+            }
+            deploymentIds.add(ar.result());
+        }
+        if (deployed.incrementAndGet() == servers.length) {
+            consumer.resume();
+            complete(Future.succeededFuture());
+        }
+    }
+
+    private void complete(AsyncResult<Void> completed) {
+        Handler<AsyncResult<Void>> handler;
+        synchronized (deploymentIds) {
+            if (result != null) {
+                return;
+            }
+            result = completed;
+            handler = completionHandler;
+        }
+        if (handler != null) {
+            handler.handle(completed);
+        }
+    }
+
+    private void undeploy() {
+        synchronized (deploymentIds) {
+            undeployed = true;
+            deploymentIds.forEach(vertx::undeploy);
+            deploymentIds.clear();
+        }
+    }
+
+    private void dispatch(Message<Object> msg) {
+        int instance = next;
+        next = (next + 1) % servers.length;
+        if (dispatchPolicy == DispatchPolicy.LEAST_IN_FLIGHT) {
+            int least = servers[instance].getInFlight();
+            for (int i = 1; i < servers.length && least > 0; i++) {
+                int candidate = (next + i - 1) % servers.length;
+                int inFlight = servers[candidate].getInFlight();
+                if (inFlight < least) {
+                    least = inFlight;
+                    instance = candidate;
+                }
+            }
+        }
+        servers[instance].handle(msg, contexts[instance]);
+    }
+}
@@ -0,0 +1,152 @@
+package com.xored.vertx.typed.rpc;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import io.vertx.core.streams.ReadStream;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Utility methods to enumerate and identify RPC service methods.
+ *
+ * @author Konstantin Zaitsev
+ */
+final class ServiceMethods {
+    /**
+     * Codec of {@link Ack} results that writes nothing and reads <code>null</code>.
+     */
+    private static final RpcSerializer.Codec ACK_CODEC = new RpcSerializer.Codec() {
+        @Override
+        public void write(Output output, Object value) {
+        }
+
+        @Override
+        public Object read(Input input) {
+            return null;
+        }
+    };
+
+    private ServiceMethods() {
+    }
+
+    /**
+     * @return abstract methods of service interface including inherited ones mapped by their signatures.
+     */
+    static Map<String, Method> of(Class<?> iface) {
+        Map<String, Method> methods = new LinkedHashMap<>();
+        for (Method method : iface.getMethods()) {
+            if (Modifier.isAbstract(method.getModifiers())) {
+                methods.putIfAbsent(signature(method), method);
+            }
+        }
+        return methods;
+    }
+
+    /**
+     * Returns method signature in form of <code>name(type1,type2)</code> where types are erased binary names, e.g.
+     * <code>getPerson(java.lang.String,int,example.Outer$Inner[])</code>.
+     */
+    static String signature(Method method) {
+        StringBuilder sb = new StringBuilder(method.getName()).append('(');
+        Class<?>[] types = method.getParameterTypes();
+        for (int i = 0; i < types.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(types[i].getTypeName());
+        }
+        return sb.append(')').toString();
+    }
+
+    /**
+     * @return index of {@link ReadStream} parameter of method or -1 if there is no such parameter
+     * @throws IllegalArgumentException if method has several stream parameters
+     */
+    static int streamParameter(Method method) {
+        int index = -1;
+        Class<?>[] types = method.getParameterTypes();
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] == ReadStream.class) {
+                if (index >= 0) {
+                    throw new IllegalArgumentException(String.format(
+                            "Method %s has more than one ReadStream parameter", method));
+                }
+                index = i;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Returns type of values that are serialized as results of method: type argument of {@link CompletableFuture} or
+     * item type of {@link ReadStream}.
+     *
+     * @return type of results or <code>Object</code> if it is not specified
+     */
+    static Type resultType(Method method) {
+        return typeArgument(method.getGenericReturnType());
+    }
+
+    /**
+     * @return item type of {@link ReadStream} parameter or <code>Object</code> if it is not specified
+     */
+    static Type itemType(Method method, int streamParameter) {
+        return typeArgument(method.getGenericParameterTypes()[streamParameter]);
+    }
+
+    private static Type typeArgument(Type type) {
+        return type instanceof ParameterizedType ? ((ParameterizedType) type).getActualTypeArguments()[0]
+                : Object.class;
+    }
+
+    /**
+     * Creates codec of results of method, results of {@link Ack} methods are not written.
+     *
+     * @throws IllegalArgumentException if {@link Ack} method does not return <code>CompletableFuture&lt;Void&gt;</code>
+     */
+    static RpcSerializer.Codec resultCodec(Method method, RpcSerializer serializer) {
+        if (method.getAnnotation(Ack.class) == null) {
+            return serializer.codec(resultType(method));
+        }
+        if (method.getReturnType() != CompletableFuture.class || resultType(method) != Void.class
+                || streamParameter(method) >= 0) {
+            throw new IllegalArgumentException(String.format("Ack method %s must return CompletableFuture<Void>",
+                    method));
+        }
+        return ACK_CODEC;
+    }
+
+    /**
+     * Creates codecs of parameters of method, stream parameter is always <code>null</code> in serialized calls.
+     */
+    static RpcSerializer.Codec[] parameterCodecs(Method method, RpcSerializer serializer) {
+        Type[] types = method.getGenericParameterTypes();
+        int streamParameter = streamParameter(method);
+        RpcSerializer.Codec[] codecs = new RpcSerializer.Codec[types.length];
+        for (int i = 0; i < types.length; i++) {
+            codecs[i] = serializer.codec(i == streamParameter ? Object.class : types[i]);
+        }
+        return codecs;
+    }
+
+    /**
+     * @return calls in flight of {@link SingleFlight} method or <code>null</code> if calls are not de-duplicated
+     * @throws IllegalArgumentException if method does not return {@link CompletableFuture}
+     */
+    static InFlightCalls singleFlight(Method method) {
+        if (method.getAnnotation(SingleFlight.class) == null) {
+            return null;
+        }
+        if (!method.getReturnType().isAssignableFrom(CompletableFuture.class) || streamParameter(method) >= 0) {
+            throw new IllegalArgumentException(String.format("SingleFlight method %s must return CompletableFuture",
+                    method));
+        }
+        return new InFlightCalls();
+    }
+}
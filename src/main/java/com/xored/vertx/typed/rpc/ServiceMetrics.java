@@ -0,0 +1,24 @@
+package com.xored.vertx.typed.rpc;
+
+/**
+ * Service provider of RPC metrics that is set by {@link EventBusServiceOptions#setMetrics}. Metrics of each method are
+ * created once when client is created or service is registered, so calls are recorded without lookup.
+ *
+ * @author Konstantin Zaitsev
+ * @see HistogramServiceMetrics
+ */
+public interface ServiceMetrics {
+    /**
+     * @param address address of the service
+     * @param method  name of the method, overloaded methods have the same name
+     * @return metrics of calls of the method made by client
+     */
+    MethodMetrics client(String address, String method);
+
+    /**
+     * @param address address of the service
+     * @param method  name of the method, overloaded methods have the same name
+     * @return metrics of calls of the method handled by server
+     */
+    MethodMetrics server(String address, String method);
+}
@@ -0,0 +1,782 @@
+package com.xored.vertx.typed.rpc;
+
+import com.esotericsoftware.kryo.io.Input;
+import io.vertx.core.Context;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.streams.ReadStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server side of RPC service that dispatches EventBus messages to service implementation.
+ * <p>
+ * Methods are resolved by id from message body, method name header is supported for clients of previous versions.
+ * Each message is counted as in flight until its reply is sent, one way calls until the method returns and stream
+ * calls until the stream is ended. Calls above {@link MaxInFlight maximum number} of calls in flight of service or
+ * method are rejected with {@link RpcProtocol#FAILURE_OVERLOADED} unless consumer is paused by {@link ConsumerFlow}.
+ *
+ * @author Konstantin Zaitsev
+ */
+final class ServiceServer {
+    private static final Logger log = LoggerFactory.getLogger(ServiceServer.class);
+    private static final Object[] NO_ARGS = new Object[0];
+    private static final DeliveryOptions LOCAL_DELIVERY_OPTIONS = new DeliveryOptions()
+            .setCodecName(LocalMessageCodec.NAME);
+
+    private final EventBus eventBus;
+    private final String address;
+    private final Object target;
+    private final KryoSerializer serializer;
+    private final KryoSerializer legacySerializer;
+    private final int[] ids;
+    private final ServerMethod[] methods;
+    private final Map<String, ServerMethod> methodsByName = new HashMap<>();
+    private final int streamWindow;
+    private final int streamChunkSize;
+    private final long streamIdleTimeout;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final int maxInFlight;
+    private final boolean metricsEnabled;
+    private final Compressor compressor;
+    private final boolean compressionEnabled;
+    private final GraphLimits limits;
+    private final int maxBytes;
+    private ConsumerFlow flow;
+
+    ServiceServer(EventBus eventBus, Object target, Class<?> serviceInterface, List<ServerMethod> serverMethods,
+            KryoSerializer serializer, EventBusServiceOptions options) {
+        this.eventBus = eventBus;
+        this.address = serviceInterface.getAnnotation(EventBusService.class).value();
+        this.target = target;
+        this.serializer = serializer;
+        this.legacySerializer = new KryoSerializer(options);
+        this.streamWindow = options.getStreamWindow();
+        this.streamChunkSize = options.getStreamChunkSize();
+        this.streamIdleTimeout = options.getStreamIdleTimeout();
+        MaxInFlight limit = serviceInterface.getAnnotation(MaxInFlight.class);
+        if (limit != null && limit.value() <= 0) {
+            throw new IllegalArgumentException(String.format("MaxInFlight of %s must be > 0",
+                    serviceInterface.getName()));
+        }
+        this.maxInFlight = limit != null ? limit.value() : options.getMaxInFlight();
+
+        // methods are sorted by id for binary search
+        ServerMethod[] sorted = serverMethods.toArray(new ServerMethod[serverMethods.size()]);
+        Arrays.sort(sorted, (a, b) -> Integer.compare(a.getId(), b.getId()));
+        this.ids = new int[sorted.length];
+        this.methods = sorted;
+        for (int i = 0; i < sorted.length; i++) {
+            ids[i] = sorted[i].getId();
+            if (i > 0 && ids[i] == ids[i - 1]) {
+                throw new IllegalStateException(String.format("Methods %s and %s have the same id, rename one of them",
+                        sorted[i - 1].getSignature(), sorted[i].getSignature()));
+            }
+            // overloaded methods cannot be resolved by name, legacy calls are dispatched to the first one
+            methodsByName.putIfAbsent(sorted[i].getName(), sorted[i]);
+        }
+        this.metricsEnabled = serverMethods.stream().anyMatch(method -> method.getMetrics() != null);
+        this.compressor = Compressor.create(null, serviceInterface, options);
+        this.compressionEnabled = compressor != null
+                || serverMethods.stream().anyMatch(method -> method.getCompressor() != null);
+        this.limits = GraphLimits.create(null, serviceInterface, options);
+        // methods may accept larger messages than service, they are checked once method is known
+        this.maxBytes = Math.max(limits.maxBytes, serverMethods.stream().mapToInt(method -> method.getLimits().maxBytes)
+                .max().orElse(0));
+    }
+
+    /**
+     * @return number of messages that are handled but not completed yet
+     */
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return whether service has maximum number of calls in flight
+     */
+    boolean isOverloaded() {
+        return inFlight.get() >= maxInFlight;
+    }
+
+    /**
+     * Sets flow control that pauses consumer instead of rejecting calls above maximum number of calls in flight.
+     */
+    void setFlow(ConsumerFlow flow) {
+        this.flow = flow;
+    }
+
+    void handle(Message<Object> r) {
+        inFlight.incrementAndGet();
+        process(r, metricsEnabled ? System.nanoTime() : 0);
+        if (flow != null) {
+            flow.pauseIfOverloaded();
+        }
+    }
+
+    /**
+     * Handles message on specified context. The message is counted as in flight immediately, so it is seen by
+     * dispatcher that chooses the least loaded server before the context runs it.
+     */
+    void handle(Message<Object> r, Context context) {
+        inFlight.incrementAndGet();
+        long received = metricsEnabled ? System.nanoTime() : 0;
+        context.runOnContext(v -> process(r, received));
+        if (flow != null) {
+            flow.pauseIfOverloaded();
+        }
+    }
+
+    /**
+     * @param received time of receiving the message in nanoseconds if metrics are recorded
+     */
+    private void process(Message<Object> r, long received) {
+        Replier replier = null;
+        try {
+            Object body = r.body();
+            if (body instanceof LocalMessage) {
+                LocalMessage local = (LocalMessage) body;
+                replier = new MessageReplier(r, serializer, local);
+                if (!admit(replier)) {
+                    return;
+                }
+                ServerMethod method = method(replier, local.getMethodId());
+                if (method != null) {
+                    // objects passed by reference are not compared
+                    invoke(method, local.values(serializer, method.getParameterCount()), null, replier, received);
+                }
+                return;
+            }
+
+            Buffer buffer = (Buffer) body;
+            if (buffer != null && buffer.length() > maxBytes) {
+                throw new IllegalStateException(String.format("Message of %d bytes exceeds maximum size %d",
+                        buffer.length(), maxBytes));
+            }
+            byte frame = buffer != null && buffer.length() > 0 ? buffer.getByte(0) : 0;
+            if (frame == RpcProtocol.FRAME_COMPRESSED) {
+                buffer = Compressor.decompressCall(buffer, maxBytes);
+                frame = buffer.getByte(0);
+            }
+            // client that accepts compressed replies is told which codecs are accepted by server
+            String accepted = compressionEnabled ? r.headers().get(RpcProtocol.HEADER_ACCEPT_ENCODING) : null;
+            if (frame == RpcProtocol.FRAME_CALL || frame == RpcProtocol.FRAME_BATCH
+                    || frame == RpcProtocol.FRAME_REPLY_TO || frame == RpcProtocol.FRAME_STREAM
+                    || frame == RpcProtocol.FRAME_UPLOAD) {
+                if (frame == RpcProtocol.FRAME_STREAM || frame == RpcProtocol.FRAME_UPLOAD) {
+                    // results of streams and uploads are sent to reply channel, client waits for acknowledgement
+                    r.reply(null);
+                }
+                Input input = KryoSerializer.input(buffer);
+                int base = input.position();
+                input.readByte();
+                String uploadAddress = null;
+                int uploadParameter = -1;
+                if (frame == RpcProtocol.FRAME_UPLOAD) {
+                    uploadAddress = input.readString();
+                    uploadParameter = input.readByte();
+                    frame = input.readByte();
+                }
+                if (frame == RpcProtocol.FRAME_STREAM) {
+                    long correlationId = input.readLong();
+                    String replyAddress = input.readString();
+                    int credit = input.readInt();
+                    replier = new ChannelReplier(replyAddress, correlationId);
+                    replier.accepted = accepted;
+                    if (!admit(replier)) {
+                        return;
+                    }
+                    input.readByte();
+                    ServerMethod method = method(replier, input.readVarInt(true));
+                    if (method != null) {
+                        method.getLimits().checkBytes(buffer.length());
+                        requestSize(method, buffer.length());
+                        stream(method, args(input, method, uploadAddress, uploadParameter), replier,
+                                replyAddress, correlationId, credit, received);
+                    }
+                    return;
+                }
+                if (frame == RpcProtocol.FRAME_REPLY_TO) {
+                    long correlationId = input.readLong();
+                    replier = new ChannelReplier(input.readString(), correlationId);
+                    frame = input.readByte();
+                } else {
+                    replier = new MessageReplier(r, serializer, null);
+                }
+                replier.accepted = accepted;
+                if (!admit(replier)) {
+                    return;
+                }
+                if (frame == RpcProtocol.FRAME_BATCH) {
+                    limits.checkBytes(buffer.length());
+                    handleBatch(buffer, input, base, replier, received);
+                } else {
+                    ServerMethod method = method(replier, input.readVarInt(true));
+                    if (method != null) {
+                        method.getLimits().checkBytes(buffer.length());
+                        requestSize(method, buffer.length());
+                        int start = input.position() - base;
+                        Object[] args = args(input, method, uploadAddress, uploadParameter);
+                        invoke(method, args, key(method, buffer, start, input.position() - base), replier,
+                                received);
+                    }
+                }
+                return;
+            }
+
+            // clients of previous versions pass method name in header and do not know registered class ids
+            replier = new MessageReplier(r, legacySerializer, null);
+            if (!admit(replier)) {
+                return;
+            }
+            String methodName = r.headers().get(RpcProtocol.HEADER_METHOD_NAME);
+            ServerMethod method = methodsByName.get(methodName);
+            if (method == null) {
+                fail(replier, RpcProtocol.FAILURE_METHOD_NOT_FOUND, String.format("Method %s not found", methodName));
+                return;
+            }
+            int count = method.getParameterCount();
+            if (buffer != null) {
+                method.getLimits().checkBytes(buffer.length());
+                requestSize(method, buffer.length());
+            }
+            // legacy clients always write references
+            invoke(method, count > 0 ? legacySerializer.readObjects(buffer, count, method.getLimits().withReferences())
+                    : NO_ARGS, null, replier, received);
+        } catch (Throwable e) {
+            log.error(e.getMessage(), e);
+            if (replier == null) {
+                replier = new MessageReplier(r, serializer, null);
+            }
+            replier.fail(RpcProtocol.FAILURE_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    /**
+     * Rejects message if service has more than maximum number of calls in flight and consumer is not paused instead.
+     *
+     * @return <code>false</code> if message is rejected
+     */
+    private boolean admit(Replier replier) {
+        if (flow != null || inFlight.get() <= maxInFlight) {
+            return true;
+        }
+        String msg = String.format("Call of %s is rejected because it has %d calls in flight", address, maxInFlight);
+        log.debug(msg);
+        replier.fail(RpcProtocol.FAILURE_OVERLOADED, msg);
+        return false;
+    }
+
+    /**
+     * @return serialized arguments of {@link SingleFlight} call or <code>null</code> if calls of method are not
+     * de-duplicated
+     */
+    private static byte[] key(ServerMethod method, Buffer buffer, int start, int end) {
+        return method.getSingleFlight() != null ? buffer.getBytes(start, end) : null;
+    }
+
+    /**
+     * @param key serialized arguments of {@link SingleFlight} call or <code>null</code>
+     */
+    private void invoke(ServerMethod method, Object[] args, byte[] key, Replier replier, long received) {
+        if (!method.acquire()) {
+            recordRejected(method);
+            replier.fail(RpcProtocol.FAILURE_OVERLOADED, overloaded(method).getMessage());
+            return;
+        }
+        replier.metrics = method.getMetrics();
+        replier.compressor = method.getCompressor();
+        replier.codecs = method.getResultCodecs();
+        if (!execute(method, replier, () -> invokeNow(method, args, key, replier, received))) {
+            method.release();
+            recordRejected(method);
+            if (method.returnsFuture()) {
+                replier.reply(rejected(method));
+            } else {
+                replier.done();
+            }
+        }
+    }
+
+    private void invokeNow(ServerMethod method, Object[] args, byte[] key, Replier replier, long received) {
+        long started = begin(method, received);
+        Object result;
+        try {
+            result = method.invoke(target, args, key);
+        } catch (Throwable ex) {
+            method.release();
+            end(method, started, true);
+            if (method.returnsFuture()) {
+                replier.reply(ex);
+            } else {
+                oneWayFailed(method, ex);
+                replier.done();
+            }
+            return;
+        }
+
+        if (method.returnsFuture()) {
+            ((CompletableFuture<?>) result).whenComplete((msg, e) -> {
+                method.release();
+                end(method, started, e != null);
+                complete(replier, e != null ? e : msg);
+            });
+        } else {
+            method.release();
+            end(method, started, false);
+            replier.done();
+        }
+    }
+
+    /**
+     * Invokes method that returns {@link ReadStream} and sends its items to the client.
+     */
+    private void stream(ServerMethod method, Object[] args, Replier replier, String replyAddress, long correlationId,
+            int credit, long received) {
+        if (!method.returnsStream()) {
+            fail(replier, RpcProtocol.FAILURE_SERVER_ERROR,
+                    String.format("Method %s does not return stream", method.getSignature()));
+            return;
+        }
+        if (!method.acquire()) {
+            recordRejected(method);
+            replier.fail(RpcProtocol.FAILURE_OVERLOADED, overloaded(method).getMessage());
+            return;
+        }
+        StreamSender sender = new StreamSender(eventBus, serializer, method.getResultCodec(), streamChunkSize,
+                replyAddress, correlationId, credit);
+        sender.closeHandler(failure -> {
+            method.release();
+            replier.done();
+        });
+        boolean accepted = execute(method, replier, () -> {
+            long started = begin(method, received);
+            sender.closeHandler(failure -> {
+                method.release();
+                end(method, started, failure != null);
+                replier.done();
+            });
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (Throwable ex) {
+                sender.end(ex);
+                return;
+            }
+            sender.start((ReadStream<?>) result);
+        });
+        if (!accepted) {
+            recordRejected(method);
+            sender.end(rejected(method));
+        }
+    }
+
+    /**
+     * Reads arguments of call, {@link RpcProtocol#FRAME_UPLOAD uploaded} argument is requested from the client.
+     *
+     * @param uploadAddress control address of uploaded argument or <code>null</code> if there is no such argument
+     */
+    private Object[] args(Input input, ServerMethod method, String uploadAddress, int uploadParameter) {
+        Object[] args = serializer.readObjects(input, method.getParameterCodecs());
+        if (uploadAddress != null) {
+            if (method.getStreamParameter() != uploadParameter) {
+                throw new IllegalStateException(String.format("Parameter %d of method %s is not stream",
+                        uploadParameter, method.getSignature()));
+            }
+            ReplyChannel channel = ReplyChannel.get(eventBus);
+            StreamReceiver<Object> upload = new StreamReceiver<>(eventBus, serializer, method.getUploadCodec(),
+                    streamWindow, streamIdleTimeout, () -> new EventBusServiceTimeoutException(address,
+                    method.getName(), streamIdleTimeout));
+            long id = channel.registerStream(0, method.getLimits().maxBytes, ar -> {
+                if (ar.failed()) {
+                    upload.end(ar.cause());
+                } else {
+                    upload.handle(ar.result());
+                }
+            });
+            upload.closeHandler(() -> channel.cancel(id));
+            upload.request(uploadAddress, id, channel.getAddress());
+            args[uploadParameter] = upload;
+        }
+        return args;
+    }
+
+    /**
+     * Invokes calls of {@link RpcProtocol#FRAME_BATCH batch} and replies with their results once all of them are
+     * completed. All calls are read and checked before any of them is invoked, so the batch fails as a whole if one
+     * of its calls has unknown method, cannot be read or exceeds limits of its method.
+     */
+    private void handleBatch(Buffer buffer, Input input, int base, Replier replier, long received) {
+        int count = input.readInt();
+        ServerMethod[] methods = new ServerMethod[count];
+        Object[][] args = new Object[count][];
+        byte[][] keys = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            int position = input.position();
+            methods[i] = method(replier, input.readVarInt(true));
+            if (methods[i] == null) {
+                return;
+            }
+            int start = input.position() - base;
+            args[i] = serializer.readObjects(input, methods[i].getParameterCodecs());
+            keys[i] = key(methods[i], buffer, start, input.position() - base);
+            methods[i].getLimits().checkBytes(input.position() - position);
+            requestSize(methods[i], input.position() - position);
+        }
+
+        Object[] results = new Object[count];
+        RpcSerializer.Codec[] codecs = new RpcSerializer.Codec[count];
+        // one for calls that are not invoked yet, so the last completed call sees the final number of results
+        AtomicInteger pending = new AtomicInteger(1);
+        int[] resultCount = { 0 };
+        for (int i = 0; i < count; i++) {
+            ServerMethod method = methods[i];
+            Object[] objects = args[i];
+            byte[] key = keys[i];
+            int index = method.returnsFuture() ? resultCount[0]++ : -1;
+            if (index >= 0) {
+                codecs[index] = method.getResultCodec();
+            }
+            pending.incrementAndGet();
+            if (!method.acquire()) {
+                recordRejected(method);
+                if (index >= 0) {
+                    results[index] = overloaded(method);
+                }
+                completeBatch(replier, results, codecs, resultCount, pending);
+                continue;
+            }
+
+            boolean accepted = execute(method, replier, () -> {
+                long started = begin(method, received);
+                Object result;
+                try {
+                    result = method.invoke(target, objects, key);
+                } catch (Throwable ex) {
+                    result = ex;
+                    if (index < 0) {
+                        oneWayFailed(method, ex);
+                    }
+                }
+                if (index >= 0 && result instanceof CompletableFuture) {
+                    ((CompletableFuture<?>) result).whenComplete((msg, e) -> {
+                        method.release();
+                        end(method, started, e != null);
+                        results[index] = e != null ? e : msg;
+                        completeBatch(replier, results, codecs, resultCount, pending);
+                    });
+                    return;
+                }
+                method.release();
+                end(method, started, result instanceof Throwable);
+                if (index >= 0) {
+                    results[index] = result;
+                }
+                completeBatch(replier, results, codecs, resultCount, pending);
+            });
+            if (!accepted) {
+                method.release();
+                recordRejected(method);
+                if (index >= 0) {
+                    results[index] = rejected(method);
+                }
+                completeBatch(replier, results, codecs, resultCount, pending);
+            }
+        }
+        completeBatch(replier, results, codecs, resultCount, pending);
+    }
+
+    /**
+     * Replies to batch when its last call is completed.
+     *
+     * @param codecs codecs of results of calls
+     */
+    private static void completeBatch(Replier replier, Object[] results, RpcSerializer.Codec[] codecs,
+            int[] resultCount, AtomicInteger pending) {
+        if (pending.decrementAndGet() == 0) {
+            if (resultCount[0] > 0) {
+                complete(replier, Arrays.copyOf(results, resultCount[0]), Arrays.copyOf(codecs, resultCount[0]));
+            } else {
+                replier.done();
+            }
+        }
+    }
+
+    /**
+     * Runs invocation of method on its {@link Execution executor} or immediately if it is invoked on event loop.
+     *
+     * @return <code>false</code> if call is rejected because execution queue is full
+     */
+    private static boolean execute(ServerMethod method, Replier replier, Runnable invocation) {
+        MethodExecutor executor = method.getExecutor();
+        if (executor == null) {
+            invocation.run();
+            return true;
+        }
+        return executor.execute(() -> {
+            try {
+                invocation.run();
+            } catch (Throwable e) {
+                log.error(e.getMessage(), e);
+                replier.fail(RpcProtocol.FAILURE_SERVER_ERROR, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Records start of invocation if metrics of method are recorded.
+     *
+     * @param received time of receiving the message in nanoseconds
+     * @return start time in nanoseconds
+     */
+    private static long begin(ServerMethod method, long received) {
+        MethodMetrics metrics = method.getMetrics();
+        if (metrics == null) {
+            return 0;
+        }
+        long started = System.nanoTime();
+        metrics.started();
+        metrics.queued(started - received);
+        return started;
+    }
+
+    /**
+     * Records completion of invocation if metrics of method are recorded.
+     */
+    private static void end(ServerMethod method, long started, boolean failed) {
+        MethodMetrics metrics = method.getMetrics();
+        if (metrics != null) {
+            metrics.completed(System.nanoTime() - started, failed);
+        }
+    }
+
+    /**
+     * Records call that is rejected without invocation as failed one.
+     */
+    private static void recordRejected(ServerMethod method) {
+        MethodMetrics metrics = method.getMetrics();
+        if (metrics != null) {
+            metrics.started();
+            metrics.completed(0, true);
+        }
+    }
+
+    /**
+     * Logs failure of one way call that has no reply, so it is not lost silently.
+     */
+    private static void oneWayFailed(ServerMethod method, Throwable e) {
+        log.error(String.format("One way call of %s failed: %s", method.getSignature(), e.getMessage()), e);
+    }
+
+    private static void requestSize(ServerMethod method, int bytes) {
+        MethodMetrics metrics = method.getMetrics();
+        if (metrics != null) {
+            metrics.requestSize(bytes);
+        }
+    }
+
+    private EventBusServiceOverloadedException overloaded(ServerMethod method) {
+        String msg = String.format("Call of %s is rejected because it has %d calls in flight", method.getSignature(),
+                method.getMaxInFlight());
+        log.debug(msg);
+        return new EventBusServiceOverloadedException(address, method.getName(), msg);
+    }
+
+    private static RejectedExecutionException rejected(ServerMethod method) {
+        String msg = String.format("Call of %s is rejected because execution queue is full", method.getSignature());
+        log.warn(msg);
+        return new RejectedExecutionException(msg);
+    }
+
+    /**
+     * @return method with specified id or <code>null</code> if call was failed because method is not found.
+     */
+    private ServerMethod method(Replier replier, int id) {
+        int index = Arrays.binarySearch(ids, id);
+        if (index < 0) {
+            fail(replier, RpcProtocol.FAILURE_METHOD_ID_NOT_FOUND, String.format("Method with id %d not found", id));
+            return null;
+        }
+        return methods[index];
+    }
+
+    /**
+     * Replies with result that is completed asynchronously, the call is failed if it cannot be serialized.
+     */
+    private static void complete(Replier replier, Object value) {
+        complete(replier, new Object[] { value }, replier.codecs);
+    }
+
+    /**
+     * Replies with results that are completed asynchronously, the call is failed if they cannot be serialized.
+     */
+    private static void complete(Replier replier, Object[] values, RpcSerializer.Codec[] codecs) {
+        try {
+            replier.reply(values, codecs);
+        } catch (RuntimeException e) {
+            log.error(e.getMessage(), e);
+            replier.fail(RpcProtocol.FAILURE_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    private static void fail(Replier replier, int code, String msg) {
+        log.error(msg);
+        replier.fail(code, msg);
+    }
+
+    /**
+     * Destination of call results, the message is completed once it is replied.
+     */
+    private abstract class Replier {
+        private volatile boolean completed;
+
+        /**
+         * Metrics of single call that record size of reply.
+         */
+        MethodMetrics metrics;
+
+        /**
+         * Codecs accepted by client or <code>null</code> if replies are not compressed.
+         */
+        String accepted;
+
+        /**
+         * Compressor of replies of method or of batches of service.
+         */
+        Compressor compressor = ServiceServer.this.compressor;
+
+        /**
+         * Codec of result of single call in array of one element.
+         */
+        RpcSerializer.Codec[] codecs;
+
+        void reply(Object value) {
+            reply(new Object[] { value }, codecs);
+        }
+
+        /**
+         * Replies with results of call or batch.
+         *
+         * @param codecs codecs of result types
+         */
+        void reply(Object[] values, RpcSerializer.Codec[] codecs) {
+            send(values, codecs);
+            done();
+        }
+
+        void fail(int code, String msg) {
+            sendFailure(code, msg);
+            done();
+        }
+
+        /**
+         * Completes message without reply.
+         */
+        void done() {
+            if (!completed) {
+                completed = true;
+                if (inFlight.decrementAndGet() < maxInFlight && flow != null) {
+                    flow.resumeIfAccepting();
+                }
+            }
+        }
+
+        abstract void send(Object[] values, RpcSerializer.Codec[] codecs);
+
+        abstract void sendFailure(int code, String msg);
+    }
+
+    /**
+     * Replies to message in the same form as request was sent: by reference for {@link Local} calls, serialized
+     * otherwise.
+     */
+    private final class MessageReplier extends Replier {
+        private final Message<Object> message;
+        private final KryoSerializer serializer;
+        private final LocalMessage request;
+
+        MessageReplier(Message<Object> message, KryoSerializer serializer, LocalMessage request) {
+            this.message = message;
+            this.serializer = serializer;
+            this.request = request;
+        }
+
+        @Override
+        void send(Object[] values, RpcSerializer.Codec[] codecs) {
+            if (request != null) {
+                message.reply(new LocalMessage(0, values, request.isCopy()), LOCAL_DELIVERY_OPTIONS);
+            } else {
+                // clients of previous versions read results with class
+                Buffer reply = serializer == legacySerializer ? serializer.writeObjects(values)
+                        : serializer.writeResults(values, codecs);
+                DeliveryOptions options = null;
+                if (accepted != null) {
+                    Buffer compressed = compressor != null && compressor.isAcceptedBy(accepted)
+                            ? compressor.compressReply(reply) : null;
+                    if (compressed != null) {
+                        reply = compressed;
+                        options = compressor.getReplyOptions();
+                    } else {
+                        options = Compressor.ACCEPT_REPLY_OPTIONS;
+                    }
+                }
+                if (metrics != null) {
+                    metrics.replySize(reply.length());
+                }
+                if (options != null) {
+                    message.reply(reply, options);
+                } else {
+                    message.reply(reply);
+                }
+            }
+        }
+
+        @Override
+        void sendFailure(int code, String msg) {
+            message.fail(code, msg);
+        }
+    }
+
+    /**
+     * Replies to {@link ReplyChannel reply channel} of the client.
+     */
+    private final class ChannelReplier extends Replier {
+        private final String address;
+        private final long correlationId;
+
+        ChannelReplier(String address, long correlationId) {
+            this.address = address;
+            this.correlationId = correlationId;
+        }
+
+        @Override
+        void send(Object[] values, RpcSerializer.Codec[] codecs) {
+            Buffer reply = serializer.writeReply(correlationId, values, codecs);
+            if (accepted != null && compressor != null && compressor.isAcceptedBy(accepted)) {
+                Buffer compressed = compressor.compressChannelReply(reply);
+                if (compressed != null) {
+                    reply = compressed;
+                }
+            }
+            if (metrics != null) {
+                metrics.replySize(reply.length());
+            }
+            eventBus.send(address, reply);
+        }
+
+        @Override
+        void sendFailure(int code, String msg) {
+            eventBus.send(address, serializer.writeFailure(correlationId, code, msg));
+        }
+    }
+}
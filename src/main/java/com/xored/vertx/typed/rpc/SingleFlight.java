@@ -0,0 +1,22 @@
+package com.xored.vertx.typed.rpc;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Concurrent identical calls of method are de-duplicated. Calls with equal serialized arguments that are made while
+ * such call is in flight share its {@link java.util.concurrent.CompletableFuture} instead of sending another message,
+ * and server invokes the method once for identical calls of all clients that it handles at the same time. Unlike
+ * {@link Cacheable} results are not kept after the call is completed. The method should return
+ * {@link java.util.concurrent.CompletableFuture}.
+ *
+ * @author Konstantin Zaitsev
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface SingleFlight {
+}
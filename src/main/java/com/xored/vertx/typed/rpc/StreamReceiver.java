@@ -0,0 +1,378 @@
+package com.xored.vertx.typed.rpc;
+
+import com.esotericsoftware.kryo.io.Input;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.streams.ReadStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Receiving side of stream that is returned to caller of method with {@link ReadStream} result or passed to service
+ * method as {@link RpcProtocol#FRAME_UPLOAD uploaded} argument. Received items are queued until they are handled,
+ * sender is granted more credit when half of the window is handled, so paused stream stops sender once the window is
+ * exhausted. Stream fails if sender does not send items it has credit for within idle timeout.
+ * <p>
+ * Messages are received on event loop while stream may be consumed by other thread, e.g. by service method that is
+ * invoked on worker, so state is guarded by the lock of the stream. Handlers are called outside of the lock one at a
+ * time on the thread that receives items or resumes the stream. Setting <code>null</code> handler cancels the stream.
+ *
+ * @author Konstantin Zaitsev
+ */
+final class StreamReceiver<T> implements ReadStream<T> {
+    private static final Logger log = LoggerFactory.getLogger(StreamReceiver.class);
+
+    private final EventBus eventBus;
+    private final KryoSerializer serializer;
+    private final RpcSerializer.Codec codec;
+    private final int grantSize;
+    private final long idleTimeout;
+    private final Supplier<Throwable> timeoutFailure;
+    private final Context context;
+    private final ArrayDeque<Object> queue = new ArrayDeque<>();
+    private Runnable closeHandler;
+    private Handler<Throwable> completionHandler;
+    private Handler<T> handler;
+    private Handler<Void> endHandler;
+    private Handler<Throwable> exceptionHandler;
+    private String controlAddress;
+    private io.netty.util.Timeout idleCheck;
+    private long lastReceived;
+    private int credit;
+    private int handled;
+    private boolean paused;
+    private boolean ended;
+    private boolean cancelled;
+    private boolean completed;
+    private boolean draining;
+    private boolean drainAgain;
+    private Throwable failure;
+
+    /**
+     * @param codec          codec of item type
+     * @param window         number of items sender is allowed to send ahead of handling
+     * @param idleTimeout    time of waiting for items sender has credit for in milliseconds or 0 to wait without
+     *                       timeout
+     * @param timeoutFailure failure of stream that is timed out
+     */
+    StreamReceiver(EventBus eventBus, KryoSerializer serializer, RpcSerializer.Codec codec, int window,
+            long idleTimeout, Supplier<Throwable> timeoutFailure) {
+        this.eventBus = eventBus;
+        this.serializer = serializer;
+        this.codec = codec;
+        this.grantSize = Math.max(1, window / 2);
+        this.idleTimeout = idleTimeout;
+        this.timeoutFailure = timeoutFailure;
+        this.context = Vertx.currentContext();
+        this.credit = window;
+        if (idleTimeout > 0) {
+            synchronized (this) {
+                lastReceived = System.nanoTime();
+                scheduleIdleCheck(idleTimeout);
+            }
+        }
+    }
+
+    /**
+     * Requests items of uploaded argument from sender with specified control address.
+     *
+     * @param replyAddress address of reply channel that receives items with correlation id
+     */
+    synchronized void request(String controlAddress, long correlationId, String replyAddress) {
+        this.controlAddress = controlAddress;
+        eventBus.send(controlAddress, KryoSerializer.writeStreamRequest(credit, correlationId, replyAddress));
+    }
+
+    /**
+     * Sets action that releases resources of the call once no more messages are expected.
+     */
+    synchronized void closeHandler(Runnable closeHandler) {
+        this.closeHandler = closeHandler;
+    }
+
+    /**
+     * Sets handler that is notified with failure of the stream or <code>null</code> once no more messages are
+     * expected, unlike {@link #endHandler end handler} it is notified even if items are not handled or stream is
+     * cancelled.
+     */
+    synchronized void completionHandler(Handler<Throwable> completionHandler) {
+        if (ended) {
+            completionHandler.handle(failure);
+        } else {
+            this.completionHandler = completionHandler;
+        }
+    }
+
+    /**
+     * Handles message of the stream.
+     */
+    @SuppressWarnings("ThrowableResultOfMethodCallIgnored")
+    void handle(Input input) {
+        boolean last;
+        Throwable cause = null;
+        synchronized (this) {
+            if (ended) {
+                return;
+            }
+            if (idleTimeout > 0) {
+                lastReceived = System.nanoTime();
+            }
+            try {
+                byte type = input.readByte();
+                if (type == RpcProtocol.STREAM_OPEN) {
+                    controlAddress = input.readString();
+                    if (cancelled) {
+                        sendCredit(-1);
+                        close();
+                        return;
+                    }
+                    grant();
+                    return;
+                }
+                if (type == RpcProtocol.STREAM_ITEMS) {
+                    int count = input.readInt();
+                    credit -= count;
+                    KryoPool.Scope scope = serializer.enter();
+                    try {
+                        for (int i = 0; i < count; i++) {
+                            queue.add(codec.read(input));
+                        }
+                    } finally {
+                        serializer.exit(scope);
+                    }
+                    last = false;
+                } else {
+                    last = true;
+                    cause = (Throwable) serializer.readObjects(input, 1)[0];
+                }
+            } catch (Throwable e) {
+                log.error(e.getMessage(), e);
+                if (controlAddress != null) {
+                    sendCredit(-1);
+                }
+                last = true;
+                cause = e;
+            }
+        }
+        if (last) {
+            end(cause);
+        } else {
+            drain();
+        }
+    }
+
+    /**
+     * Ends stream, it is ended by end message, by call failure, by timeout of the first message or by idle timeout.
+     *
+     * @param failure failure of stream or <code>null</code> if it is completed normally
+     */
+    void end(Throwable failure) {
+        synchronized (this) {
+            if (ended) {
+                return;
+            }
+            ended = true;
+            this.failure = failure;
+            close();
+        }
+        drain();
+    }
+
+    @Override
+    public ReadStream<T> exceptionHandler(Handler<Throwable> handler) {
+        synchronized (this) {
+            this.exceptionHandler = handler;
+        }
+        // failure may be received before handler is set
+        drain();
+        return this;
+    }
+
+    @Override
+    public ReadStream<T> handler(Handler<T> handler) {
+        synchronized (this) {
+            this.handler = handler;
+            if (handler == null) {
+                cancel();
+                return this;
+            }
+        }
+        drain();
+        return this;
+    }
+
+    @Override
+    public synchronized ReadStream<T> pause() {
+        paused = true;
+        return this;
+    }
+
+    @Override
+    public ReadStream<T> resume() {
+        synchronized (this) {
+            if (!paused) {
+                return this;
+            }
+            paused = false;
+        }
+        drain();
+        return this;
+    }
+
+    @Override
+    public ReadStream<T> endHandler(Handler<Void> endHandler) {
+        synchronized (this) {
+            this.endHandler = endHandler;
+        }
+        drain();
+        return this;
+    }
+
+    /**
+     * Passes queued items and the end of stream to handlers. Handlers are called by single thread at a time,
+     * thread that drains the stream handles items queued by other threads meanwhile.
+     */
+    @SuppressWarnings("unchecked")
+    private void drain() {
+        synchronized (this) {
+            if (draining) {
+                drainAgain = true;
+                return;
+            }
+            draining = true;
+        }
+        boolean drained = false;
+        try {
+            while (true) {
+                Handler<T> itemHandler = null;
+                Object item = null;
+                Handler<Throwable> failureHandler = null;
+                Handler<Void> completed = null;
+                synchronized (this) {
+                    if (!paused && handler != null && !queue.isEmpty()) {
+                        handled++;
+                        itemHandler = handler;
+                        item = queue.poll();
+                    } else {
+                        grant();
+                        if (ended && queue.isEmpty() && !this.completed && !cancelled) {
+                            if (failure != null) {
+                                failureHandler = exceptionHandler;
+                            } else {
+                                completed = endHandler;
+                            }
+                            this.completed = failureHandler != null || completed != null;
+                        }
+                        if (failureHandler == null && completed == null) {
+                            if (!drainAgain) {
+                                draining = false;
+                                drained = true;
+                                return;
+                            }
+                            drainAgain = false;
+                            continue;
+                        }
+                    }
+                }
+                if (itemHandler != null) {
+                    itemHandler.handle((T) item);
+                } else if (failureHandler != null) {
+                    failureHandler.handle(failure);
+                } else {
+                    completed.handle(null);
+                }
+            }
+        } finally {
+            if (!drained) {
+                // handler failed
+                synchronized (this) {
+                    draining = false;
+                    drainAgain = false;
+                }
+            }
+        }
+    }
+
+    private void grant() {
+        if (!ended && controlAddress != null && handled >= grantSize) {
+            sendCredit(handled);
+            if (credit <= 0) {
+                // sender that waited for credit is not idle
+                lastReceived = System.nanoTime();
+            }
+            credit += handled;
+            handled = 0;
+        }
+    }
+
+    private void cancel() {
+        if (ended || cancelled) {
+            return;
+        }
+        cancelled = true;
+        queue.clear();
+        if (controlAddress != null) {
+            // otherwise it is cancelled when control address is received
+            sendCredit(-1);
+            close();
+        }
+    }
+
+    private void sendCredit(int credit) {
+        eventBus.send(controlAddress, Buffer.buffer(4).appendInt(credit));
+    }
+
+    /**
+     * Checks idle timeout on the context of the stream, so failure is passed to handlers on it.
+     */
+    private void scheduleIdleCheck(long delay) {
+        idleCheck = Deadlines.schedule(delay, () -> {
+            if (context != null) {
+                context.runOnContext(v -> checkIdle());
+            } else {
+                checkIdle();
+            }
+        });
+    }
+
+    private void checkIdle() {
+        synchronized (this) {
+            if (ended) {
+                return;
+            }
+            long idle = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastReceived);
+            if (credit <= 0 || idle < idleTimeout) {
+                // sender waits for credit or has sent items recently
+                scheduleIdleCheck(credit <= 0 ? idleTimeout : idleTimeout - idle);
+                return;
+            }
+            if (controlAddress != null) {
+                sendCredit(-1);
+            }
+        }
+        log.debug("Stream is timed out after {} ms without items", idleTimeout);
+        end(timeoutFailure.get());
+    }
+
+    private void close() {
+        ended = true;
+        if (idleCheck != null) {
+            idleCheck.cancel();
+        }
+        if (closeHandler != null) {
+            closeHandler.run();
+            closeHandler = null;
+        }
+        if (completionHandler != null) {
+            completionHandler.handle(failure);
+            completionHandler = null;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.xored.vertx.typed.rpc;
+
+import com.esotericsoftware.kryo.io.Input;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.streams.ReadStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Sending side of stream that sends items of {@link ReadStream} to reply channel of the receiver: the result of
+ * {@link RpcProtocol#FRAME_STREAM stream call} on server or {@link RpcProtocol#FRAME_UPLOAD uploaded} argument on
+ * client. Items are sent in chunks of up to chunk size items, incomplete chunk is sent at the end of current context
+ * task. Source stream is paused when credit granted by the receiver is exhausted and resumed when receiver grants more.
+ *
+ * @author Konstantin Zaitsev
+ */
+final class StreamSender {
+    private static final Logger log = LoggerFactory.getLogger(StreamSender.class);
+
+    private final EventBus eventBus;
+    private final KryoSerializer serializer;
+    private final RpcSerializer.Codec codec;
+    private final int chunkSize;
+    private final Context context;
+    private final List<Object> chunk = new ArrayList<>();
+    private String replyAddress;
+    private long correlationId;
+    private ReadStream<?> source;
+    private MessageConsumer<Buffer> control;
+    private Handler<Throwable> closeHandler;
+    private int credit;
+    private boolean paused;
+    private boolean flushScheduled;
+    private boolean ended;
+
+    /**
+     * Creates sender of uploaded argument, receiver is known once it requests items.
+     *
+     * @param codec codec of item type
+     */
+    StreamSender(EventBus eventBus, KryoSerializer serializer, RpcSerializer.Codec codec, int chunkSize) {
+        this.eventBus = eventBus;
+        this.serializer = serializer;
+        this.codec = codec;
+        this.chunkSize = chunkSize;
+        this.context = Vertx.currentContext();
+    }
+
+    /**
+     * Creates sender of result of stream call.
+     *
+     * @param credit initial credit granted by the client
+     */
+    StreamSender(EventBus eventBus, KryoSerializer serializer, RpcSerializer.Codec codec, int chunkSize,
+            String replyAddress, long correlationId, int credit) {
+        this(eventBus, serializer, codec, chunkSize);
+        this.replyAddress = replyAddress;
+        this.correlationId = correlationId;
+        this.credit = credit;
+    }
+
+    /**
+     * Sets handler that is notified with failure of the stream or <code>null</code> once sending is ended or
+     * cancelled.
+     */
+    synchronized void closeHandler(Handler<Throwable> closeHandler) {
+        this.closeHandler = closeHandler;
+    }
+
+    /**
+     * Starts sending result of stream call. Source is read once control address is registered and sent to the client.
+     *
+     * @param source stream returned by service method, <code>null</code> is sent as empty stream
+     */
+    synchronized void start(ReadStream<?> source) {
+        if (source == null) {
+            end(null);
+            return;
+        }
+        this.source = source;
+        register(r -> {
+            if (r.failed()) {
+                end(r.cause());
+                return;
+            }
+            synchronized (this) {
+                if (!ended) {
+                    eventBus.send(replyAddress, serializer.writeStreamOpen(correlationId, r.result()));
+                }
+            }
+            read();
+        });
+    }
+
+    /**
+     * Starts sending uploaded argument. Source is read once receiver requests items by
+     * {@link KryoSerializer#writeStreamRequest request} sent to control address.
+     *
+     * @param registered handler of registered control address
+     */
+    synchronized void start(ReadStream<?> source, Handler<AsyncResult<String>> registered) {
+        this.source = source;
+        register(registered);
+    }
+
+    private void register(Handler<AsyncResult<String>> registered) {
+        String controlAddress = "typed-rpc.stream." + UUID.randomUUID();
+        control = eventBus.consumer(controlAddress, this::handleControl);
+        control.completionHandler(r -> registered.handle(r.succeeded() ? Future.succeededFuture(controlAddress)
+                : Future.failedFuture(r.cause())));
+    }
+
+    private synchronized void read() {
+        if (ended) {
+            return;
+        }
+        if (credit <= 0) {
+            paused = true;
+            source.pause();
+        }
+        source.exceptionHandler(this::end);
+        source.endHandler(v -> end(null));
+        source.handler(this::item);
+    }
+
+    private synchronized void item(Object item) {
+        if (ended) {
+            return;
+        }
+        chunk.add(item);
+        credit--;
+        if (chunk.size() >= chunkSize || credit <= 0 || context == null) {
+            flush();
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            context.runOnContext(v -> scheduledFlush());
+        }
+        if (credit <= 0 && !paused && !ended) {
+            paused = true;
+            source.pause();
+        }
+    }
+
+    private synchronized void scheduledFlush() {
+        flushScheduled = false;
+        if (!ended) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        Buffer items;
+        try {
+            items = serializer.writeStreamItems(correlationId, chunk, codec);
+        } catch (RuntimeException e) {
+            log.error(e.getMessage(), e);
+            chunk.clear();
+            end(e);
+            return;
+        }
+        chunk.clear();
+        eventBus.send(replyAddress, items);
+    }
+
+    /**
+     * Sends the rest of items and the end of stream.
+     *
+     * @param failure failure of stream or <code>null</code> if it is completed normally
+     */
+    synchronized void end(Throwable failure) {
+        if (ended) {
+            return;
+        }
+        if (replyAddress == null) {
+            // receiver has not requested items
+            cancel();
+            return;
+        }
+        flush();
+        ended = true;
+        Buffer end;
+        try {
+            end = serializer.writeStreamEnd(correlationId, failure);
+        } catch (RuntimeException e) {
+            log.error(e.getMessage(), e);
+            end = serializer.writeStreamEnd(correlationId, new RuntimeException(String.valueOf(failure)));
+        }
+        eventBus.send(replyAddress, end);
+        close(failure);
+    }
+
+    /**
+     * Stops sending without notification of receiver.
+     */
+    synchronized void cancel() {
+        if (ended) {
+            return;
+        }
+        ended = true;
+        chunk.clear();
+        close(null);
+        if (source != null) {
+            source.handler(null);
+        }
+    }
+
+    private void close(Throwable failure) {
+        if (control != null) {
+            control.unregister();
+        }
+        if (closeHandler != null) {
+            closeHandler.handle(failure);
+            closeHandler = null;
+        }
+    }
+
+    private synchronized void handleControl(Message<Buffer> msg) {
+        if (ended) {
+            return;
+        }
+        Input input = KryoSerializer.input(msg.body());
+        int granted = input.readInt();
+        if (granted < 0) {
+            // cancelled by receiver
+            cancel();
+            return;
+        }
+        credit += granted;
+        if (replyAddress == null) {
+            correlationId = input.readLong();
+            replyAddress = input.readString();
+            read();
+            return;
+        }
+        if (paused && credit > 0) {
+            paused = false;
+            source.resume();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.xored.vertx.typed.rpc;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Kryo serializer of failures that writes message, cause, stack trace and fields declared by exception classes
+ * outside of JDK, e.g. error code of application exception. Private fields of JDK classes are not accessed, so
+ * failures are written in the same form on all JDK versions and are never read by Java serialization.
+ * <p>
+ * Exception is created by constructor that accepts message: <code>(String, Throwable)</code>,
+ * <code>(String)</code> or the shortest one with <code>String</code> parameters that are given the message,
+ * <code>Throwable</code> parameters that are given the cause and default values of other parameters. Constructors
+ * without <code>String</code> parameters are the last resort. Fields are restored afterwards. Exceptions that cannot
+ * be created this way should be registered with their own serializers.
+ *
+ * @author Konstantin Zaitsev
+ */
+final class ThrowableSerializer extends Serializer<Throwable> {
+    private final Map<Class<?>, Field[]> fields = new ConcurrentHashMap<>();
+
+    @Override
+    public void write(Kryo kryo, Output output, Throwable object) {
+        output.writeString(object.getMessage());
+        kryo.writeClassAndObject(output, object.getCause());
+        StackTraceElement[] stackTrace = object.getStackTrace();
+        output.writeVarInt(stackTrace.length, true);
+        for (StackTraceElement element : stackTrace) {
+            output.writeString(element.getClassName());
+            output.writeString(element.getMethodName());
+            output.writeString(element.getFileName());
+            output.writeVarInt(element.getLineNumber(), false);
+        }
+        for (Field field : fields(object.getClass())) {
+            try {
+                kryo.writeClassAndObject(output, field.get(object));
+            } catch (IllegalAccessException e) {
+                throw new KryoException(e);
+            }
+        }
+    }
+
+    @Override
+    public Throwable read(Kryo kryo, Input input, Class<Throwable> type) {
+        String message = input.readString();
+        Throwable cause = (Throwable) kryo.readClassAndObject(input);
+        Throwable result = create(type, message, cause);
+        kryo.reference(result);
+        if (cause != null && result.getCause() == null) {
+            try {
+                result.initCause(cause);
+            } catch (IllegalStateException e) {
+                // constructor has already set null cause
+            }
+        }
+        int length = input.readVarInt(true);
+        StackTraceElement[] stackTrace = new StackTraceElement[length];
+        for (int i = 0; i < length; i++) {
+            stackTrace[i] = new StackTraceElement(input.readString(), input.readString(), input.readString(),
+                    input.readVarInt(false));
+        }
+        result.setStackTrace(stackTrace);
+        for (Field field : fields(type)) {
+            try {
+                field.set(result, kryo.readClassAndObject(input));
+            } catch (IllegalAccessException e) {
+                throw new KryoException(e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return fields declared by exception classes outside of JDK
+     */
+    private Field[] fields(Class<?> type) {
+        return fields.computeIfAbsent(type, clazz -> {
+            List<Field> result = new ArrayList<>();
+            for (Class<?> c = clazz; c != null && !c.getName().startsWith("java."); c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers())) {
+                        field.setAccessible(true);
+                        result.add(field);
+                    }
+                }
+            }
+            return result.toArray(new Field[result.size()]);
+        });
+    }
+
+    private static Throwable create(Class<Throwable> type, String message, Throwable cause) {
+        Constructor<?>[] constructors = type.getDeclaredConstructors();
+        Arrays.sort(constructors, Comparator.comparingInt(ThrowableSerializer::priority));
+        for (Constructor<?> constructor : constructors) {
+            Class<?>[] types = constructor.getParameterTypes();
+            Object[] args = new Object[types.length];
+            for (int i = 0; i < types.length; i++) {
+                if (types[i] == String.class) {
+                    args[i] = message;
+                } else if (types[i] == Throwable.class) {
+                    args[i] = cause;
+                } else if (types[i].isPrimitive()) {
+                    args[i] = defaultValue(types[i]);
+                }
+            }
+            try {
+                constructor.setAccessible(true);
+                return (Throwable) constructor.newInstance(args);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // constructor rejects default values or is not accessible, try the next one
+            }
+        }
+        throw new KryoException(String.format("Cannot create %s, register its serializer by "
+                + "EventBusServiceOptions.setClassRegistrar", type.getName()));
+    }
+
+    /**
+     * @return order of constructor, constructors that cannot get message are the last ones
+     */
+    private static int priority(Constructor<?> constructor) {
+        List<Class<?>> types = Arrays.asList(constructor.getParameterTypes());
+        if (types.equals(Arrays.asList(String.class, Throwable.class))) {
+            return 0;
+        } else if (types.equals(Arrays.asList(String.class))) {
+            return 1;
+        }
+        return (types.contains(String.class) ? 2 : 256) + types.size();
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == char.class) {
+            return '\0';
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == float.class) {
+            return 0f;
+        } else if (type == double.class) {
+            return 0d;
+        } else if (type == byte.class) {
+            return (byte) 0;
+        } else if (type == short.class) {
+            return (short) 0;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,27 @@
+package com.xored.vertx.typed.rpc;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of waiting for result of service methods, calls that are not replied in time are completed with
+ * {@link EventBusServiceTimeoutException}. Can be specified for service interface or single method, method annotation
+ * has priority. Methods without annotation use {@link EventBusServiceOptions#getTimeout() client timeout}.
+ *
+ * @author Konstantin Zaitsev
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface Timeout {
+    /**
+     * Timeout in {@link #unit() units}.
+     */
+    long value();
+
+    TimeUnit unit() default TimeUnit.MILLISECONDS;
+}
@@ -0,0 +1,141 @@
+package com.xored.vertx.typed.rpc;
+
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.createClient;
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.registerServer;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Konstantin Zaitsev
+ */
+@RunWith(VertxUnitRunner.class)
+public class AdmissionControlTest {
+    private Vertx vertx;
+
+    @EventBusService("test-admission")
+    public interface AdmissionService {
+        CompletableFuture<Integer> hold();
+
+        @MaxInFlight(1)
+        CompletableFuture<Integer> single();
+
+        CompletableFuture<Integer> echo(int value);
+    }
+
+    public class AdmissionServiceImpl implements AdmissionService {
+        private final Queue<CompletableFuture<Integer>> held = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger invoked = new AtomicInteger();
+
+        @Override
+        public CompletableFuture<Integer> hold() {
+            invoked.incrementAndGet();
+            CompletableFuture<Integer> result = new CompletableFuture<>();
+            held.add(result);
+            return result;
+        }
+
+        @Override
+        public CompletableFuture<Integer> single() {
+            CompletableFuture<Integer> result = new CompletableFuture<>();
+            vertx.setTimer(100, id -> result.complete(invoked.incrementAndGet()));
+            return result;
+        }
+
+        @Override
+        public CompletableFuture<Integer> echo(int value) {
+            return CompletableFuture.completedFuture(value);
+        }
+
+        void release() {
+            CompletableFuture<Integer> result;
+            while ((result = held.poll()) != null) {
+                result.complete(invoked.get());
+            }
+        }
+    }
+
+    @Before
+    public void setUp(@SuppressWarnings("UnusedParameters") TestContext context) {
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void testServiceLimit(TestContext context) {
+        AdmissionServiceImpl service = new AdmissionServiceImpl();
+        registerServer(vertx.eventBus(), service, new EventBusServiceOptions().setMaxInFlight(2));
+        AdmissionService client = createClient(vertx.eventBus(), AdmissionService.class);
+
+        Async async = context.async(3);
+        vertx.runOnContext(v -> {
+            client.hold().thenAccept(value -> async.countDown());
+            client.hold().thenAccept(value -> async.countDown());
+            client.echo(1).whenComplete((value, e) -> {
+                context.assertTrue(e instanceof EventBusServiceOverloadedException, String.valueOf(e));
+                context.assertEquals("echo", ((EventBusServiceOverloadedException) e).getMethod());
+                service.release();
+                client.echo(2).thenAccept(echo -> {
+                    context.assertEquals(2, echo);
+                    async.countDown();
+                });
+            });
+        });
+    }
+
+    @Test
+    public void testMethodLimit(TestContext context) {
+        registerServer(vertx.eventBus(), new AdmissionServiceImpl());
+        AdmissionService client = createClient(vertx.eventBus(), AdmissionService.class,
+                new EventBusServiceOptions().setBatching(true));
+
+        Async async = context.async(3);
+        vertx.runOnContext(v -> {
+            // calls of the same batch
+            client.single().thenAccept(value -> async.countDown());
+            client.single().whenComplete((value, e) -> {
+                context.assertTrue(e instanceof EventBusServiceOverloadedException, String.valueOf(e));
+                async.countDown();
+            });
+            client.echo(3).thenAccept(echo -> async.countDown());
+        });
+    }
+
+    @Test
+    public void testPauseOnOverload(TestContext context) {
+        AdmissionServiceImpl service = new AdmissionServiceImpl();
+        registerServer(vertx.eventBus(), service,
+                new EventBusServiceOptions().setMaxInFlight(1).setPauseOnOverload(true));
+        AdmissionService client = createClient(vertx.eventBus(), AdmissionService.class);
+
+        Async async = context.async();
+        vertx.runOnContext(v -> {
+            client.hold().thenAccept(value -> context.assertEquals(1, value));
+            client.hold().thenAccept(value -> {
+                context.assertEquals(2, value);
+                async.complete();
+            });
+            vertx.setTimer(200, id -> {
+                // the second call waits in paused consumer
+                context.assertEquals(1, service.invoked.get());
+                service.release();
+                vertx.setTimer(200, id2 -> service.release());
+            });
+        });
+    }
+}
@@ -0,0 +1,204 @@
+package com.xored.vertx.typed.rpc;
+
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.createClient;
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.registerServer;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Konstantin Zaitsev
+ */
+@RunWith(VertxUnitRunner.class)
+public class BatchingTest {
+    private Vertx vertx;
+    private AtomicInteger messages;
+
+    @Before
+    public void setUp(@SuppressWarnings("UnusedParameters") TestContext context) {
+        vertx = Vertx.vertx();
+        messages = new AtomicInteger();
+        vertx.eventBus().addInterceptor(sc -> {
+            if ("test".equals(sc.message().address())) {
+                messages.incrementAndGet();
+            }
+            sc.next();
+        });
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void testCallsAreSentInSingleMessage(TestContext context) {
+        AtomicInteger voidCalls = new AtomicInteger();
+        registerServer(vertx.eventBus(), new TestEventBusServiceImpl(context) {
+            @Override
+            public void voidMethodStringParams(String param) {
+                voidCalls.incrementAndGet();
+            }
+
+            @Override
+            public CompletableFuture<String> stringMethodParams(String param) {
+                return CompletableFuture.completedFuture(param + "-reply");
+            }
+
+            @Override
+            public CompletableFuture<String> stringMethod() {
+                CompletableFuture<String> result = new CompletableFuture<>();
+                vertx.setTimer(10, id -> result.completeExceptionally(new TestException((short) 10, "test")));
+                return result;
+            }
+        });
+        TestEventBusService client = createClient(vertx.eventBus(), TestEventBusService.class,
+                new EventBusServiceOptions().setBatching(true));
+
+        Async async = context.async(11);
+        vertx.runOnContext(v -> {
+            for (int i = 0; i < 10; i++) {
+                String param = "test" + i;
+                client.voidMethodStringParams(param);
+                client.stringMethodParams(param).thenAccept(s -> {
+                    context.assertEquals(param + "-reply", s);
+                    async.countDown();
+                });
+            }
+            client.stringMethod().whenComplete((s, e) -> {
+                context.assertTrue(e instanceof TestException);
+                context.assertEquals(10, voidCalls.get());
+                context.assertEquals(1, messages.get());
+                async.countDown();
+            });
+        });
+    }
+
+    @Test
+    public void testBatchIsReadBeforeCallsAreInvoked(TestContext context) {
+        AtomicInteger calls = new AtomicInteger();
+        registerServer(vertx.eventBus(), new TestEventBusServiceImpl(context) {
+            @Override
+            public void voidMethodStringParams(String param) {
+                calls.incrementAndGet();
+            }
+
+            @Override
+            public void voidMethodBeanParams(TestObject param) {
+                calls.incrementAndGet();
+            }
+
+            @Override
+            public CompletableFuture<String> stringMethodParams(String param) {
+                calls.incrementAndGet();
+                return CompletableFuture.completedFuture(param + "-reply");
+            }
+        }, new EventBusServiceOptions().setMaxDepth(1));
+        TestEventBusService client = createClient(vertx.eventBus(), TestEventBusService.class,
+                new EventBusServiceOptions().setBatching(true));
+
+        Async async = context.async();
+        vertx.runOnContext(v -> {
+            client.voidMethodStringParams("test");
+            // fields of bean exceed maximum depth of server
+            client.voidMethodBeanParams(new TestObject("test", 1, 2, 3));
+            client.stringMethodParams("test").whenComplete((s, e) -> {
+                context.assertNotNull(e);
+                context.assertTrue(e.getMessage().startsWith("Max depth exceeded"), e.getMessage());
+                context.assertEquals(0, calls.get());
+                async.complete();
+            });
+        });
+    }
+
+    @Test
+    public void testMaxBatchSize(TestContext context) {
+        registerServer(vertx.eventBus(), new TestEventBusServiceImpl(context) {
+            @Override
+            public CompletableFuture<String> stringMethodParams(String param) {
+                return CompletableFuture.completedFuture(param + "-reply");
+            }
+        });
+        TestEventBusService client = createClient(vertx.eventBus(), TestEventBusService.class,
+                new EventBusServiceOptions().setBatching(true).setBatchWindow(10).setMaxBatchSize(4));
+
+        Async async = context.async();
+        vertx.runOnContext(v -> {
+            CompletableFuture<?>[] results = new CompletableFuture<?>[10];
+            for (int i = 0; i < 10; i++) {
+                String param = "test" + i;
+                results[i] = client.stringMethodParams(param)
+                        .thenAccept(s -> context.assertEquals(param + "-reply", s));
+            }
+            // two full batches are sent immediately, the rest waits for the end of batch window
+            context.assertEquals(2, messages.get());
+            CompletableFuture.allOf(results).thenRun(() -> {
+                context.assertEquals(3, messages.get());
+                async.complete();
+            });
+        });
+    }
+
+    @Test
+    public void testResultsAreCompletedOnContextsOfCallers(TestContext context) {
+        registerServer(vertx.eventBus(), new TestEventBusServiceImpl(context) {
+            @Override
+            public CompletableFuture<String> stringMethodParams(String param) {
+                return CompletableFuture.completedFuture(param + "-reply");
+            }
+        });
+        TestEventBusService client = createClient(vertx.eventBus(), TestEventBusService.class,
+                new EventBusServiceOptions().setBatching(true).setBatchWindow(20));
+
+        Async async = context.async(4);
+        for (int i = 0; i < 2; i++) {
+            Context caller = vertx.getOrCreateContext();
+            caller.runOnContext(v -> {
+                for (int j = 0; j < 2; j++) {
+                    client.stringMethodParams("test").thenAccept(s -> {
+                        context.assertEquals(caller, Vertx.currentContext());
+                        async.countDown();
+                    });
+                }
+            });
+        }
+    }
+
+    @Test
+    public void testBatchFallback(TestContext context) {
+        KryoSerializer serializer = new KryoSerializer(new EventBusServiceOptions());
+        // server of previous version that resolves methods by name header only
+        vertx.eventBus().<Buffer>consumer("test", r -> {
+            String methodName = r.headers().get(RpcProtocol.HEADER_METHOD_NAME);
+            if (!"stringMethodParams".equals(methodName)) {
+                r.fail(RpcProtocol.FAILURE_METHOD_NOT_FOUND, String.format("Method %s not found", methodName));
+                return;
+            }
+            r.reply(serializer.writeObject(serializer.readObjects(r.body(), 1)[0] + "-legacy"));
+        });
+        TestEventBusService client = createClient(vertx.eventBus(), TestEventBusService.class,
+                new EventBusServiceOptions().setBatching(true));
+
+        Async async = context.async(2);
+        vertx.runOnContext(v -> {
+            for (int i = 0; i < 2; i++) {
+                String param = "test" + i;
+                client.stringMethodParams(param).thenAccept(s -> {
+                    context.assertEquals(param + "-legacy", s);
+                    async.countDown();
+                });
+            }
+        });
+    }
+}
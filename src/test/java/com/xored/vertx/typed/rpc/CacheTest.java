@@ -0,0 +1,175 @@
+package com.xored.vertx.typed.rpc;
+
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.closeClient;
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.createClient;
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.registerServer;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Konstantin Zaitsev
+ */
+@RunWith(VertxUnitRunner.class)
+public class CacheTest {
+    private Vertx vertx;
+    private AtomicInteger invoked;
+
+    @EventBusService("test-cache")
+    public interface CacheService {
+        @Cacheable(ttl = 300, maxEntries = 2)
+        CompletableFuture<Integer> get(String key);
+
+        @Publish
+        @CacheEvict
+        void changed();
+    }
+
+    public class CacheServiceImpl implements CacheService {
+        @Override
+        public CompletableFuture<Integer> get(String key) {
+            int value = invoked.incrementAndGet();
+            if (key == null) {
+                throw new TestException((short) 1, "no key");
+            }
+            return CompletableFuture.completedFuture(value);
+        }
+
+        @Override
+        public void changed() {
+        }
+    }
+
+    @Before
+    public void setUp(@SuppressWarnings("UnusedParameters") TestContext context) {
+        vertx = Vertx.vertx();
+        invoked = new AtomicInteger();
+        registerServer(vertx.eventBus(), new CacheServiceImpl());
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void testCache(TestContext context) {
+        CacheService client = createClient(vertx.eventBus(), CacheService.class);
+
+        Async async = context.async();
+        CompletableFuture<Integer> first = client.get("a");
+        // identical call in flight shares the result, but caller cannot complete it for others
+        client.get("a").complete(-1);
+        first.thenCompose(value -> {
+            context.assertEquals(1, value);
+            return client.get("a");
+        }).thenCompose(value -> {
+            context.assertEquals(1, value);
+            context.assertEquals(1, invoked.get());
+            return client.get("b");
+        }).thenCompose(value -> client.get("c")).thenCompose(value -> {
+            // the least recently used result is evicted
+            context.assertEquals(3, invoked.get());
+            return client.get("a");
+        }).thenAccept(value -> {
+            context.assertEquals(4, value);
+            vertx.setTimer(400, id -> client.get("a").thenAccept(expired -> {
+                context.assertEquals(5, expired);
+                async.complete();
+            }));
+        });
+    }
+
+    @Test
+    public void testFailureNotCached(TestContext context) {
+        CacheService client = createClient(vertx.eventBus(), CacheService.class);
+
+        Async async = context.async();
+        client.get(null).whenComplete((value, e) -> {
+            context.assertTrue(e instanceof TestException);
+            client.get(null).whenComplete((value2, e2) -> {
+                context.assertEquals(2, invoked.get());
+                async.complete();
+            });
+        });
+    }
+
+    @Test
+    public void testEvict(TestContext context) {
+        CacheService client = createClient(vertx.eventBus(), CacheService.class);
+        CacheService other = createClient(vertx.eventBus(), CacheService.class);
+
+        Async async = context.async();
+        client.get("a").thenCompose(value -> other.get("a")).thenAccept(value -> {
+            context.assertEquals(2, invoked.get());
+            client.changed();
+            client.get("a").thenAccept(evicted -> {
+                context.assertEquals(3, evicted);
+                // eviction is published to other clients
+                vertx.setTimer(100, id -> other.get("a").thenAccept(published -> {
+                    context.assertEquals(4, published);
+                    async.complete();
+                }));
+            });
+        });
+    }
+
+    @Test
+    public void testCloseClient(TestContext context) {
+        CacheService client = createClient(vertx.eventBus(), CacheService.class);
+        CacheService other = createClient(vertx.eventBus(), CacheService.class);
+
+        Async async = context.async();
+        client.get("a").thenCompose(value -> other.get("a")).thenAccept(value -> {
+            closeClient(client);
+            closeClient(other);
+            // consumers of evictions are unregistered
+            vertx.eventBus().send(RpcProtocol.cacheEvictAddress("test-cache"), "", r -> {
+                context.assertEquals(ReplyFailure.NO_HANDLERS, ((ReplyException) r.cause()).failureType());
+                // cached results are cleared
+                client.get("a").thenAccept(invoked -> {
+                    context.assertEquals(3, invoked);
+                    async.complete();
+                });
+            });
+        });
+    }
+
+    @Test
+    public void testFailedCall() {
+        ResultCache cache = new ResultCache(TimeUnit.SECONDS.toNanos(1), 10);
+        byte[] args = { 1 };
+        List<CompletableFuture<Object>> joined = new ArrayList<>();
+        IllegalStateException failure = new IllegalStateException("not sent");
+        try {
+            cache.get(args, () -> {
+                joined.add(cache.get(args, CompletableFuture::new));
+                throw failure;
+            });
+            fail("Failure is not thrown");
+        } catch (IllegalStateException e) {
+            assertSame(failure, e);
+        }
+        // identical call that joined failed call is not left pending
+        assertTrue(joined.get(0).isCompletedExceptionally());
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,208 @@
+package com.xored.vertx.typed.rpc;
+
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.createClient;
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.registerServer;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * @author Konstantin Zaitsev
+ */
+@RunWith(VertxUnitRunner.class)
+public class CompressionTest {
+    private Vertx vertx;
+    private List<Byte> compressedCalls;
+    private List<Byte> compressedReplies;
+
+    @EventBusService("test-compression")
+    public interface CompressionService {
+        CompletableFuture<Map<String, String>> echo(Map<String, String> map);
+
+        @Compression(Compression.Codec.NONE)
+        CompletableFuture<Map<String, String>> plain(Map<String, String> map);
+
+        @Compression(value = Compression.Codec.SNAPPY, threshold = 0)
+        CompletableFuture<Map<String, String>> snappy(Map<String, String> map);
+    }
+
+    @EventBusService("test-compression-plain")
+    public interface PlainService {
+        CompletableFuture<Map<String, String>> echo(Map<String, String> map);
+    }
+
+    public static class CompressionServiceImpl implements CompressionService {
+        @Override
+        public CompletableFuture<Map<String, String>> echo(Map<String, String> map) {
+            return CompletableFuture.completedFuture(map);
+        }
+
+        @Override
+        public CompletableFuture<Map<String, String>> plain(Map<String, String> map) {
+            return CompletableFuture.completedFuture(map);
+        }
+
+        @Override
+        public CompletableFuture<Map<String, String>> snappy(Map<String, String> map) {
+            return CompletableFuture.completedFuture(map);
+        }
+    }
+
+    @Before
+    public void setUp(@SuppressWarnings("UnusedParameters") TestContext context) {
+        vertx = Vertx.vertx();
+        compressedCalls = new CopyOnWriteArrayList<>();
+        compressedReplies = new CopyOnWriteArrayList<>();
+        vertx.eventBus().addInterceptor(sc -> {
+            Object body = sc.message().body();
+            if (body instanceof Buffer && ((Buffer) body).length() > 9) {
+                Buffer buffer = (Buffer) body;
+                if (sc.message().address().startsWith("test-compression")
+                        && buffer.getByte(0) == RpcProtocol.FRAME_COMPRESSED) {
+                    compressedCalls.add(buffer.getByte(1));
+                } else if (sc.message().address().startsWith("typed-rpc.reply.")
+                        && buffer.getByte(8) == RpcProtocol.REPLY_COMPRESSED) {
+                    compressedReplies.add(buffer.getByte(9));
+                }
+            }
+            sc.next();
+        });
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void testCompression(TestContext context) {
+        EventBusServiceOptions options = new EventBusServiceOptions().setCompression(Compression.Codec.DEFLATE)
+                .setCompressionThreshold(256);
+        registerServer(vertx.eventBus(), new CompressionServiceImpl(), options);
+        CompressionService client = createClient(vertx.eventBus(), CompressionService.class,
+                new EventBusServiceOptions(options).setReplyChannel(true));
+
+        Async async = context.async();
+        Map<String, String> map = map(200);
+        client.echo(map).thenCompose(result -> {
+            context.assertEquals(map, result);
+            // server replied that it accepts compression, the following calls are compressed
+            context.assertTrue(compressedCalls.isEmpty());
+            return client.echo(map);
+        }).thenCompose(result -> {
+            context.assertEquals(map, result);
+            context.assertEquals(1, compressedCalls.size());
+            context.assertEquals(1, compressedReplies.size());
+            context.assertEquals((byte) Compression.Codec.DEFLATE.ordinal(), compressedCalls.get(0));
+            // small messages are not compressed
+            return client.echo(map(1));
+        }).thenCompose(result -> {
+            context.assertEquals(map(1), result);
+            context.assertEquals(1, compressedCalls.size());
+            return client.plain(map);
+        }).thenCompose(result -> {
+            context.assertEquals(map, result);
+            context.assertEquals(1, compressedCalls.size());
+            context.assertEquals(1, compressedReplies.size());
+            return client.snappy(map);
+        }).thenAccept(result -> {
+            context.assertEquals(map, result);
+            context.assertEquals((byte) Compression.Codec.SNAPPY.ordinal(), compressedCalls.get(1));
+            context.assertEquals((byte) Compression.Codec.SNAPPY.ordinal(), compressedReplies.get(1));
+            async.complete();
+        });
+    }
+
+    @Test
+    public void testMessageReplies(TestContext context) {
+        EventBusServiceOptions options = new EventBusServiceOptions().setCompression(Compression.Codec.DEFLATE)
+                .setCompressionThreshold(256);
+        registerServer(vertx.eventBus(), new CompressionServiceImpl(), options);
+        CompressionService client = createClient(vertx.eventBus(), CompressionService.class,
+                new EventBusServiceOptions(options).setReplyChannel(false));
+
+        Async async = context.async();
+        Map<String, String> map = map(200);
+        client.echo(map).thenCompose(result -> client.echo(map)).thenAccept(result -> {
+            context.assertEquals(map, result);
+            context.assertEquals(1, compressedCalls.size());
+            async.complete();
+        });
+    }
+
+    @Test
+    public void testChannelReplyMaxBytes(TestContext context) {
+        EventBusServiceOptions options = new EventBusServiceOptions().setCompression(Compression.Codec.DEFLATE)
+                .setCompressionThreshold(256);
+        registerServer(vertx.eventBus(), new CompressionServiceImpl(), options);
+        CompressionService client = createClient(vertx.eventBus(), CompressionService.class,
+                new EventBusServiceOptions(options).setReplyChannel(true).setMaxBytes(2048));
+
+        Async async = context.async();
+        Map<String, String> map = map(200);
+        client.echo(map(1)).thenCompose(result -> client.echo(map)).whenComplete((result, e) -> {
+            // compressed reply fits into limit, but its uncompressed length is checked before it is allocated
+            context.assertEquals(1, compressedReplies.size());
+            context.assertTrue(e.getMessage().contains("exceeds maximum size 2048"), e.getMessage());
+            async.complete();
+        });
+    }
+
+    @Test
+    public void testUncompressedPeers(TestContext context) {
+        EventBusServiceOptions options = new EventBusServiceOptions().setCompression(Compression.Codec.DEFLATE);
+        registerServer(vertx.eventBus(), (PlainService) CompletableFuture::completedFuture);
+        PlainService client = createClient(vertx.eventBus(), PlainService.class, options);
+        PlainService uncompressed = createClient(vertx.eventBus(), PlainService.class);
+
+        Async async = context.async();
+        Map<String, String> map = map(200);
+        client.echo(map).thenCompose(result -> client.echo(map)).thenCompose(result -> {
+            // server without compression does not accept compressed calls
+            context.assertEquals(map, result);
+            return uncompressed.echo(map);
+        }).thenAccept(result -> {
+            context.assertEquals(map, result);
+            context.assertTrue(compressedCalls.isEmpty());
+            context.assertTrue(compressedReplies.isEmpty());
+            async.complete();
+        });
+    }
+
+    @Test
+    public void testUncompressedClient(TestContext context) {
+        registerServer(vertx.eventBus(), (PlainService) CompletableFuture::completedFuture,
+                new EventBusServiceOptions().setCompression(Compression.Codec.DEFLATE));
+        PlainService client = createClient(vertx.eventBus(), PlainService.class);
+
+        Async async = context.async();
+        Map<String, String> map = map(200);
+        client.echo(map).thenCompose(result -> client.echo(map)).thenAccept(result -> {
+            // client that does not accept compression receives uncompressed replies
+            context.assertEquals(map, result);
+            context.assertTrue(compressedReplies.isEmpty());
+            async.complete();
+        });
+    }
+
+    private static Map<String, String> map(int size) {
+        Map<String, String> map = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            map.put("key" + i, "value of the key " + i);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,175 @@
+package com.xored.vertx.typed.rpc;
+
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.createClient;
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.registerServer;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * @author Konstantin Zaitsev
+ */
+@RunWith(VertxUnitRunner.class)
+public class ExecutionTest {
+    private Vertx vertx;
+
+    @EventBusService("test-execution")
+    public interface ExecutionService {
+        CompletableFuture<String> eventLoop();
+
+        @Execution(Execution.Mode.WORKER)
+        CompletableFuture<String> worker();
+
+        @Execution(value = Execution.Mode.EXECUTOR, threads = 1, queueSize = 1)
+        CompletableFuture<String> executor(boolean block);
+    }
+
+    @EventBusService("test-virtual-threads")
+    @Execution(Execution.Mode.VIRTUAL_THREAD)
+    public interface VirtualThreadService {
+        CompletableFuture<Boolean> isVirtual();
+    }
+
+    public static class ExecutionServiceImpl implements ExecutionService {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        @Override
+        public CompletableFuture<String> eventLoop() {
+            return CompletableFuture.completedFuture(Thread.currentThread().getName());
+        }
+
+        @Override
+        public CompletableFuture<String> worker() {
+            return CompletableFuture.completedFuture(Thread.currentThread().getName());
+        }
+
+        @Override
+        public CompletableFuture<String> executor(boolean block) {
+            if (block) {
+                started.countDown();
+                try {
+                    released.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            return CompletableFuture.completedFuture(Thread.currentThread().getName());
+        }
+    }
+
+    @Before
+    public void setUp(@SuppressWarnings("UnusedParameters") TestContext context) {
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void testExecutionModes(TestContext context) {
+        registerServer(vertx.eventBus(), new ExecutionServiceImpl());
+        ExecutionService client = createClient(vertx.eventBus(), ExecutionService.class);
+
+        Async async = context.async(3);
+        client.eventLoop().thenAccept(thread -> {
+            context.assertTrue(thread.contains("eventloop"), thread);
+            async.countDown();
+        });
+        client.worker().thenAccept(thread -> {
+            context.assertTrue(thread.contains("worker"), thread);
+            async.countDown();
+        });
+        client.executor(false).thenAccept(thread -> {
+            context.assertTrue(thread.startsWith("typed-rpc-ExecutionService-executor"), thread);
+            async.countDown();
+        });
+    }
+
+    @Test
+    public void testQueueSize(TestContext context) throws Exception {
+        ExecutionServiceImpl service = new ExecutionServiceImpl();
+        registerServer(vertx.eventBus(), service);
+        ExecutionService client = createClient(vertx.eventBus(), ExecutionService.class);
+
+        Async async = context.async(3);
+        client.executor(true).thenAccept(thread -> async.countDown());
+        service.started.await();
+        // the only thread is busy, the second call waits in queue and the third one does not fit into it
+        client.executor(false).thenAccept(thread -> async.countDown());
+        client.executor(false).whenComplete((thread, e) -> {
+            context.assertTrue(e instanceof RejectedExecutionException);
+            service.released.countDown();
+            async.countDown();
+        });
+    }
+
+    @Test
+    public void testExecutorShutdown(TestContext context) {
+        MessageConsumer<Buffer> consumer = registerServer(vertx.eventBus(), new ExecutionServiceImpl());
+        ExecutionService client = createClient(vertx.eventBus(), ExecutionService.class);
+
+        Async async = context.async();
+        client.executor(false).thenAccept(thread -> {
+            context.assertTrue(isAlive(thread));
+            consumer.unregister(context.asyncAssertSuccess(v -> vertx.setPeriodic(10, id -> {
+                // idle threads of executor exit once service is unregistered
+                if (!isAlive(thread)) {
+                    vertx.cancelTimer(id);
+                    async.complete();
+                }
+            })));
+        });
+    }
+
+    @Test
+    public void testVirtualThreads(TestContext context) {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            try {
+                registerServer(vertx.eventBus(), (VirtualThreadService) () -> null);
+                context.fail("Virtual threads are not supported by " + System.getProperty("java.version"));
+            } catch (IllegalStateException expected) {
+                return;
+            }
+        }
+
+        registerServer(vertx.eventBus(), (VirtualThreadService) () -> CompletableFuture.completedFuture(
+                isVirtual(Thread.currentThread())));
+        VirtualThreadService client = createClient(vertx.eventBus(), VirtualThreadService.class);
+        Async async = context.async();
+        client.isVirtual().thenAccept(virtual -> {
+            context.assertTrue(virtual);
+            async.complete();
+        });
+    }
+
+    private static boolean isAlive(String thread) {
+        return Thread.getAllStackTraces().keySet().stream().anyMatch(t -> t.getName().equals(thread));
+    }
+
+    private static boolean isVirtual(Thread thread) {
+        try {
+            // sources are compiled for Java 8, the method exists since Java 21
+            return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
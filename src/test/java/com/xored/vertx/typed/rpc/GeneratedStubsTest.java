@@ -0,0 +1,122 @@
+package com.xored.vertx.typed.rpc;
+
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.createClient;
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.registerServer;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author Konstantin Zaitsev
+ */
+@RunWith(VertxUnitRunner.class)
+public class GeneratedStubsTest {
+    private Vertx vertx;
+
+    @EventBusService("test-generated")
+    public interface GeneratedService {
+        CompletableFuture<Long> primitiveMethod(int a, long b, double c, boolean d);
+
+        <T extends Comparable<T>> CompletableFuture<T> genericMethod(T value);
+
+        CompletableFuture<Integer> varargsMethod(String... values);
+
+        CompletableFuture<String> arrayMethod(int[] values) throws IOException;
+
+        // default methods are invoked locally
+        default CompletableFuture<Integer> defaultMethod(String... values) {
+            return varargsMethod(values).thenApply(count -> count * 10);
+        }
+    }
+
+    public static class GeneratedServiceImpl implements GeneratedService {
+        @Override
+        public CompletableFuture<Long> primitiveMethod(int a, long b, double c, boolean d) {
+            return CompletableFuture.completedFuture(d ? a + b + (long) c : 0L);
+        }
+
+        @Override
+        public <T extends Comparable<T>> CompletableFuture<T> genericMethod(T value) {
+            return CompletableFuture.completedFuture(value);
+        }
+
+        @Override
+        public CompletableFuture<Integer> varargsMethod(String... values) {
+            return CompletableFuture.completedFuture(values.length);
+        }
+
+        @Override
+        public CompletableFuture<String> arrayMethod(int[] values) {
+            return CompletableFuture.completedFuture(String.valueOf(values[0] + values[1]));
+        }
+    }
+
+    @Before
+    public void setUp(@SuppressWarnings("UnusedParameters") TestContext context) {
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void testGeneratedClient(TestContext context) throws IOException {
+        registerServer(vertx.eventBus(), new GeneratedServiceImpl());
+        GeneratedService client = createClient(vertx.eventBus(), GeneratedService.class);
+
+        context.assertEquals("GeneratedStubsTest_GeneratedService_EventBusClient", client.getClass().getSimpleName());
+        assertCalls(context, client);
+    }
+
+    @Test
+    public void testProxyClient(TestContext context) throws IOException {
+        EventBusServiceOptions options = new EventBusServiceOptions().setUseGeneratedStubs(false);
+        registerServer(vertx.eventBus(), new GeneratedServiceImpl(), options);
+        GeneratedService client = createClient(vertx.eventBus(), GeneratedService.class, options);
+
+        context.assertTrue(Proxy.isProxyClass(client.getClass()));
+        context.assertEquals("GeneratedService[test-generated]", client.toString());
+        context.assertTrue(client.equals(client));
+        assertCalls(context, client);
+    }
+
+    private void assertCalls(TestContext context, GeneratedService client) throws IOException {
+        Async primitive = context.async();
+        client.primitiveMethod(1, 2L, 3.0, true).thenAccept(r -> {
+            context.assertEquals(6L, r);
+            primitive.complete();
+        });
+        Async generic = context.async();
+        client.genericMethod("test1").thenAccept(r -> {
+            context.assertEquals("test1", r);
+            generic.complete();
+        });
+        Async varargs = context.async();
+        client.varargsMethod("a", "b", "c").thenAccept(r -> {
+            context.assertEquals(3, r);
+            varargs.complete();
+        });
+        Async defaultMethod = context.async();
+        client.defaultMethod("a", "b").thenAccept(r -> {
+            context.assertEquals(20, r);
+            defaultMethod.complete();
+        });
+        Async array = context.async();
+        client.arrayMethod(new int[] { 1, 2 }).thenAccept(r -> {
+            context.assertEquals("3", r);
+            array.complete();
+        });
+    }
+}
@@ -0,0 +1,126 @@
+package com.xored.vertx.typed.rpc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.esotericsoftware.kryo.Kryo;
+import io.vertx.core.buffer.Buffer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Konstantin Zaitsev
+ */
+public class KryoPoolTest {
+
+    @Test
+    public void testBorrowAndRelease() {
+        AtomicInteger created = new AtomicInteger();
+        KryoPool pool = new KryoPool(() -> {
+            created.incrementAndGet();
+            return new Kryo();
+        }, 2, 1);
+        assertEquals(1, created.get());
+        assertEquals(1, pool.idle());
+
+        Kryo first = pool.borrow();
+        Kryo second = pool.borrow();
+        Kryo third = pool.borrow();
+        assertEquals(3, created.get());
+        assertEquals(0, pool.idle());
+
+        pool.release(first);
+        pool.release(second);
+        // full pool drops instance
+        pool.release(third);
+        assertEquals(2, pool.idle());
+        Kryo reused = pool.borrow();
+        assertTrue(reused == first || reused == second);
+        assertEquals(3, created.get());
+    }
+
+    @Test
+    public void testNestedScopesShareInstance() {
+        KryoPool pool = new KryoPool(Kryo::new, 4, 1);
+        KryoPool.Scope outer = pool.enter();
+        Kryo kryo = outer.kryo;
+        KryoPool.Scope inner = pool.enter();
+        assertSame(kryo, inner.kryo);
+        assertEquals(0, pool.idle());
+        pool.exit(inner);
+        assertSame(kryo, outer.kryo);
+        pool.exit(outer);
+        assertNull(outer.kryo);
+        assertEquals(1, pool.idle());
+        assertSame(kryo, pool.borrow());
+    }
+
+    @Test
+    public void testConcurrentScopes() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        KryoPool pool = new KryoPool(() -> {
+            created.incrementAndGet();
+            return new Kryo();
+        }, 16, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                results.add(executor.submit(() -> {
+                    KryoPool.Scope scope = pool.enter();
+                    try {
+                        Kryo kryo = scope.kryo;
+                        Thread.yield();
+                        return scope.kryo == kryo;
+                    } finally {
+                        pool.exit(scope);
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        // instances are reused by tasks rather than created per task
+        assertTrue(created.get() < 100);
+        assertTrue(pool.idle() <= 16);
+    }
+
+    @Test
+    public void testSerializerOnManyThreads() throws Exception {
+        KryoSerializer serializer = new KryoSerializer(new EventBusServiceOptions().setKryoPoolSize(2),
+                TestEventBusService.class);
+        Object[] args = { "test", 42, new TestObject("object", 1, 2, 3) };
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Object[]>> results = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                results.add(executor.submit(() -> {
+                    Buffer buffer = serializer.writeObjects(args);
+                    return serializer.readObjects(buffer, args.length);
+                }));
+            }
+            for (Future<Object[]> result : results) {
+                Object[] objects = result.get(10, TimeUnit.SECONDS);
+                assertEquals(Arrays.asList("test", 42), Arrays.asList(objects).subList(0, 2));
+                assertNotSame(args[2], objects[2]);
+                assertEquals("object", ((TestObject) objects[2]).getStr());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
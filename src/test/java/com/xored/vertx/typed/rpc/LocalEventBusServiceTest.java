@@ -0,0 +1,150 @@
+package com.xored.vertx.typed.rpc;
+
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.createClient;
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.registerServer;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author Konstantin Zaitsev
+ */
+@RunWith(VertxUnitRunner.class)
+public class LocalEventBusServiceTest {
+    private Vertx vertx;
+    private TestLocalEventBusService client;
+
+    @Before
+    public void setUp(@SuppressWarnings("UnusedParameters") TestContext context) {
+        vertx = Vertx.vertx();
+        client = createClient(vertx.eventBus(), TestLocalEventBusService.class);
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void testVoidMethodBeanParams(TestContext context) {
+        final Async asyncServer = context.async();
+        final TestObject param = new TestObject("test1", 123, 10, 20);
+        registerServer(vertx.eventBus(), new TestLocalEventBusServiceImpl() {
+            @Override
+            public void voidMethodBeanParams(TestObject p) {
+                context.assertTrue(param == p);
+                asyncServer.complete();
+            }
+        });
+
+        client.voidMethodBeanParams(param);
+    }
+
+    @Test
+    public void testBeanMethodBeanParams(TestContext context) {
+        final Async asyncClient = context.async();
+        final TestObject param = new TestObject("test1", 123, 10, 20);
+        final TestObject reply = new TestObject("test2", 321, 20, 10);
+        registerServer(vertx.eventBus(), new TestLocalEventBusServiceImpl() {
+            @Override
+            public CompletableFuture<TestObject> beanMethodBeanParams(TestObject p) {
+                context.assertTrue(param == p);
+                return CompletableFuture.completedFuture(reply);
+            }
+        });
+
+        client.beanMethodBeanParams(param).thenAccept(s -> {
+            context.assertTrue(reply == s);
+            asyncClient.complete();
+        });
+    }
+
+    @Test
+    public void testCopyBeanMethodBeanParams(TestContext context) {
+        final Async asyncClient = context.async();
+        final TestObject param = new TestObject("test1", 123, 10, 20);
+        final TestObject reply = new TestObject("test2", 321, 20, 10);
+        registerServer(vertx.eventBus(), new TestLocalEventBusServiceImpl() {
+            @Override
+            public CompletableFuture<TestObject> copyBeanMethodBeanParams(TestObject p) {
+                context.assertFalse(param == p);
+                context.assertEquals("test1", p.getStr());
+                context.assertEquals(123, p.getNum());
+                context.assertEquals(10.0, p.getP().getX());
+                return CompletableFuture.completedFuture(reply);
+            }
+        });
+
+        client.copyBeanMethodBeanParams(param).thenAccept(s -> {
+            context.assertFalse(reply == s);
+            context.assertEquals("test2", s.getStr());
+            context.assertEquals(321, s.getNum());
+            context.assertEquals(20.0, s.getP().getX());
+            asyncClient.complete();
+        });
+    }
+
+    @Test
+    public void testStringMethodException(TestContext context) {
+        final Async asyncClient = context.async();
+        registerServer(vertx.eventBus(), new TestLocalEventBusServiceImpl() {
+            @Override
+            public CompletableFuture<String> stringMethod() {
+                throw new TestException((short) 10, "test");
+            }
+        });
+
+        client.stringMethod().thenAccept(s -> context.fail()).exceptionally(ex -> {
+            context.assertTrue(ex.getCause() instanceof TestException);
+            context.assertEquals(10, ((TestException) ex.getCause()).getErrorCode());
+            asyncClient.complete();
+            return null;
+        });
+    }
+
+    @Test
+    public void testWireEncoding(TestContext context) {
+        LocalMessageCodec codec = new LocalMessageCodec();
+        Buffer wire = Buffer.buffer("header");
+        codec.encodeToWire(wire,
+                new LocalMessage(42, new Object[] { "test1", new TestObject("test2", 123, 10, 20) }, false));
+
+        LocalMessage msg = codec.decodeFromWire(6, wire);
+        Object[] values = msg.values(new KryoSerializer(new EventBusServiceOptions()), 2);
+
+        context.assertEquals(42, msg.getMethodId());
+        context.assertEquals("test1", values[0]);
+        context.assertEquals("test2", ((TestObject) values[1]).getStr());
+    }
+
+    private static class TestLocalEventBusServiceImpl implements TestLocalEventBusService {
+        @Override
+        public void voidMethodBeanParams(TestObject param) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<String> stringMethod() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<TestObject> beanMethodBeanParams(TestObject param) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<TestObject> copyBeanMethodBeanParams(TestObject param) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.xored.vertx.typed.rpc;
+
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.createClient;
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.registerServer;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author Konstantin Zaitsev
+ */
+@RunWith(VertxUnitRunner.class)
+public class MetricsTest {
+    private Vertx vertx;
+
+    @EventBusService("test-metrics")
+    public interface MetricsService {
+        CompletableFuture<String> echo(String value);
+
+        void notify(String value);
+    }
+
+    public static class MetricsServiceImpl implements MetricsService {
+        @Override
+        public CompletableFuture<String> echo(String value) {
+            if (value == null) {
+                throw new TestException((short) 1, "no value");
+            }
+            return CompletableFuture.completedFuture(value);
+        }
+
+        @Override
+        public void notify(String value) {
+        }
+    }
+
+    @Before
+    public void setUp(@SuppressWarnings("UnusedParameters") TestContext context) {
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void testHistogram() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 10000; i++) {
+            histogram.record(i * 1000L);
+        }
+        histogram.record(-1);
+        JsonObject snapshot = histogram.snapshot();
+        Assert.assertEquals(10001, snapshot.getLong("count").longValue());
+        Assert.assertEquals(10000000, snapshot.getLong("max").longValue());
+        // buckets are precise within 1/16 of value
+        Assert.assertEquals(5000000, snapshot.getLong("p50"), 5000000 / 16);
+        Assert.assertEquals(9900000, snapshot.getLong("p99"), 9900000 / 16);
+        Assert.assertTrue(snapshot.getLong("p999") <= snapshot.getLong("max"));
+
+        for (int i = 0; i < Histogram.index(Histogram.MAX_VALUE); i++) {
+            Assert.assertEquals(i, Histogram.index(Histogram.highestEquivalent(i)));
+            Assert.assertEquals(i + 1, Histogram.index(Histogram.highestEquivalent(i) + 1));
+        }
+    }
+
+    @Test
+    public void testMetrics(TestContext context) {
+        HistogramServiceMetrics metrics = new HistogramServiceMetrics();
+        EventBusServiceOptions options = new EventBusServiceOptions().setMetrics(metrics);
+        registerServer(vertx.eventBus(), new MetricsServiceImpl(), options);
+        MetricsService client = createClient(vertx.eventBus(), MetricsService.class, options);
+
+        Async async = context.async();
+        client.notify("notify");
+        client.echo("a").thenCompose(v -> client.echo("b")).thenCompose(v -> client.echo(null)).whenComplete((v, e) -> {
+            context.assertNotNull(e);
+            JsonObject echo = metrics.getMetricsSnapshot("client.test-metrics.echo");
+            context.assertEquals(3L, echo.getLong("calls"));
+            context.assertEquals(1L, echo.getLong("errors"));
+            context.assertEquals(0L, echo.getLong("inFlight"));
+            context.assertEquals(3L, echo.getJsonObject("roundTrip").getLong("count"));
+            context.assertTrue(echo.getJsonObject("roundTrip").getLong("p50") > 0);
+            context.assertEquals(3L, echo.getJsonObject("requestBytes").getLong("count"));
+            context.assertEquals(3L, echo.getJsonObject("replyBytes").getLong("count"));
+
+            JsonObject server = metrics.getMetricsSnapshot("server.test-metrics.echo");
+            context.assertEquals(3L, server.getLong("calls"));
+            context.assertEquals(1L, server.getLong("errors"));
+            context.assertEquals(3L, server.getJsonObject("queue").getLong("count"));
+            context.assertEquals(3L, server.getJsonObject("execution").getLong("count"));
+            context.assertEquals(3L, server.getJsonObject("requestBytes").getLong("count"));
+
+            context.assertEquals(1L, metrics.getMetricsSnapshot("client.test-metrics.notify").getLong("calls"));
+            context.assertTrue(metrics.getMetricsSnapshot().containsKey("server.test-metrics.notify"));
+            async.complete();
+        });
+    }
+}
@@ -0,0 +1,292 @@
+package com.xored.vertx.typed.rpc;
+
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.createClient;
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.registerServer;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author Konstantin Zaitsev
+ */
+@RunWith(VertxUnitRunner.class)
+public class ObjectGraphTest {
+    private Vertx vertx;
+
+    public static class Node {
+        private String name;
+        private List<Node> children = new ArrayList<>();
+
+        public Node() {
+        }
+
+        Node(String name) {
+            this.name = name;
+        }
+    }
+
+    @EventBusService("test-object-graph")
+    @ObjectGraph(maxCollectionSize = 100)
+    public interface GraphService {
+        CompletableFuture<Node> echo(Node node);
+
+        @ObjectGraph(references = false, maxDepth = 16)
+        CompletableFuture<Node> tree(Node node);
+
+        @ObjectGraph(maxBytes = 1024)
+        CompletableFuture<Integer> size(List<String> values);
+    }
+
+    @EventBusService("test-object-graph-options")
+    public interface PlainService {
+        CompletableFuture<Node> echo(Node node);
+    }
+
+    public static class GraphServiceImpl implements GraphService {
+        @Override
+        public CompletableFuture<Node> echo(Node node) {
+            return CompletableFuture.completedFuture(node);
+        }
+
+        @Override
+        public CompletableFuture<Node> tree(Node node) {
+            return CompletableFuture.completedFuture(node);
+        }
+
+        @Override
+        public CompletableFuture<Integer> size(List<String> values) {
+            return CompletableFuture.completedFuture(values.size());
+        }
+    }
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+        registerServer(vertx.eventBus(), new GraphServiceImpl());
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void testReferences(TestContext context) {
+        GraphService client = createClient(vertx.eventBus(), GraphService.class);
+        Node shared = new Node("shared");
+        Node root = new Node("root");
+        root.children.add(shared);
+        root.children.add(shared);
+
+        Async async = context.async(2);
+        client.echo(root).thenAccept(node -> {
+            context.assertTrue(node.children.get(0) == node.children.get(1));
+            async.countDown();
+        });
+        // trees without references are written as copies
+        client.tree(root).thenAccept(node -> {
+            context.assertEquals("root", node.name);
+            context.assertFalse(node.children.get(0) == node.children.get(1));
+            context.assertEquals("shared", node.children.get(1).name);
+            async.countDown();
+        });
+    }
+
+    @Test
+    public void testMaxCollectionSize(TestContext context) {
+        GraphService client = createClient(vertx.eventBus(), GraphService.class);
+        Node allowed = new Node("allowed");
+        Node rejected = new Node("rejected");
+        for (int i = 0; i < 101; i++) {
+            if (i < 100) {
+                allowed.children.add(new Node("child" + i));
+            }
+            rejected.children.add(new Node("child" + i));
+        }
+
+        Async async = context.async(2);
+        client.echo(allowed).thenAccept(node -> {
+            context.assertEquals(100, node.children.size());
+            async.countDown();
+        });
+        client.echo(rejected).whenComplete((node, e) -> {
+            context.assertNotNull(e);
+            context.assertTrue(e.getMessage().contains("Collection size 101 exceeds maximum 100"));
+            async.countDown();
+        });
+    }
+
+    @Test
+    public void testMaxBytes(TestContext context) {
+        GraphService client = createClient(vertx.eventBus(), GraphService.class);
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            values.add("value" + i);
+        }
+
+        Async async = context.async(2);
+        client.size(new ArrayList<>(values.subList(0, 10))).thenAccept(size -> {
+            context.assertEquals(10, size);
+            async.countDown();
+        });
+        client.size(values).whenComplete((size, e) -> {
+            context.assertNotNull(e);
+            context.assertTrue(e.getMessage().contains("exceeds maximum size 1024"));
+            async.countDown();
+        });
+    }
+
+    @Test
+    public void testMaxDepth() throws Exception {
+        EventBusServiceOptions options = new EventBusServiceOptions();
+        KryoSerializer serializer = new KryoSerializer(options, GraphService.class);
+        Method tree = GraphService.class.getMethod("tree", Node.class);
+        RpcSerializer.Codec limited = KryoSerializer.limited(serializer,
+                GraphLimits.create(tree, GraphService.class, options)).codec(Node.class);
+        Node root = new Node("root");
+        Node node = root;
+        for (int i = 0; i < 20; i++) {
+            node.children.add(new Node("child" + i));
+            node = node.children.get(0);
+        }
+
+        // graph is written by peer without depth limit
+        RpcSerializer.Codec unlimited = KryoSerializer.limited(serializer, GraphLimits.create(null,
+                PlainService.class, new EventBusServiceOptions().setReferences(false))).codec(Node.class);
+        Output output = new Output(1024, -1);
+        unlimited.write(output, root);
+        try {
+            limited.read(new Input(output.getBuffer(), 0, output.position()));
+            fail("Depth is not limited");
+        } catch (KryoException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Max depth exceeded"));
+        }
+    }
+
+    @Test
+    public void testPositionalLimits() throws Exception {
+        EventBusServiceOptions options = new EventBusServiceOptions();
+        RpcSerializer serializer = RpcSerializer.POSITIONAL.create(GraphService.class, options);
+        RpcSerializer.Codec echo = KryoSerializer.limited(serializer, GraphLimits.create(
+                GraphService.class.getMethod("echo", Node.class), GraphService.class, options)).codec(Node.class);
+        RpcSerializer.Codec tree = KryoSerializer.limited(serializer, GraphLimits.create(
+                GraphService.class.getMethod("tree", Node.class), GraphService.class, options)).codec(Node.class);
+        Node wide = new Node("wide");
+        for (int i = 0; i < 101; i++) {
+            wide.children.add(new Node("child" + i));
+        }
+        Node deep = new Node("deep");
+        Node node = deep;
+        for (int i = 0; i < 20; i++) {
+            node.children.add(new Node("child" + i));
+            node = node.children.get(0);
+        }
+
+        Output output = new Output(4096, -1);
+        serializer.codec(Node.class).write(output, wide);
+        try {
+            echo.read(new Input(output.getBuffer(), 0, output.position()));
+            fail("Collection size is not limited");
+        } catch (KryoException e) {
+            assertEquals("Collection size 101 exceeds maximum 100", e.getMessage());
+        }
+        // size of array is checked before array is allocated
+        output.clear();
+        output.writeByte(1);
+        output.writeVarInt(Integer.MAX_VALUE, true);
+        try {
+            KryoSerializer.limited(serializer, GraphLimits.create(GraphService.class.getMethod("echo", Node.class),
+                    GraphService.class, options)).codec(Node[].class).read(new Input(output.toBytes()));
+            fail("Array size is not limited");
+        } catch (KryoException e) {
+            assertEquals("Collection size 2147483647 exceeds maximum 100", e.getMessage());
+        }
+
+        // nodes and lists of 8 nodes are nested 16 times
+        Node shallow = deep;
+        for (int i = 0; i < 13; i++) {
+            shallow = shallow.children.get(0);
+        }
+        output.clear();
+        serializer.codec(Node.class).write(output, shallow);
+        assertEquals("child12", ((Node) tree.read(new Input(output.toBytes()))).name);
+        output.clear();
+        serializer.codec(Node.class).write(output, deep);
+        try {
+            tree.read(new Input(output.toBytes()));
+            fail("Depth is not limited");
+        } catch (KryoException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Max depth exceeded"));
+        }
+    }
+
+    @Test
+    public void testJsonMaxBytes() throws Exception {
+        EventBusServiceOptions options = new EventBusServiceOptions();
+        RpcSerializer serializer = RpcSerializer.JSON.create(GraphService.class, options);
+        Method size = GraphService.class.getMethod("size", List.class);
+        RpcSerializer.Codec limited = KryoSerializer.limited(serializer, GraphLimits.create(size,
+                GraphService.class, options)).codec(size.getGenericParameterTypes()[0]);
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            values.add("value" + i);
+        }
+
+        Output output = new Output(8192, -1);
+        serializer.codec(size.getGenericParameterTypes()[0]).write(output, values.subList(0, 10));
+        assertEquals(values.subList(0, 10), limited.read(new Input(output.toBytes())));
+        output.clear();
+        serializer.codec(size.getGenericParameterTypes()[0]).write(output, values);
+        try {
+            limited.read(new Input(output.toBytes()));
+            fail("JSON size is not limited");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("exceeds maximum size 1024"));
+        }
+    }
+
+    @Test
+    public void testPriority() throws Exception {
+        EventBusServiceOptions options = new EventBusServiceOptions().setReferences(false).setMaxCollectionSize(10)
+                .setMaxBytes(4096);
+        GraphLimits echo = GraphLimits.create(GraphService.class.getMethod("echo", Node.class), GraphService.class,
+                options);
+        GraphLimits tree = GraphLimits.create(GraphService.class.getMethod("tree", Node.class), GraphService.class,
+                options);
+        GraphLimits plain = GraphLimits.create(PlainService.class.getMethod("echo", Node.class), PlainService.class,
+                options);
+
+        // annotation of interface overrides options
+        assertTrue(echo.references);
+        assertEquals(100, echo.maxCollectionSize);
+        assertEquals(Integer.MAX_VALUE, echo.maxBytes);
+        // annotation of method overrides annotation of interface
+        assertFalse(tree.references);
+        assertEquals(16, tree.maxDepth);
+        assertEquals(Integer.MAX_VALUE, tree.maxCollectionSize);
+        assertFalse(plain.references);
+        assertEquals(10, plain.maxCollectionSize);
+        assertEquals(4096, plain.maxBytes);
+        assertSame(GraphLimits.DEFAULT, GraphLimits.create(null, PlainService.class,
+                new EventBusServiceOptions()));
+    }
+}
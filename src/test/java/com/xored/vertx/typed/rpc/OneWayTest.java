@@ -0,0 +1,185 @@
+package com.xored.vertx.typed.rpc;
+
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.createClient;
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.registerServer;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Konstantin Zaitsev
+ */
+@RunWith(VertxUnitRunner.class)
+public class OneWayTest {
+    private Vertx vertx;
+    private AtomicInteger messages;
+
+    @EventBusService("test-one-way")
+    public interface TelemetryService {
+        void record(String event);
+
+        @Publish
+        void broadcast(String event);
+
+        @Ack
+        CompletableFuture<Void> store(String event);
+    }
+
+    @EventBusService("test-one-way-invalid")
+    public interface InvalidService {
+        @Ack
+        CompletableFuture<String> store(String event);
+    }
+
+    public static class TelemetryServiceImpl implements TelemetryService {
+        private final AtomicInteger events;
+
+        TelemetryServiceImpl(AtomicInteger events) {
+            this.events = events;
+        }
+
+        @Override
+        public void record(String event) {
+            if ("fail".equals(event)) {
+                throw new IllegalStateException("Record failed");
+            }
+            events.incrementAndGet();
+        }
+
+        @Override
+        public void broadcast(String event) {
+            events.incrementAndGet();
+        }
+
+        @Override
+        public CompletableFuture<Void> store(String event) {
+            if ("fail".equals(event)) {
+                CompletableFuture<Void> result = new CompletableFuture<>();
+                result.completeExceptionally(new TestException((short) 3, "Store failed"));
+                return result;
+            }
+            events.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+        messages = new AtomicInteger();
+        vertx.eventBus().addInterceptor(sc -> {
+            if ("test-one-way".equals(sc.message().address())) {
+                messages.incrementAndGet();
+            }
+            sc.next();
+        });
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void testAck(TestContext context) {
+        AtomicInteger events = new AtomicInteger();
+        registerServer(vertx.eventBus(), new TelemetryServiceImpl(events));
+        TelemetryService client = createClient(vertx.eventBus(), TelemetryService.class);
+
+        Async async = context.async();
+        CompletableFuture<?>[] results = new CompletableFuture<?>[100];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = client.store("event" + i);
+        }
+        CompletableFuture.allOf(results).thenCompose(v -> {
+            context.assertEquals(100, events.get());
+            return client.store("fail");
+        }).whenComplete((v, e) -> {
+            context.assertTrue(e.getCause() instanceof TestException);
+            context.assertEquals(3, ((TestException) e.getCause()).getErrorCode());
+            async.complete();
+        });
+    }
+
+    @Test
+    public void testBatchedAck(TestContext context) {
+        AtomicInteger events = new AtomicInteger();
+        registerServer(vertx.eventBus(), new TelemetryServiceImpl(events));
+        TelemetryService client = createClient(vertx.eventBus(), TelemetryService.class,
+                new EventBusServiceOptions().setBatching(true));
+
+        Async async = context.async();
+        vertx.runOnContext(v -> {
+            CompletableFuture<?>[] results = new CompletableFuture<?>[10];
+            for (int i = 0; i < results.length; i++) {
+                client.record("event" + i);
+                results[i] = client.store("event" + i);
+            }
+            CompletableFuture.allOf(results).thenRun(() -> {
+                context.assertEquals(20, events.get());
+                context.assertEquals(1, messages.get());
+                async.complete();
+            });
+        });
+    }
+
+    @Test
+    public void testBatchedPublish(TestContext context) {
+        AtomicInteger events = new AtomicInteger();
+        registerServer(vertx.eventBus(), new TelemetryServiceImpl(events));
+        registerServer(vertx.eventBus(), new TelemetryServiceImpl(events));
+        TelemetryService client = createClient(vertx.eventBus(), TelemetryService.class,
+                new EventBusServiceOptions().setBatching(true).setBatchWindow(10));
+
+        Async async = context.async();
+        vertx.runOnContext(v -> {
+            for (int i = 0; i < 10; i++) {
+                client.broadcast("event" + i);
+            }
+            // publications are not batched with sent calls
+            client.record("event");
+        });
+        vertx.setPeriodic(10, id -> {
+            if (events.get() == 21) {
+                vertx.cancelTimer(id);
+                context.assertEquals(2, messages.get());
+                async.complete();
+            }
+        });
+    }
+
+    @Test
+    public void testOneWayFailureIsRecorded(TestContext context) {
+        HistogramServiceMetrics metrics = new HistogramServiceMetrics();
+        EventBusServiceOptions options = new EventBusServiceOptions().setMetrics(metrics);
+        AtomicInteger events = new AtomicInteger();
+        registerServer(vertx.eventBus(), new TelemetryServiceImpl(events), options);
+        TelemetryService client = createClient(vertx.eventBus(), TelemetryService.class, options);
+
+        Async async = context.async();
+        client.record("fail");
+        client.record("event");
+        client.store("event").thenRun(() -> {
+            context.assertEquals(2, events.get());
+            JsonObject record = metrics.getMetricsSnapshot("server.test-one-way.record");
+            context.assertEquals(2L, record.getLong("calls"));
+            context.assertEquals(1L, record.getLong("errors"));
+            async.complete();
+        });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAckWithResult() {
+        createClient(vertx.eventBus(), InvalidService.class);
+    }
+}
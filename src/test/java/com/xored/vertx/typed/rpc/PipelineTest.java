@@ -0,0 +1,170 @@
+package com.xored.vertx.typed.rpc;
+
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.createPipeline;
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.registerServer;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Konstantin Zaitsev
+ */
+@RunWith(VertxUnitRunner.class)
+public class PipelineTest {
+    private Vertx vertx;
+    private AtomicInteger messages;
+    private AtomicInteger events;
+
+    @EventBusService("test-pipeline")
+    public interface PipelineService {
+        CompletableFuture<Integer> square(int value);
+
+        CompletableFuture<String> fail(String message);
+
+        void record(String event);
+
+        @Ack
+        CompletableFuture<Void> store(String event);
+
+        @Publish
+        void broadcast(String event);
+    }
+
+    public class PipelineServiceImpl implements PipelineService {
+        @Override
+        public CompletableFuture<Integer> square(int value) {
+            return CompletableFuture.completedFuture(value * value);
+        }
+
+        @Override
+        public CompletableFuture<String> fail(String message) {
+            CompletableFuture<String> result = new CompletableFuture<>();
+            result.completeExceptionally(new TestException((short) 5, message));
+            return result;
+        }
+
+        @Override
+        public void record(String event) {
+            events.incrementAndGet();
+        }
+
+        @Override
+        public CompletableFuture<Void> store(String event) {
+            events.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public void broadcast(String event) {
+            events.incrementAndGet();
+        }
+    }
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+        messages = new AtomicInteger();
+        events = new AtomicInteger();
+        vertx.eventBus().addInterceptor(sc -> {
+            if ("test-pipeline".equals(sc.message().address())) {
+                messages.incrementAndGet();
+            }
+            sc.next();
+        });
+        registerServer(vertx.eventBus(), new PipelineServiceImpl());
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void testResultsInOrderOfCalls(TestContext context) {
+        CallPipeline<PipelineService> pipeline = createPipeline(vertx.eventBus(), PipelineService.class);
+        PipelineService calls = pipeline.calls();
+        for (int i = 0; i < 100; i++) {
+            context.assertNull(calls.square(i));
+        }
+        calls.record("event");
+        calls.fail("failed");
+        calls.store("event");
+        context.assertEquals(103, pipeline.size());
+
+        Async async = context.async();
+        pipeline.flush().thenAccept(results -> {
+            context.assertEquals(103, results.length);
+            for (int i = 0; i < 100; i++) {
+                context.assertEquals(i * i, results[i]);
+            }
+            context.assertNull(results[100]);
+            context.assertTrue(results[101] instanceof TestException);
+            context.assertEquals(5, ((TestException) results[101]).getErrorCode());
+            context.assertNull(results[102]);
+            context.assertEquals(2, events.get());
+            context.assertEquals(1, messages.get());
+            async.complete();
+        });
+    }
+
+    @Test
+    public void testFlushStartsNextBatch(TestContext context) {
+        CallPipeline<PipelineService> pipeline = createPipeline(vertx.eventBus(), PipelineService.class,
+                new EventBusServiceOptions().setReplyChannel(true));
+        pipeline.calls().square(2);
+        CompletableFuture<Object[]> first = pipeline.flush();
+        context.assertEquals(0, pipeline.size());
+
+        Async async = context.async();
+        first.thenCompose(results -> {
+            context.assertEquals(4, results[0]);
+            // the second batch is replied to reply channel
+            pipeline.calls().square(3);
+            pipeline.calls().square(4);
+            return pipeline.flush();
+        }).thenCompose(results -> {
+            context.assertEquals(9, results[0]);
+            context.assertEquals(16, results[1]);
+            context.assertEquals(2, messages.get());
+            return pipeline.flush();
+        }).thenAccept(results -> {
+            context.assertEquals(0, results.length);
+            async.complete();
+        });
+    }
+
+    @Test
+    public void testOneWayCalls(TestContext context) {
+        CallPipeline<PipelineService> pipeline = createPipeline(vertx.eventBus(), PipelineService.class);
+        for (int i = 0; i < 10; i++) {
+            pipeline.calls().record("event" + i);
+        }
+        CompletableFuture<Object[]> results = pipeline.flush();
+        // nothing to wait for
+        context.assertTrue(results.isDone());
+        context.assertEquals(10, results.join().length);
+
+        Async async = context.async();
+        vertx.setPeriodic(10, id -> {
+            if (events.get() == 10) {
+                vertx.cancelTimer(id);
+                context.assertEquals(1, messages.get());
+                async.complete();
+            }
+        });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPublishCannotBePipelined() {
+        createPipeline(vertx.eventBus(), PipelineService.class).calls().broadcast("event");
+    }
+}
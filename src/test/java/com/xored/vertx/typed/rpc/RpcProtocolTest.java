@@ -0,0 +1,215 @@
+package com.xored.vertx.typed.rpc;
+
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.createClient;
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.registerServer;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Konstantin Zaitsev
+ */
+@RunWith(VertxUnitRunner.class)
+public class RpcProtocolTest {
+    private Vertx vertx;
+
+    @EventBusService("test-overloaded")
+    public interface OverloadedService {
+        CompletableFuture<String> method(String value);
+
+        CompletableFuture<String> method(String value, int count);
+
+        CompletableFuture<String> method(int value);
+    }
+
+    public static class OverloadedServiceImpl implements OverloadedService {
+        @Override
+        public CompletableFuture<String> method(String value) {
+            return CompletableFuture.completedFuture("string:" + value);
+        }
+
+        @Override
+        public CompletableFuture<String> method(String value, int count) {
+            return CompletableFuture.completedFuture("string-int:" + value + count);
+        }
+
+        @Override
+        public CompletableFuture<String> method(int value) {
+            return CompletableFuture.completedFuture("int:" + value);
+        }
+    }
+
+    @Before
+    public void setUp(@SuppressWarnings("UnusedParameters") TestContext context) {
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void testMethodId(TestContext context) {
+        int id = RpcProtocol.methodId("method(java.lang.String)");
+        context.assertEquals(id, RpcProtocol.methodId("method(java.lang.String)"));
+        context.assertNotEquals(id, RpcProtocol.methodId("method(int)"));
+        context.assertTrue(id >= 0 && id < (1 << 28));
+    }
+
+    @Test
+    public void testOverloadedMethods(TestContext context) {
+        registerServer(vertx.eventBus(), new OverloadedServiceImpl());
+        OverloadedService client = createClient(vertx.eventBus(), OverloadedService.class);
+
+        Async async = context.async(3);
+        client.method("a").thenAccept(s -> {
+            context.assertEquals("string:a", s);
+            async.countDown();
+        });
+        client.method("b", 2).thenAccept(s -> {
+            context.assertEquals("string-int:b2", s);
+            async.countDown();
+        });
+        client.method(3).thenAccept(s -> {
+            context.assertEquals("int:3", s);
+            async.countDown();
+        });
+    }
+
+    @Test
+    public void testMethodNameHeaderCall(TestContext context) {
+        registerServer(vertx.eventBus(), new TestEventBusServiceImpl(context) {
+            @Override
+            public CompletableFuture<String> stringMethodParams(String param) {
+                return CompletableFuture.completedFuture(param + "-reply");
+            }
+        });
+        KryoSerializer serializer = new KryoSerializer(new EventBusServiceOptions());
+
+        // call in the form of clients of previous versions
+        Async async = context.async();
+        vertx.eventBus().<Buffer>send("test", serializer.writeObjects(new Object[] { "test1" }),
+                new DeliveryOptions().addHeader(RpcProtocol.HEADER_METHOD_NAME, "stringMethodParams"), r -> {
+                    context.assertTrue(r.succeeded());
+                    context.assertEquals("test1-reply", serializer.readObject(r.result().body()));
+                    async.complete();
+                });
+    }
+
+    @Test
+    public void testUnknownMethodId(TestContext context) {
+        registerServer(vertx.eventBus(), new OverloadedServiceImpl());
+        KryoSerializer serializer = new KryoSerializer(new EventBusServiceOptions());
+
+        Async async = context.async();
+        Buffer call = serializer.writeCall(12345, new Object[0], new RpcSerializer.Codec[0]);
+        vertx.eventBus().send("test-overloaded", call, r -> {
+            context.assertTrue(r.failed());
+            context.assertEquals(RpcProtocol.FAILURE_METHOD_ID_NOT_FOUND, ((ReplyException) r.cause()).failureCode());
+            async.complete();
+        });
+    }
+
+    @Test
+    public void testMethodNameHeaderFallback(TestContext context) {
+        KryoSerializer serializer = new KryoSerializer(new EventBusServiceOptions());
+        // server of previous version that resolves methods by name header only
+        vertx.eventBus().<Buffer>consumer("test", r -> {
+            String methodName = r.headers().get(RpcProtocol.HEADER_METHOD_NAME);
+            if (!"stringMethodParams".equals(methodName)) {
+                r.fail(RpcProtocol.FAILURE_METHOD_NOT_FOUND, String.format("Method %s not found", methodName));
+                return;
+            }
+            r.reply(serializer.writeObject(serializer.readObjects(r.body(), 1)[0] + "-legacy"));
+        });
+        TestEventBusService client = createClient(vertx.eventBus(), TestEventBusService.class);
+
+        Async async = context.async();
+        client.stringMethodParams("test1").thenCompose(s -> {
+            context.assertEquals("test1-legacy", s);
+            return client.stringMethodParams("test2");
+        }).thenAccept(s -> {
+            context.assertEquals("test2-legacy", s);
+            async.complete();
+        });
+    }
+
+    @Test
+    public void testReplyChannel(TestContext context) {
+        registerServer(vertx.eventBus(), new TestEventBusServiceImpl(context) {
+            @Override
+            public CompletableFuture<String> stringMethodParams(String param) {
+                return CompletableFuture.completedFuture(param + "-reply");
+            }
+
+            @Override
+            public CompletableFuture<String> stringMethod() {
+                CompletableFuture<String> result = new CompletableFuture<>();
+                result.completeExceptionally(new TestException((short) 10, "test"));
+                return result;
+            }
+        });
+        AtomicInteger channelReplies = new AtomicInteger();
+        vertx.eventBus().addInterceptor(sc -> {
+            if (sc.message().address().startsWith("typed-rpc.reply.")) {
+                channelReplies.incrementAndGet();
+            }
+            sc.next();
+        });
+        TestEventBusService client = createClient(vertx.eventBus(), TestEventBusService.class,
+                new EventBusServiceOptions().setReplyChannel(true));
+
+        Async async = context.async();
+        // the first call is replied directly, the next ones are replied to reply channel
+        client.stringMethodParams("test1").thenCompose(s -> {
+            context.assertEquals("test1-reply", s);
+            context.assertEquals(0, channelReplies.get());
+            return client.stringMethodParams("test2");
+        }).thenCompose(s -> {
+            context.assertEquals("test2-reply", s);
+            context.assertEquals(1, channelReplies.get());
+            return client.stringMethod();
+        }).whenComplete((s, e) -> {
+            context.assertTrue(e.getCause() instanceof TestException);
+            context.assertEquals(2, channelReplies.get());
+            async.complete();
+        });
+    }
+
+    @Test
+    public void testNoHandlers(TestContext context) {
+        MessageConsumer<Buffer> server = registerServer(vertx.eventBus(), new TestEventBusServiceImpl(context) {
+            @Override
+            public CompletableFuture<String> stringMethod() {
+                return CompletableFuture.completedFuture("test");
+            }
+        });
+        TestEventBusService client = createClient(vertx.eventBus(), TestEventBusService.class);
+
+        Async async = context.async();
+        // calls without reply channel fail at once when servers are gone
+        client.stringMethod().thenCompose(s -> {
+            server.unregister();
+            return client.stringMethod();
+        }).whenComplete((s, e) -> {
+            context.assertTrue(e.getCause() instanceof ReplyException);
+            context.assertEquals(ReplyFailure.NO_HANDLERS, ((ReplyException) e.getCause()).failureType());
+            async.complete();
+        });
+    }
+}
@@ -0,0 +1,158 @@
+package com.xored.vertx.typed.rpc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import io.netty.buffer.Unpooled;
+import io.vertx.core.buffer.Buffer;
+import org.junit.Test;
+
+import java.awt.Point;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author Konstantin Zaitsev
+ */
+public class SerializationTest {
+    private final KryoSerializer serializer = new KryoSerializer(new EventBusServiceOptions());
+
+    @Test
+    public void testReadObjectsFromSlicedBuffer() {
+        Buffer buffer = serializer.writeObjects(new Object[] { "test1", new TestObject("test2", 123, 10, 20) });
+        Buffer prefixed = Buffer.buffer("prefix").appendBuffer(buffer);
+
+        Object[] objects = serializer.readObjects(prefixed.slice(6, prefixed.length()), 2);
+
+        assertEquals("test1", objects[0]);
+        assertEquals("test2", ((TestObject) objects[1]).getStr());
+        assertEquals(123, ((TestObject) objects[1]).getNum());
+    }
+
+    @Test
+    public void testRemainingBytesOfSlicedBuffer() {
+        Buffer buffer = Buffer.buffer(new byte[1024]);
+
+        Input input = KryoSerializer.input(buffer.slice(1000, 1010));
+        input.readInt();
+
+        assertEquals(6, KryoSerializer.remaining(input));
+        assertEquals(6, KryoSerializer.remaining(KryoSerializer.input(Buffer.buffer(
+                Unpooled.directBuffer(16).writeBytes(new byte[10]).readerIndex(4)))));
+    }
+
+    @Test
+    public void testReadObjectFromDirectBuffer() {
+        Buffer buffer = serializer.writeObject(new TestException((short) 10, "test"));
+        Buffer direct = Buffer.buffer(Unpooled.directBuffer(buffer.length()).writeBytes(buffer.getBytes()));
+
+        Object value = serializer.readObject(direct);
+
+        assertTrue(value instanceof TestException);
+        assertEquals(10, ((TestException) value).getErrorCode());
+    }
+
+    @Test
+    public void testFailure() {
+        TestException failure = new TestException((short) 7, "test");
+        failure.initCause(new IllegalStateException("cause"));
+
+        // failures are written by the same serializer on all JDK versions
+        Object value = serializer.readObject(serializer.writeObject(failure));
+
+        assertTrue(value instanceof TestException);
+        TestException read = (TestException) value;
+        assertEquals("test", read.getMessage());
+        assertEquals(7, read.getErrorCode());
+        assertTrue(read.getCause() instanceof IllegalStateException);
+        assertEquals("cause", read.getCause().getMessage());
+        assertEquals(failure.getStackTrace().length, read.getStackTrace().length);
+        // module and class loader of frames are not written
+        assertEquals(failure.getStackTrace()[0].toString(), read.getStackTrace()[0].toString());
+    }
+
+    @Test
+    public void testWriteObjectGrowsInitialBuffer() {
+        KryoSerializer serializer = new KryoSerializer(new EventBusServiceOptions().setInitialBufferSize(16));
+        String str = new String(new char[10000]).replace('\0', 's');
+
+        Buffer buffer = serializer.writeObject(str);
+
+        assertEquals(str, serializer.readObject(buffer));
+        assertTrue(serializer.writeObject("test").length() < 16);
+    }
+
+    @Test(expected = KryoException.class)
+    public void testWriteObjectExceedsMaxBuffer() {
+        KryoSerializer serializer = new KryoSerializer(new EventBusServiceOptions().setInitialBufferSize(16)
+                .setMaxBufferSize(1024));
+
+        serializer.writeObject(new String(new char[10000]).replace('\0', 's'));
+    }
+
+    @Test
+    public void testRegistrationsOfServiceInterface() {
+        Map<Class<?>, Integer> registrations = KryoRegistrations.of(TestEventBusService.class);
+
+        assertEquals(registrations, KryoRegistrations.of(TestEventBusService.class));
+        assertTrue(registrations.containsKey(TestObject.class));
+        assertTrue(registrations.containsKey(HashMap.class));
+        // wrappers and other JDK classes may have fields inaccessible by reflection
+        assertFalse(registrations.containsKey(CompletableFuture.class));
+        assertTrue(registrations.get(TestObject.class) >= KryoRegistrations.FIRST_ID);
+    }
+
+    @Test
+    public void testRegisteredClassIsWrittenById() {
+        KryoSerializer registered = new KryoSerializer(new EventBusServiceOptions(), TestEventBusService.class);
+        TestObject obj = new TestObject("test1", 123, 10, 20);
+
+        Buffer buffer = registered.writeObject(obj);
+
+        // registered id takes at most 3 bytes instead of class name
+        assertTrue(buffer.length() + TestObject.class.getName().length() - 3
+                <= serializer.writeObject(obj).length());
+        assertEquals("test1", ((TestObject) registered.readObject(buffer)).getStr());
+        // classes written by name are readable by serializer with registrations
+        assertEquals("test1", ((TestObject) registered.readObject(serializer.writeObject(obj))).getStr());
+    }
+
+    @Test
+    public void testFinalArgumentsAreWrittenWithoutClass() {
+        RpcSerializer.Codec[] codecs = { serializer.codec(String.class), serializer.codec(Integer.class),
+                serializer.codec(Object.class) };
+        RpcSerializer.Codec[] classCodecs = { serializer.codec(Object.class), serializer.codec(Object.class),
+                serializer.codec(Object.class) };
+        Object[] args = { "test1", null, new TestObject("test2", 123, 10, 20) };
+
+        Buffer buffer = serializer.writeCall(42, args, codecs);
+        Input input = KryoSerializer.input(buffer);
+        input.readByte();
+        input.readVarInt(true);
+        Object[] objects = serializer.readObjects(input, codecs);
+
+        assertEquals("test1", objects[0]);
+        assertNull(objects[1]);
+        assertEquals("test2", ((TestObject) objects[2]).getStr());
+        // class of string is omitted, null is written as single byte in both cases
+        assertEquals(serializer.writeCall(42, args, classCodecs).length() - 1, buffer.length());
+    }
+
+    @Test
+    public void testClassRegistrar() {
+        KryoSerializer registered = new KryoSerializer(new EventBusServiceOptions(), TestEventBusService.class);
+        KryoSerializer custom = new KryoSerializer(new EventBusServiceOptions()
+                .setClassRegistrar(kryo -> kryo.register(Point.class, 20)), TestEventBusService.class);
+        TestObject obj = new TestObject("test1", 123, 10, 20);
+
+        Buffer buffer = custom.writeObject(obj);
+
+        assertTrue(buffer.length() < registered.writeObject(obj).length());
+        assertEquals(10.0, ((TestObject) custom.readObject(buffer)).getP().getX(), 0);
+    }
+}
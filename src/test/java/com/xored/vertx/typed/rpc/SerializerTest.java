@@ -0,0 +1,211 @@
+package com.xored.vertx.typed.rpc;
+
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.createClient;
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.registerServer;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author Konstantin Zaitsev
+ */
+@RunWith(VertxUnitRunner.class)
+public class SerializerTest {
+    private Vertx vertx;
+
+    public enum Status {
+        NEW, DONE
+    }
+
+    public static class Order {
+        private String id;
+        private int quantity;
+        private double price;
+        private Status status;
+        private List<String> tags;
+        private Map<String, Integer> counts;
+        private Order parent;
+
+        public Order() {
+        }
+
+        Order(String id, int quantity, double price) {
+            this.id = id;
+            this.quantity = quantity;
+            this.price = price;
+            this.status = Status.NEW;
+            this.tags = new ArrayList<>(Arrays.asList("a", null, "b"));
+            this.counts = new LinkedHashMap<>();
+            this.counts.put("x", 1);
+            this.counts.put("y", null);
+        }
+    }
+
+    public static class SpecialOrder extends Order {
+        private String note;
+
+        public SpecialOrder() {
+        }
+
+        SpecialOrder(String id, String note) {
+            super(id, 1, 1);
+            this.note = note;
+        }
+    }
+
+    @EventBusService("test-serializer")
+    public interface OrderService {
+        CompletableFuture<Order> echo(Order order);
+
+        CompletableFuture<List<Order>> split(Order order, int count);
+
+        CompletableFuture<Long> sum(long[] values, Integer offset);
+
+        CompletableFuture<String> fail(String message);
+    }
+
+    public static class OrderServiceImpl implements OrderService {
+        @Override
+        public CompletableFuture<Order> echo(Order order) {
+            return CompletableFuture.completedFuture(order);
+        }
+
+        @Override
+        public CompletableFuture<List<Order>> split(Order order, int count) {
+            List<Order> orders = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                Order part = new Order(order.id + i, order.quantity / count, order.price);
+                part.parent = order;
+                orders.add(part);
+            }
+            return CompletableFuture.completedFuture(orders);
+        }
+
+        @Override
+        public CompletableFuture<Long> sum(long[] values, Integer offset) {
+            return CompletableFuture.completedFuture(Arrays.stream(values).sum() + (offset != null ? offset : 0));
+        }
+
+        @Override
+        public CompletableFuture<String> fail(String message) {
+            CompletableFuture<String> result = new CompletableFuture<>();
+            result.completeExceptionally(new TestException((short) 7, message));
+            return result;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void testPositional(TestContext context) {
+        testRoundTrip(context, RpcSerializer.POSITIONAL);
+    }
+
+    @Test
+    public void testJson(TestContext context) {
+        testRoundTrip(context, RpcSerializer.JSON);
+    }
+
+    private void testRoundTrip(TestContext context, RpcSerializer.Factory serializer) {
+        EventBusServiceOptions options = new EventBusServiceOptions().setSerializer(serializer);
+        registerServer(vertx.eventBus(), new OrderServiceImpl(), options);
+        OrderService client = createClient(vertx.eventBus(), OrderService.class, options);
+
+        Async async = context.async(5);
+        client.echo(new Order("order", 10, 2.5)).thenAccept(order -> {
+            context.assertEquals("order", order.id);
+            context.assertEquals(10, order.quantity);
+            context.assertEquals(2.5, order.price);
+            context.assertEquals(Status.NEW, order.status);
+            context.assertEquals(Arrays.asList("a", null, "b"), order.tags);
+            context.assertEquals(Arrays.asList("x", "y"), new ArrayList<>(order.counts.keySet()));
+            context.assertNull(order.counts.get("y"));
+            context.assertNull(order.parent);
+            async.countDown();
+        });
+        client.echo(null).thenAccept(order -> {
+            context.assertNull(order);
+            async.countDown();
+        });
+        client.split(new Order("part", 9, 1), 3).thenAccept(orders -> {
+            context.assertEquals(3, orders.size());
+            context.assertEquals("part2", orders.get(2).id);
+            context.assertEquals(3, orders.get(2).quantity);
+            context.assertEquals("part", orders.get(2).parent.id);
+            async.countDown();
+        });
+        client.sum(new long[] { 1, 2, Long.MAX_VALUE - 10 }, null).thenAccept(sum -> {
+            context.assertEquals(Long.MAX_VALUE - 7, sum);
+            async.countDown();
+        });
+        client.fail("failed").whenComplete((result, e) -> {
+            context.assertTrue(e instanceof TestException);
+            context.assertEquals(7, ((TestException) e).getErrorCode());
+            async.countDown();
+        });
+    }
+
+    @Test
+    public void testPositionalOtherClasses(TestContext context) {
+        EventBusServiceOptions options = new EventBusServiceOptions().setSerializer(RpcSerializer.POSITIONAL);
+        registerServer(vertx.eventBus(), new OrderServiceImpl(), options);
+        OrderService client = createClient(vertx.eventBus(), OrderService.class, options);
+
+        Order order = new SpecialOrder("special", "note");
+        order.tags = new ArrayList<>(new TreeSet<>(Arrays.asList("c", "b")));
+        order.parent = new SpecialOrder("parent", "parent note");
+
+        Async async = context.async();
+        client.echo(order).thenAccept(result -> {
+            // subclasses are written by Kryo
+            context.assertTrue(result instanceof SpecialOrder);
+            context.assertEquals("note", ((SpecialOrder) result).note);
+            context.assertEquals("parent note", ((SpecialOrder) result.parent).note);
+            context.assertEquals(Arrays.asList("b", "c"), result.tags);
+            async.complete();
+        });
+    }
+
+    @Test
+    public void testPositionalIsSmallerThanKryo(TestContext context) {
+        EventBusServiceOptions options = new EventBusServiceOptions();
+        RpcSerializer positional = RpcSerializer.POSITIONAL.create(OrderService.class, options);
+        RpcSerializer kryo = RpcSerializer.KRYO.create(OrderService.class, options);
+        Order order = new Order("order", 10, 2.5);
+        order.parent = new Order("parent", 1, 1);
+
+        Output output = new Output(1024);
+        positional.codec(Order.class).write(output, order);
+        int positionalSize = output.position();
+        Order result = (Order) positional.codec(Order.class).read(new Input(output.getBuffer(), 0, positionalSize));
+        context.assertEquals("parent", result.parent.id);
+
+        output.clear();
+        kryo.codec(Order.class).write(output, order);
+        context.assertTrue(positionalSize < output.position());
+    }
+}
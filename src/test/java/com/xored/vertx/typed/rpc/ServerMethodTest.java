@@ -0,0 +1,83 @@
+package com.xored.vertx.typed.rpc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author Konstantin Zaitsev
+ */
+public class ServerMethodTest {
+    private static final RpcSerializer SERIALIZER = new KryoSerializer(new EventBusServiceOptions());
+
+    interface Arities {
+        String zero();
+
+        String one(String a);
+
+        String three(String a, int b, long c);
+
+        CompletableFuture<String> five(String a, int b, long c, double d, TestObject e);
+    }
+
+    private final Arities target = new Arities() {
+        @Override
+        public String zero() {
+            throw new TestException((short) 10, "test");
+        }
+
+        @Override
+        public String one(String a) {
+            return a;
+        }
+
+        @Override
+        public String three(String a, int b, long c) {
+            return a + b + c;
+        }
+
+        @Override
+        public CompletableFuture<String> five(String a, int b, long c, double d, TestObject e) {
+            return CompletableFuture.completedFuture(a + b + c + d + e.getStr());
+        }
+    };
+
+    @Test
+    public void testInvoke() throws Throwable {
+        assertEquals("a", method("one").invoke(target, new Object[] { "a" }));
+        assertEquals("a12", method("three").invoke(target, new Object[] { "a", 1, 2L }));
+
+        ServerMethod five = method("five");
+        assertTrue(five.returnsFuture());
+        assertEquals(5, five.getParameterCount());
+        Object result = five.invoke(target, new Object[] { "a", 1, 2L, 3.0, new TestObject("e", 0, 0, 0) });
+        assertEquals("a123.0e", ((CompletableFuture<?>) result).join());
+    }
+
+    @Test
+    public void testInvokeThrowsTargetException() throws Throwable {
+        ServerMethod zero = method("zero");
+        assertFalse(zero.returnsFuture());
+        try {
+            zero.invoke(target, new Object[0]);
+        } catch (TestException e) {
+            assertEquals(10, e.getErrorCode());
+            return;
+        }
+        throw new AssertionError("TestException expected");
+    }
+
+    private static ServerMethod method(String name) {
+        for (Method method : Arities.class.getDeclaredMethods()) {
+            if (method.getName().equals(name)) {
+                return ServerMethod.create(method, SERIALIZER, GraphLimits.DEFAULT, null, null, null);
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+}
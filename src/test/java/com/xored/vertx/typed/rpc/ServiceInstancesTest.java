@@ -0,0 +1,176 @@
+package com.xored.vertx.typed.rpc;
+
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.createClient;
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.registerServer;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Verticle;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * @author Konstantin Zaitsev
+ */
+@RunWith(VertxUnitRunner.class)
+public class ServiceInstancesTest {
+    private Vertx vertx;
+    private AtomicInteger created;
+    private Set<String> threads;
+    private CompletableFuture<Integer> held;
+
+    @EventBusService("test-instances")
+    public interface InstanceService {
+        CompletableFuture<Integer> instance(boolean hold);
+    }
+
+    public class InstanceServiceImpl implements InstanceService {
+        private final int id = created.getAndIncrement();
+
+        @Override
+        public CompletableFuture<Integer> instance(boolean hold) {
+            threads.add(Thread.currentThread().getName());
+            if (hold) {
+                held = new CompletableFuture<>();
+                return held;
+            }
+            return CompletableFuture.completedFuture(id);
+        }
+    }
+
+    @Before
+    public void setUp(@SuppressWarnings("UnusedParameters") TestContext context) {
+        // instances are bound to distinct event loops
+        vertx = Vertx.vertx(new VertxOptions().setEventLoopPoolSize(4));
+        created = new AtomicInteger();
+        threads = ConcurrentHashMap.newKeySet();
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void testRoundRobin(TestContext context) {
+        ServiceInstances instances = registerServer(vertx, InstanceServiceImpl::new, 3,
+                new EventBusServiceOptions().setDispatchPolicy(DispatchPolicy.ROUND_ROBIN));
+        InstanceService client = createClient(vertx.eventBus(), InstanceService.class);
+        context.assertEquals(3, instances.size());
+
+        instances.completionHandler(context.asyncAssertSuccess());
+        Async async = context.async();
+        List<Integer> ids = new ArrayList<>();
+        call(client, 6, ids, v -> {
+            context.assertEquals("[0, 1, 2, 0, 1, 2]", ids.toString());
+            context.assertEquals(3, threads.size());
+            async.complete();
+        });
+    }
+
+    @Test
+    public void testLeastInFlight(TestContext context) {
+        ServiceInstances instances = registerServer(vertx, InstanceServiceImpl::new, 3);
+        InstanceService client = createClient(vertx.eventBus(), InstanceService.class);
+
+        Async async = context.async();
+        CompletableFuture<Integer> hold = client.instance(true);
+        vertx.setTimer(100, id -> {
+            context.assertEquals(1, instances.getInFlight(0));
+            List<Integer> ids = new ArrayList<>();
+            call(client, 10, ids, v -> {
+                // the first instance is busy with held call
+                context.assertFalse(ids.contains(0), ids.toString());
+                hold.thenAccept(result -> async.complete());
+                held.complete(-1);
+            });
+        });
+    }
+
+    @Test
+    public void testUnregister(TestContext context) {
+        ServiceInstances instances = registerServer(vertx, InstanceServiceImpl::new, 3);
+        InstanceService client = createClient(vertx.eventBus(), InstanceService.class);
+
+        Async async = context.async();
+        client.instance(false).thenAccept(id -> {
+            // instances run on contexts of their verticles
+            context.assertEquals(3, vertx.deploymentIDs().size());
+            instances.unregister(context.asyncAssertSuccess(v -> vertx.setPeriodic(10, timer -> {
+                if (vertx.deploymentIDs().isEmpty()) {
+                    vertx.cancelTimer(timer);
+                    async.complete();
+                }
+            })));
+        });
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFailedDeployment(TestContext context) {
+        AtomicInteger deployments = new AtomicInteger();
+        AtomicInteger undeployments = new AtomicInteger();
+        // the second verticle fails to deploy
+        Vertx failing = (Vertx) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Vertx.class },
+                (proxy, method, args) -> {
+                    if (method.getName().equals("deployVerticle") && args.length == 2 && args[0] instanceof Verticle
+                            && deployments.incrementAndGet() == 2) {
+                        Handler<AsyncResult<String>> handler = (Handler<AsyncResult<String>>) args[1];
+                        vertx.runOnContext(v -> handler.handle(Future.failedFuture(new IllegalStateException(
+                                "test"))));
+                        return null;
+                    }
+                    if (method.getName().equals("undeploy")) {
+                        undeployments.incrementAndGet();
+                    }
+                    try {
+                        return method.invoke(vertx, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+        ServiceInstances instances = registerServer(failing, InstanceServiceImpl::new, 3);
+
+        Async async = context.async();
+        instances.completionHandler(context.asyncAssertFailure(e -> {
+            context.assertEquals("test", e.getMessage());
+            context.assertFalse(instances.getConsumer().isRegistered());
+            // instances that are deployed are undeployed
+            vertx.setPeriodic(10, timer -> {
+                if (undeployments.get() == 2 && vertx.deploymentIDs().isEmpty()) {
+                    vertx.cancelTimer(timer);
+                    async.complete();
+                }
+            });
+        }));
+    }
+
+    private void call(InstanceService client, int count, List<Integer> ids, Consumer<Void> done) {
+        if (count == 0) {
+            done.accept(null);
+            return;
+        }
+        client.instance(false).thenAccept(id -> {
+            ids.add(id);
+            call(client, count - 1, ids, done);
+        });
+    }
+}
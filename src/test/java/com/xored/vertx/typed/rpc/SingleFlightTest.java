@@ -0,0 +1,151 @@
+package com.xored.vertx.typed.rpc;
+
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.createClient;
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.registerServer;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Konstantin Zaitsev
+ */
+@RunWith(VertxUnitRunner.class)
+public class SingleFlightTest {
+    private Vertx vertx;
+    private AtomicInteger invoked;
+
+    @EventBusService("test-single-flight")
+    public interface SingleFlightService {
+        @SingleFlight
+        CompletableFuture<Integer> load(String key);
+    }
+
+    @EventBusService("test-single-flight-invalid")
+    public interface InvalidService {
+        @SingleFlight
+        void notify(String key);
+    }
+
+    public class SingleFlightServiceImpl implements SingleFlightService {
+        @Override
+        public CompletableFuture<Integer> load(String key) {
+            int value = invoked.incrementAndGet();
+            CompletableFuture<Integer> result = new CompletableFuture<>();
+            vertx.setTimer(100, id -> {
+                if (key == null) {
+                    result.completeExceptionally(new TestException((short) 1, "no key"));
+                } else {
+                    result.complete(value);
+                }
+            });
+            return result;
+        }
+    }
+
+    @Before
+    public void setUp(@SuppressWarnings("UnusedParameters") TestContext context) {
+        vertx = Vertx.vertx();
+        invoked = new AtomicInteger();
+        registerServer(vertx.eventBus(), new SingleFlightServiceImpl());
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void testClient(TestContext context) {
+        SingleFlightService client = createClient(vertx.eventBus(), SingleFlightService.class);
+
+        Async async = context.async();
+        CompletableFuture<Integer> first = client.load("a");
+        for (int i = 0; i < 10; i++) {
+            // caller cannot complete shared result for others
+            client.load("a").complete(-1);
+        }
+        CompletableFuture<Integer> other = client.load("b");
+        context.assertFalse(first == other);
+        CompletableFuture.allOf(first, other).thenCompose(v -> {
+            context.assertEquals(2, invoked.get());
+            context.assertEquals(1, first.join());
+            // completed results are not kept
+            return client.load("a");
+        }).thenAccept(value -> {
+            context.assertEquals(3, value);
+            async.complete();
+        });
+    }
+
+    @Test
+    public void testServer(TestContext context) {
+        SingleFlightService client = createClient(vertx.eventBus(), SingleFlightService.class);
+        SingleFlightService other = createClient(vertx.eventBus(), SingleFlightService.class);
+
+        Async async = context.async();
+        CompletableFuture<Integer> first = client.load("a");
+        CompletableFuture<Integer> second = other.load("a");
+        CompletableFuture.allOf(first, second).thenAccept(v -> {
+            context.assertEquals(1, invoked.get());
+            context.assertEquals(first.join(), second.join());
+            async.complete();
+        });
+    }
+
+    @Test
+    public void testFailure(TestContext context) {
+        SingleFlightService client = createClient(vertx.eventBus(), SingleFlightService.class);
+        SingleFlightService other = createClient(vertx.eventBus(), SingleFlightService.class);
+
+        Async async = context.async(2);
+        client.load(null).whenComplete((value, e) -> {
+            context.assertTrue(e instanceof TestException);
+            async.countDown();
+        });
+        other.load(null).whenComplete((value, e) -> {
+            context.assertTrue(e instanceof TestException);
+            context.assertEquals(1, invoked.get());
+            async.countDown();
+        });
+    }
+
+    @Test
+    public void testFailedCall() {
+        InFlightCalls calls = new InFlightCalls();
+        byte[] args = { 1 };
+        List<CompletableFuture<Object>> joined = new ArrayList<>();
+        IllegalStateException failure = new IllegalStateException("not sent");
+        try {
+            calls.get(args, () -> {
+                joined.add(calls.get(args, CompletableFuture::new));
+                throw failure;
+            });
+            fail("Failure is not thrown");
+        } catch (IllegalStateException e) {
+            assertSame(failure, e);
+        }
+        // identical call that joined failed call is not left pending
+        assertTrue(joined.get(0).isCompletedExceptionally());
+        assertEquals(0, calls.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOneWay() {
+        createClient(vertx.eventBus(), InvalidService.class);
+    }
+}
@@ -0,0 +1,346 @@
+package com.xored.vertx.typed.rpc;
+
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.createClient;
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.registerServer;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Konstantin Zaitsev
+ */
+@RunWith(VertxUnitRunner.class)
+public class StreamingTest {
+    private Vertx vertx;
+    private AtomicInteger emitted;
+    private AtomicInteger messages;
+    private AtomicInteger paused;
+
+    @EventBusService("test-streaming")
+    public interface StreamingService {
+        ReadStream<Integer> range(int count);
+
+        ReadStream<String> failing(String message);
+
+        CompletableFuture<Integer> sum(String name, ReadStream<Integer> values);
+
+        ReadStream<Integer> silent();
+
+        @Execution(Execution.Mode.WORKER)
+        CompletableFuture<Integer> workerSum(ReadStream<Integer> values);
+    }
+
+    public class StreamingServiceImpl implements StreamingService {
+        @Override
+        public ReadStream<Integer> range(int count) {
+            return new RangeStream(count, -1);
+        }
+
+        @Override
+        public ReadStream<String> failing(String message) {
+            if (message == null) {
+                throw new TestException((short) 1, "no message");
+            }
+            return new RangeStream(10, 3).map(i -> message + i);
+        }
+
+        @Override
+        public CompletableFuture<Integer> sum(String name, ReadStream<Integer> values) {
+            CompletableFuture<Integer> result = new CompletableFuture<>();
+            AtomicInteger sum = new AtomicInteger();
+            values.handler(sum::addAndGet).endHandler(v -> result.complete(sum.get()))
+                    .exceptionHandler(e -> result.completeExceptionally(new TestException((short) 3, e.getMessage())));
+            if ("paused".equals(name)) {
+                values.pause();
+                vertx.setTimer(200, id -> {
+                    paused.set(emitted.get());
+                    values.resume();
+                });
+            }
+            return result;
+        }
+
+        @Override
+        public ReadStream<Integer> silent() {
+            // stream that never emits items
+            return vertx.eventBus().<Integer>consumer("test-streaming.silent").bodyStream();
+        }
+
+        @Override
+        public CompletableFuture<Integer> workerSum(ReadStream<Integer> values) {
+            return sum("worker", values);
+        }
+    }
+
+    @Before
+    public void setUp(@SuppressWarnings("UnusedParameters") TestContext context) {
+        vertx = Vertx.vertx();
+        emitted = new AtomicInteger();
+        messages = new AtomicInteger();
+        paused = new AtomicInteger();
+        vertx.eventBus().addInterceptor(sc -> {
+            if (sc.message().address().startsWith("typed-rpc.reply.")) {
+                messages.incrementAndGet();
+            }
+            sc.next();
+        });
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void testStream(TestContext context) {
+        registerServer(vertx.eventBus(), new StreamingServiceImpl());
+        StreamingService client = createClient(vertx.eventBus(), StreamingService.class);
+
+        Async async = context.async();
+        List<Integer> items = new ArrayList<>();
+        client.range(1000).handler(items::add).endHandler(v -> {
+            context.assertEquals(1000, items.size());
+            for (int i = 0; i < items.size(); i++) {
+                context.assertEquals(i, items.get(i));
+            }
+            // open, chunks of items and end
+            context.assertTrue(messages.get() <= 2 + 1000 / EventBusServiceOptions.DEFAULT_STREAM_CHUNK_SIZE + 1);
+            async.complete();
+        });
+    }
+
+    @Test
+    public void testBackpressure(TestContext context) {
+        registerServer(vertx.eventBus(), new StreamingServiceImpl(),
+                new EventBusServiceOptions().setStreamChunkSize(4));
+        StreamingService client = createClient(vertx.eventBus(), StreamingService.class,
+                new EventBusServiceOptions().setStreamWindow(16));
+
+        Async async = context.async();
+        AtomicInteger received = new AtomicInteger();
+        ReadStream<Integer> stream = client.range(100);
+        stream.pause();
+        stream.handler(i -> context.assertEquals(received.getAndIncrement(), i)).endHandler(v -> {
+            context.assertEquals(100, received.get());
+            async.complete();
+        });
+        vertx.setTimer(200, id -> {
+            // paused client does not grant more credit
+            context.assertEquals(0, received.get());
+            context.assertEquals(16, emitted.get());
+            stream.resume();
+        });
+    }
+
+    @Test
+    public void testStreamFailure(TestContext context) {
+        registerServer(vertx.eventBus(), new StreamingServiceImpl());
+        StreamingService client = createClient(vertx.eventBus(), StreamingService.class);
+
+        Async async = context.async(2);
+        List<String> items = new ArrayList<>();
+        client.failing("item").handler(items::add).exceptionHandler(e -> {
+            context.assertTrue(e instanceof TestException);
+            context.assertEquals(3, items.size());
+            context.assertEquals("item2", items.get(2));
+            async.countDown();
+        });
+        client.failing(null).handler(context::fail).exceptionHandler(e -> {
+            context.assertEquals("no message", e.getMessage());
+            async.countDown();
+        });
+    }
+
+    @Test
+    public void testUpload(TestContext context) {
+        registerServer(vertx.eventBus(), new StreamingServiceImpl());
+        StreamingService client = createClient(vertx.eventBus(), StreamingService.class);
+
+        Async async = context.async(2);
+        vertx.runOnContext(v -> {
+            client.sum("sum", new RangeStream(1000, -1)).thenAccept(sum -> {
+                context.assertEquals(999 * 1000 / 2, sum);
+                async.countDown();
+            });
+            client.sum("failing", new RangeStream(10, 3)).whenComplete((sum, e) -> {
+                context.assertEquals("failed at 3", e.getMessage());
+                async.countDown();
+            });
+        });
+    }
+
+    @Test
+    public void testUploadBackpressure(TestContext context) {
+        registerServer(vertx.eventBus(), new StreamingServiceImpl(),
+                new EventBusServiceOptions().setStreamWindow(16));
+        StreamingService client = createClient(vertx.eventBus(), StreamingService.class,
+                new EventBusServiceOptions().setStreamChunkSize(4));
+
+        Async async = context.async();
+        vertx.runOnContext(v -> client.sum("paused", new RangeStream(100, -1)).thenAccept(sum -> {
+            context.assertEquals(99 * 100 / 2, sum);
+            // paused server does not request more items
+            context.assertEquals(16, paused.get());
+            async.complete();
+        }));
+    }
+
+    @Test
+    public void testStreamWithoutServer(TestContext context) {
+        StreamingService client = createClient(vertx.eventBus(), StreamingService.class);
+
+        Async async = context.async();
+        client.range(10).handler(i -> context.fail("unexpected item " + i)).exceptionHandler(e -> {
+            context.assertTrue(e instanceof ReplyException);
+            context.assertEquals(ReplyFailure.NO_HANDLERS, ((ReplyException) e).failureType());
+            async.complete();
+        });
+    }
+
+    @Test
+    public void testStreamIdleTimeout(TestContext context) {
+        registerServer(vertx.eventBus(), new StreamingServiceImpl());
+        StreamingService client = createClient(vertx.eventBus(), StreamingService.class,
+                new EventBusServiceOptions().setStreamIdleTimeout(200));
+
+        Async async = context.async();
+        long started = System.currentTimeMillis();
+        client.silent().handler(i -> context.fail("unexpected item " + i)).exceptionHandler(e -> {
+            context.assertTrue(e instanceof EventBusServiceTimeoutException);
+            context.assertEquals("silent", ((EventBusServiceTimeoutException) e).getMethod());
+            context.assertTrue(System.currentTimeMillis() - started >= 200);
+            async.complete();
+        });
+    }
+
+    @Test
+    public void testUploadToWorker(TestContext context) {
+        registerServer(vertx.eventBus(), new StreamingServiceImpl(),
+                new EventBusServiceOptions().setStreamWindow(16));
+        StreamingService client = createClient(vertx.eventBus(), StreamingService.class,
+                new EventBusServiceOptions().setStreamChunkSize(4));
+
+        Async async = context.async();
+        vertx.runOnContext(v -> client.workerSum(new RangeStream(1000, -1)).thenAccept(sum -> {
+            context.assertEquals(999 * 1000 / 2, sum);
+            async.complete();
+        }));
+    }
+
+    /**
+     * Stream of sequential numbers that are emitted on the context of server.
+     */
+    private class RangeStream implements ReadStream<Integer> {
+        private final int count;
+        private final int failAt;
+        private int next;
+        private boolean paused;
+        private boolean ended;
+        private Handler<Integer> handler;
+        private Handler<Void> endHandler;
+        private Handler<Throwable> exceptionHandler;
+
+        RangeStream(int count, int failAt) {
+            this.count = count;
+            this.failAt = failAt;
+        }
+
+        <R> ReadStream<R> map(java.util.function.Function<Integer, R> mapper) {
+            RangeStream source = this;
+            return new ReadStream<R>() {
+                @Override
+                public ReadStream<R> exceptionHandler(Handler<Throwable> handler) {
+                    source.exceptionHandler(handler);
+                    return this;
+                }
+
+                @Override
+                public ReadStream<R> handler(Handler<R> handler) {
+                    source.handler(handler != null ? i -> handler.handle(mapper.apply(i)) : null);
+                    return this;
+                }
+
+                @Override
+                public ReadStream<R> pause() {
+                    source.pause();
+                    return this;
+                }
+
+                @Override
+                public ReadStream<R> resume() {
+                    source.resume();
+                    return this;
+                }
+
+                @Override
+                public ReadStream<R> endHandler(Handler<Void> endHandler) {
+                    source.endHandler(endHandler);
+                    return this;
+                }
+            };
+        }
+
+        @Override
+        public ReadStream<Integer> exceptionHandler(Handler<Throwable> handler) {
+            this.exceptionHandler = handler;
+            return this;
+        }
+
+        @Override
+        public ReadStream<Integer> handler(Handler<Integer> handler) {
+            this.handler = handler;
+            vertx.runOnContext(v -> emit());
+            return this;
+        }
+
+        @Override
+        public ReadStream<Integer> pause() {
+            paused = true;
+            return this;
+        }
+
+        @Override
+        public ReadStream<Integer> resume() {
+            paused = false;
+            vertx.runOnContext(v -> emit());
+            return this;
+        }
+
+        @Override
+        public ReadStream<Integer> endHandler(Handler<Void> endHandler) {
+            this.endHandler = endHandler;
+            return this;
+        }
+
+        private void emit() {
+            while (!paused && !ended && handler != null && next < count) {
+                if (next == failAt) {
+                    ended = true;
+                    exceptionHandler.handle(new TestException((short) 2, "failed at " + next));
+                    return;
+                }
+                emitted.incrementAndGet();
+                handler.handle(next++);
+            }
+            if (next == count && !ended) {
+                ended = true;
+                endHandler.handle(null);
+            }
+        }
+    }
+}
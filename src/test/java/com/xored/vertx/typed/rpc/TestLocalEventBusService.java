@@ -0,0 +1,19 @@
+package com.xored.vertx.typed.rpc;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author Konstantin Zaitsev
+ */
+@Local
+@EventBusService("test-local")
+public interface TestLocalEventBusService {
+    void voidMethodBeanParams(TestObject param);
+
+    CompletableFuture<String> stringMethod();
+
+    CompletableFuture<TestObject> beanMethodBeanParams(TestObject param);
+
+    @Local(copy = true)
+    CompletableFuture<TestObject> copyBeanMethodBeanParams(TestObject param);
+}
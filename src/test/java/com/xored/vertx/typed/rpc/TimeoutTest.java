@@ -0,0 +1,108 @@
+package com.xored.vertx.typed.rpc;
+
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.createClient;
+import static com.xored.vertx.typed.rpc.EventBusServiceFactory.registerServer;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Konstantin Zaitsev
+ */
+@RunWith(VertxUnitRunner.class)
+public class TimeoutTest {
+    private Vertx vertx;
+
+    @EventBusService("test-timeout")
+    @Timeout(value = 2, unit = TimeUnit.SECONDS)
+    public interface TimeoutService {
+        CompletableFuture<String> fastMethod();
+
+        @Timeout(100)
+        CompletableFuture<String> slowMethod();
+    }
+
+    public static class TimeoutServiceImpl implements TimeoutService {
+        @Override
+        public CompletableFuture<String> fastMethod() {
+            return CompletableFuture.completedFuture("fast");
+        }
+
+        @Override
+        public CompletableFuture<String> slowMethod() {
+            return new CompletableFuture<>();
+        }
+    }
+
+    @Before
+    public void setUp(@SuppressWarnings("UnusedParameters") TestContext context) {
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void testTimeoutAnnotations(TestContext context) throws Exception {
+        EventBusServiceOptions options = new EventBusServiceOptions().setTimeout(500);
+        KryoSerializer serializer = new KryoSerializer(options);
+
+        context.assertEquals(2000L, new ClientMethod(TimeoutService.class.getMethod("fastMethod"),
+                TimeoutService.class, options, serializer).getTimeout());
+        context.assertEquals(100L, new ClientMethod(TimeoutService.class.getMethod("slowMethod"),
+                TimeoutService.class, options, serializer).getTimeout());
+        context.assertEquals(500L, new ClientMethod(TestEventBusService.class.getMethod("stringMethod"),
+                TestEventBusService.class, options, serializer).getTimeout());
+    }
+
+    @Test
+    public void testMethodTimeout(TestContext context) {
+        registerServer(vertx.eventBus(), new TimeoutServiceImpl());
+        TimeoutService client = createClient(vertx.eventBus(), TimeoutService.class,
+                new EventBusServiceOptions().setReplyChannel(true));
+
+        // the first call is replied directly, the second one expires in reply channel
+        Async async = context.async();
+        client.slowMethod().whenComplete((s, e) -> {
+            assertTimeout(context, e, "slowMethod");
+            client.fastMethod().thenCompose(fast -> client.slowMethod()).whenComplete((s2, e2) -> {
+                assertTimeout(context, e2.getCause(), "slowMethod");
+                async.complete();
+            });
+        });
+    }
+
+    @Test
+    public void testClientTimeout(TestContext context) {
+        registerServer(vertx.eventBus(), new TestEventBusServiceImpl(context) {
+            @Override
+            public CompletableFuture<String> stringMethod() {
+                return new CompletableFuture<>();
+            }
+        });
+        TestEventBusService client = createClient(vertx.eventBus(), TestEventBusService.class,
+                new EventBusServiceOptions().setTimeout(100));
+
+        Async async = context.async();
+        client.stringMethod().whenComplete((s, e) -> {
+            assertTimeout(context, e, "stringMethod");
+            async.complete();
+        });
+    }
+
+    private static void assertTimeout(TestContext context, Throwable e, String method) {
+        context.assertTrue(e instanceof EventBusServiceTimeoutException);
+        context.assertEquals(method, ((EventBusServiceTimeoutException) e).getMethod());
+    }
+}